@@ -0,0 +1,30 @@
+package com.looktech.plutus.allocation;
+
+/**
+ * First-expiring-first-out allocation over ledgers already sorted by expiry.
+ * Works on primitive arrays in place so the loop allocates nothing per ledger.
+ */
+public final class FefoAllocator {
+
+    private FefoAllocator() {
+    }
+
+    /**
+     * Draw {@code amount} from {@code remaining} in order.
+     * @param remaining Remaining micro-credits per ledger; decremented in place
+     * @param amount Micro-credits to allocate
+     * @param taken Receives the micro-credits drawn from each ledger; must be at least as long as {@code remaining}
+     * @return Number of leading ledgers visited; entries past it are untouched
+     */
+    public static int allocate(long[] remaining, long amount, long[] taken) {
+        int i = 0;
+        while (i < remaining.length && amount > 0) {
+            long take = Math.min(remaining[i], amount);
+            remaining[i] -= take;
+            taken[i] = take;
+            amount -= take;
+            i++;
+        }
+        return i;
+    }
+}
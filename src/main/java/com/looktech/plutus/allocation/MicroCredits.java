@@ -0,0 +1,57 @@
+package com.looktech.plutus.allocation;
+
+import com.looktech.plutus.exception.CreditException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point credit amounts: a {@code long} counting millionths of a credit.
+ * Request amounts convert exactly or are rejected; stored amounts go through {@link #ofStored}, which never throws.
+ */
+public final class MicroCredits {
+
+    /** Number of decimal places carried by every stored credit amount. */
+    public static final int SCALE = 6;
+
+    /** Column precision; keeps every stored value within {@code long} range at {@link #SCALE}. */
+    public static final int PRECISION = 18;
+
+    private MicroCredits() {
+    }
+
+    public static long of(BigDecimal amount) {
+        if (isAtScale(amount)) {
+            return amount.unscaledValue().longValue();
+        }
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).movePointRight(SCALE).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new CreditException("INVALID_AMOUNT",
+                    String.format("Credit amount %s must have at most %d decimal places", amount.toPlainString(), SCALE), e);
+        }
+    }
+
+    /**
+     * Convert an amount read from the database. Columns not yet migrated to {@link #SCALE} decimals can hold
+     * finer amounts; those are rounded down, so nothing is ever drawn that is not stored.
+     */
+    public static long ofStored(BigDecimal amount) {
+        if (isAtScale(amount)) {
+            return amount.unscaledValue().longValue();
+        }
+        return amount.setScale(SCALE, RoundingMode.DOWN).movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * Values read from {@code numeric(18,6)} columns are already at {@link #SCALE}; their unscaled value is the
+     * micro-credit count and needs no rescaling.
+     */
+    private static boolean isAtScale(BigDecimal amount) {
+        return amount.scale() == SCALE && amount.precision() <= PRECISION;
+    }
+
+    public static BigDecimal toBigDecimal(long micros) {
+        return BigDecimal.valueOf(micros, SCALE);
+    }
+}
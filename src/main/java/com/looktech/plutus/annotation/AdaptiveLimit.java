@@ -0,0 +1,30 @@
+package com.looktech.plutus.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Admits the call through the adaptive concurrency limiter. When the service is at its limit, lower priorities
+ * are rejected with 503 first; CRITICAL calls are only rejected once the whole limit is in use.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdaptiveLimit {
+
+    Priority priority() default Priority.NORMAL;
+
+    /**
+     * Whether the call's latency feeds the limit. Turn off for endpoints that return before their work is done
+     * (streams, work handed to the bulk executor), whose latency says nothing about the service's capacity.
+     */
+    boolean sampleLatency() default true;
+
+    enum Priority {
+        CRITICAL,
+        HIGH,
+        NORMAL,
+        LOW
+    }
+}
@@ -0,0 +1,24 @@
+package com.looktech.plutus.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a bulk operation (batch grant, sweeper, reconciliation). The call runs on the bulk executor with
+ * connections from the bulk pool, so it never holds request threads or interactive connections.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BulkWork {
+    /**
+     * HIGH for work a client is waiting on, LOW for background jobs
+     */
+    Priority priority() default Priority.LOW;
+
+    enum Priority {
+        HIGH,
+        LOW
+    }
+}
@@ -0,0 +1,25 @@
+package com.looktech.plutus.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Upper bound on the SQL statements and Redis commands one call may issue, including commit and
+ * after-commit work. Checked only when {@code credit.query-budget.enabled} is set.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    /**
+     * Maximum SQL statements (JDBC batches count once); negative means unbounded.
+     */
+    int statements() default -1;
+
+    /**
+     * Maximum Redis commands; negative means unbounded.
+     */
+    int redisCommands() default -1;
+}
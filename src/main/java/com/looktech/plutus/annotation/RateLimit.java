@@ -1,14 +0,0 @@
-package com.looktech.plutus.annotation;
-
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
-
-@Target(ElementType.METHOD)
-@Retention(RetentionPolicy.RUNTIME)
-public @interface RateLimit {
-    String key() default "";
-    int limit() default 100;
-    int period() default 60;
-} 
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.looktech.plutus.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read-only service method whose queries may be served by a read replica.
+ * Combine with {@code @Transactional(readOnly = true)}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadReplica {
+    /**
+     * SpEL expression yielding the user ID, or collection of user IDs, being read.
+     * If any of them wrote recently, the read goes to the primary instead.
+     */
+    String userIds() default "";
+}
@@ -0,0 +1,25 @@
+package com.looktech.plutus.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Serialize calls for the same user within this pod; calls for different users run in parallel.
+ * The lock is held around the whole transaction, including commit.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SerializedPerUser {
+
+    /**
+     * SpEL over the method parameters yielding a user ID or a collection of user IDs
+     */
+    String userIds() default "";
+
+    /**
+     * SpEL yielding a session ID, for operations that only know the session; its user is looked up from the freeze
+     */
+    String sessionId() default "";
+}
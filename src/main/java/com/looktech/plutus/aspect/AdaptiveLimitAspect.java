@@ -0,0 +1,53 @@
+package com.looktech.plutus.aspect;
+
+import com.looktech.plutus.annotation.AdaptiveLimit;
+import com.looktech.plutus.datasource.ConnectionWaitTimingDataSource;
+import com.looktech.plutus.limit.AdaptiveConcurrencyLimiter;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class AdaptiveLimitAspect {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    @Around("@annotation(adaptiveLimit)")
+    public Object limit(ProceedingJoinPoint point, AdaptiveLimit adaptiveLimit) throws Throwable {
+        if (!limiter.isEnabled()) {
+            return point.proceed();
+        }
+        limiter.acquire(adaptiveLimit.priority());
+        if (!adaptiveLimit.sampleLatency()) {
+            Object result;
+            try {
+                result = point.proceed();
+            } catch (Throwable e) {
+                limiter.release();
+                throw e;
+            }
+            // Work handed off to another executor keeps its slot until it completes
+            if (result instanceof CompletableFuture<?> future) {
+                future.whenComplete((value, error) -> limiter.release());
+            } else {
+                limiter.release();
+            }
+            return result;
+        }
+
+        long[] previousWait = ConnectionWaitTimingDataSource.begin();
+        long start = System.nanoTime();
+        try {
+            return point.proceed();
+        } finally {
+            long rtt = System.nanoTime() - start;
+            limiter.release(rtt, ConnectionWaitTimingDataSource.end(previousWait));
+        }
+    }
+}
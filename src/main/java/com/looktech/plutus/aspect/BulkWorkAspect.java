@@ -0,0 +1,46 @@
+package com.looktech.plutus.aspect;
+
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.bulkhead.BulkExecutor;
+import com.looktech.plutus.datasource.BulkConnectionScope;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Outermost advice: the rest of the chain, including the transaction, runs on the bulk thread.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class BulkWorkAspect {
+
+    private final BulkExecutor bulkExecutor;
+
+    @Around("@annotation(bulkWork)")
+    public Object runOnBulkhead(ProceedingJoinPoint point, BulkWork bulkWork) throws Throwable {
+        if (!bulkExecutor.isEnabled() || BulkConnectionScope.isActive()) {
+            return point.proceed();
+        }
+        try {
+            return bulkExecutor.submit(bulkWork.priority(), () -> {
+                try {
+                    return point.proceed();
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.looktech.plutus.aspect;
+
+import com.looktech.plutus.annotation.QueryBudget;
+import com.looktech.plutus.budget.QueryBudgetContext;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs outside the transaction so statements issued at commit and Redis writes after commit are counted too.
+ * Registered only when {@code credit.query-budget.enabled} is set, so production calls are not advised; the
+ * budget tests under src/test enable it with {@code fail-on-exceed}.
+ */
+@Slf4j
+@Aspect
+@Component
+@ConditionalOnProperty(name = "credit.query-budget.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class QueryBudgetAspect {
+
+    @Value("${credit.query-budget.fail-on-exceed:false}")
+    private boolean failOnExceed;
+
+    @Around("@annotation(queryBudget)")
+    public Object checkBudget(ProceedingJoinPoint point, QueryBudget queryBudget) throws Throwable {
+        QueryBudgetContext.Counts counts = QueryBudgetContext.begin();
+        Object result;
+        try {
+            result = point.proceed();
+        } finally {
+            QueryBudgetContext.end(counts);
+        }
+        if (counts != null) {
+            check(point.getSignature().toShortString(), queryBudget, counts);
+        }
+        return result;
+    }
+
+    private void check(String operation, QueryBudget budget, QueryBudgetContext.Counts counts) {
+        boolean statementsExceeded = budget.statements() >= 0 && counts.getStatements() > budget.statements();
+        boolean redisExceeded = budget.redisCommands() >= 0 && counts.getRedisCommands() > budget.redisCommands();
+        if (!statementsExceeded && !redisExceeded) {
+            log.debug("Query budget: operation={}, statements={}, redisCommands={}",
+                    operation, counts.getStatements(), counts.getRedisCommands());
+            return;
+        }
+        String message = String.format("Query budget exceeded for %s: statements=%d/%d, redisCommands=%d/%d",
+                operation, counts.getStatements(), budget.statements(), counts.getRedisCommands(), budget.redisCommands());
+        if (failOnExceed) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+}
@@ -0,0 +1,57 @@
+package com.looktech.plutus.aspect;
+
+import com.looktech.plutus.annotation.ReadReplica;
+import com.looktech.plutus.datasource.ReplicaReadScope;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Aspect
+@Component
+public class ReadReplicaAspect {
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    @Around("@annotation(readReplica)")
+    public Object scopeRead(ProceedingJoinPoint point, ReadReplica readReplica) throws Throwable {
+        Collection<Long> previous = ReplicaReadScope.bind(resolveUserIds(point, readReplica.userIds()));
+        try {
+            return point.proceed();
+        } finally {
+            ReplicaReadScope.restore(previous);
+        }
+    }
+
+    private Collection<Long> resolveUserIds(ProceedingJoinPoint point, String expression) {
+        if (expression.isEmpty()) {
+            return List.of();
+        }
+        MethodSignature signature = (MethodSignature) point.getSignature();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                point.getTarget(), signature.getMethod(), point.getArgs(), parameterNameDiscoverer);
+        Object value = parser.parseExpression(expression).getValue(context);
+        if (value instanceof Long userId) {
+            return List.of(userId);
+        }
+        List<Long> userIds = new ArrayList<>();
+        if (value instanceof Collection<?> values) {
+            values.stream()
+                    .filter(Long.class::isInstance)
+                    .map(Long.class::cast)
+                    .forEach(userIds::add);
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,91 @@
+package com.looktech.plutus.aspect;
+
+import com.looktech.plutus.annotation.SerializedPerUser;
+import com.looktech.plutus.concurrency.UserLockStripes;
+import com.looktech.plutus.domain.CreditFreeze;
+import com.looktech.plutus.repository.CreditFreezeRepository;
+import com.looktech.plutus.reservation.FastReservationStore;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordered before the transaction interceptor so the user's lock is released only after commit; otherwise the next
+ * caller could start before this one's changes are visible and still conflict on the database.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class SerializedPerUserAspect {
+
+    private final UserLockStripes userLockStripes;
+    private final CreditFreezeRepository creditFreezeRepository;
+    private final FastReservationStore fastReservationStore;
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    @Value("${credit.serialization.enabled:true}")
+    private boolean enabled;
+
+    @Around("@annotation(serializedPerUser)")
+    public Object serialize(ProceedingJoinPoint point, SerializedPerUser serializedPerUser) throws Throwable {
+        if (!enabled) {
+            return point.proceed();
+        }
+        Collection<Long> userIds = resolveUserIds(point, serializedPerUser);
+        if (userIds.isEmpty()) {
+            return point.proceed();
+        }
+        List<ReentrantLock> locked = userLockStripes.lock(userIds);
+        try {
+            return point.proceed();
+        } finally {
+            userLockStripes.unlock(locked);
+        }
+    }
+
+    private Collection<Long> resolveUserIds(ProceedingJoinPoint point, SerializedPerUser annotation) {
+        MethodSignature signature = (MethodSignature) point.getSignature();
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                point.getTarget(), signature.getMethod(), point.getArgs(), parameterNameDiscoverer);
+
+        List<Long> userIds = new ArrayList<>();
+        if (!annotation.userIds().isEmpty()) {
+            Object value = parser.parseExpression(annotation.userIds()).getValue(context);
+            if (value instanceof Long userId) {
+                userIds.add(userId);
+            } else if (value instanceof Collection<?> values) {
+                values.stream()
+                        .filter(Long.class::isInstance)
+                        .map(Long.class::cast)
+                        .forEach(userIds::add);
+            }
+        }
+        if (!annotation.sessionId().isEmpty()) {
+            String sessionId = parser.parseExpression(annotation.sessionId()).getValue(context, String.class);
+            // An unknown session is left to the service to reject
+            creditFreezeRepository.findBySessionId(sessionId)
+                    .map(CreditFreeze::getUserId)
+                    .or(() -> fastReservationStore.findUserId(sessionId))
+                    .ifPresent(userIds::add);
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,59 @@
+package com.looktech.plutus.budget;
+
+/**
+ * Per-thread counters of SQL statements and Redis commands issued inside a {@code @QueryBudget} call.
+ * Nested budgeted calls are counted against the outermost one.
+ */
+public final class QueryBudgetContext {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    private QueryBudgetContext() {
+    }
+
+    /**
+     * Start counting on this thread.
+     * @return The new counters, or null if an enclosing call is already counting
+     */
+    public static Counts begin() {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        Counts counts = new Counts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    public static void end(Counts counts) {
+        if (counts != null) {
+            CURRENT.remove();
+        }
+    }
+
+    static void recordStatement() {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+    }
+
+    static void recordRedisCommand() {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.redisCommands++;
+        }
+    }
+
+    public static final class Counts {
+        private int statements;
+        private int redisCommands;
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public int getRedisCommands() {
+            return redisCommands;
+        }
+    }
+}
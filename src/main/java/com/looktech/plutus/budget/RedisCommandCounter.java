@@ -0,0 +1,15 @@
+package com.looktech.plutus.budget;
+
+import io.lettuce.core.event.command.CommandListener;
+import io.lettuce.core.event.command.CommandStartedEvent;
+
+/**
+ * Counts Redis commands as Lettuce writes them; that happens on the calling thread, pipelined or not.
+ */
+public class RedisCommandCounter implements CommandListener {
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        QueryBudgetContext.recordRedisCommand();
+    }
+}
@@ -0,0 +1,175 @@
+package com.looktech.plutus.bulkhead;
+
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.datasource.BulkConnectionScope;
+import com.looktech.plutus.datasource.ReplicaRoutingDataSource;
+import com.looktech.plutus.dto.BulkheadStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor bulkhead for bulk work. Tasks wait in a priority queue (HIGH before LOW, FIFO within a priority)
+ * and LOW tasks may only fill part of it. Before a task starts it yields while the interactive connection pool
+ * is under pressure, so bulk work slows down instead of competing with the hot path for the database.
+ */
+@Slf4j
+@Component
+public class BulkExecutor {
+
+    private final BulkheadProperties properties;
+    private final HikariDataSource interactivePool;
+    private final ReplicaRoutingDataSource routingDataSource;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    public BulkExecutor(BulkheadProperties properties, HikariDataSource primaryDataSource,
+                        ReplicaRoutingDataSource routingDataSource) {
+        this.properties = properties;
+        this.interactivePool = primaryDataSource;
+        this.routingDataSource = routingDataSource;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bulk-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Queue a task on the bulk executor; with bulkheads disabled it runs on the calling thread.
+     * @throws BulkheadFullException if the queue has no room for this priority
+     */
+    public <T> CompletableFuture<T> submit(BulkWork.Priority priority, Callable<T> work) {
+        if (!properties.isEnabled()) {
+            try {
+                return CompletableFuture.completedFuture(work.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        int limit = priority == BulkWork.Priority.HIGH
+                ? properties.getQueueCapacity()
+                : (int) (properties.getQueueCapacity() * properties.getLowPriorityQueueShare());
+        if (executor.getQueue().size() >= limit) {
+            rejected.incrementAndGet();
+            throw new BulkheadFullException("Bulk queue is full for " + priority + " priority work");
+        }
+        BulkTask<T> task = new BulkTask<>(priority, sequence.incrementAndGet(), work);
+        executor.execute(task);
+        return task.future;
+    }
+
+    public List<BulkheadStats> stats() {
+        BulkheadStats interactive = poolStats("interactive", interactivePool);
+        HikariDataSource bulkPool = routingDataSource.getBulk();
+        if (!properties.isEnabled() || bulkPool == null) {
+            return List.of(interactive);
+        }
+        BulkheadStats bulk = poolStats("bulk", bulkPool);
+        bulk.setActiveThreads(executor.getActiveCount());
+        bulk.setMaxThreads(executor.getMaximumPoolSize());
+        bulk.setQueued(executor.getQueue().size());
+        bulk.setQueueCapacity(properties.getQueueCapacity());
+        bulk.setCompleted(executor.getCompletedTaskCount());
+        bulk.setRejected(rejected.get());
+        bulk.setDeferred(deferred.get());
+        return List.of(interactive, bulk);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Bulk executor did not finish within 30s, interrupting");
+            executor.shutdownNow();
+        }
+    }
+
+    private BulkheadStats poolStats(String name, HikariDataSource pool) {
+        BulkheadStats stats = new BulkheadStats();
+        stats.setName(name);
+        stats.setMaxConnections(pool.getMaximumPoolSize());
+        // The MXBean only exists once the pool has started
+        HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+        if (mxBean != null) {
+            stats.setActiveConnections(mxBean.getActiveConnections());
+            stats.setIdleConnections(mxBean.getIdleConnections());
+            stats.setThreadsAwaitingConnection(mxBean.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+
+    private boolean interactiveUnderPressure() {
+        HikariPoolMXBean mxBean = interactivePool.getHikariPoolMXBean();
+        if (mxBean == null) {
+            return false;
+        }
+        return mxBean.getThreadsAwaitingConnection() > 0
+                || mxBean.getActiveConnections() >= interactivePool.getMaximumPoolSize() * properties.getInteractivePressureRatio();
+    }
+
+    private void yieldToInteractive() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + properties.getMaxDeferMillis();
+        boolean counted = false;
+        while (interactiveUnderPressure() && System.currentTimeMillis() < deadline) {
+            if (!counted) {
+                deferred.incrementAndGet();
+                counted = true;
+            }
+            Thread.sleep(properties.getDeferPollMillis());
+        }
+    }
+
+    private final class BulkTask<T> implements Runnable, Comparable<BulkTask<?>> {
+
+        private final BulkWork.Priority priority;
+        private final long sequence;
+        private final Callable<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private BulkTask(BulkWork.Priority priority, long sequence, Callable<T> work) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        @Override
+        public int compareTo(BulkTask<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            BulkConnectionScope.enter();
+            try {
+                yieldToInteractive();
+                future.complete(work.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                BulkConnectionScope.exit();
+            }
+        }
+    }
+}
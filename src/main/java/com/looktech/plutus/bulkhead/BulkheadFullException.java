@@ -0,0 +1,13 @@
+package com.looktech.plutus.bulkhead;
+
+import com.looktech.plutus.exception.CreditException;
+
+/**
+ * The bulk queue has no room left for a task of this priority.
+ */
+public class BulkheadFullException extends CreditException {
+
+    public BulkheadFullException(String message) {
+        super("BULKHEAD_FULL", message);
+    }
+}
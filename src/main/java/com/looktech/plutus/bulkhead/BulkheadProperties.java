@@ -0,0 +1,40 @@
+package com.looktech.plutus.bulkhead;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("credit.bulkhead")
+public class BulkheadProperties {
+    /**
+     * Run bulk work on its own executor and connection pool
+     */
+    private boolean enabled = true;
+    /**
+     * Bulk executor threads; each holds at most one bulk connection
+     */
+    private int threads = 4;
+    /**
+     * Maximum bulk tasks waiting for a thread
+     */
+    private int queueCapacity = 100;
+    /**
+     * Share of the queue LOW priority tasks may fill, keeping the rest for HIGH priority ones
+     */
+    private double lowPriorityQueueShare = 0.5;
+    /**
+     * Size of the bulk connection pool, taken from the database on top of the interactive pool
+     */
+    private int connections = 4;
+    private long connectionTimeoutMillis = 30_000;
+    /**
+     * The interactive pool counts as under pressure when a request is waiting for a connection
+     * or this share of its connections is in use
+     */
+    private double interactivePressureRatio = 0.9;
+    /**
+     * How long a bulk task waits for interactive pressure to clear before starting anyway
+     */
+    private long maxDeferMillis = 5_000;
+    private long deferPollMillis = 50;
+}
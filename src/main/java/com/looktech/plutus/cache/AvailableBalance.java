@@ -0,0 +1,13 @@
+package com.looktech.plutus.cache;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A freshly computed available balance and the earliest expiry among the ledgers and freezes it counts,
+ * after which it is no longer correct. {@code nextExpiry} is null when nothing counted can expire.
+ */
+public record AvailableBalance(BigDecimal balance, LocalDateTime nextExpiry) {
+
+    public static final AvailableBalance EMPTY = new AvailableBalance(BigDecimal.ZERO, null);
+}
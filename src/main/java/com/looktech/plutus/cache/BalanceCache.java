@@ -0,0 +1,365 @@
+package com.looktech.plutus.cache;
+
+import com.looktech.plutus.config.RedisConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * The {@code userBalance} cache.
+ *
+ * <p>Mutations write the post-transaction balance through after commit, guarded by a per-user version (the id of
+ * the transaction log row the mutation wrote) kept next to the value, so a late writer never replaces a newer balance.
+ * Reads only fill an absent entry, and early refreshes only replace an entry whose version has not moved.
+ *
+ * <p>Each entry lives until the user's next ledger or freeze expiry (capped at {@code credit.balance.cache.max-ttl}),
+ * so a balance is never served past the moment an expiry changes it.
+ *
+ * <p>Misses are coalesced: within a pod only one caller per user recomputes while the others wait for its
+ * result, and with {@code credit.balance.cache.lease-enabled} a short Redis lease extends that across pods.
+ * Entries are recomputed early with a probability that rises as they approach expiry (XFetch), so a hot key
+ * is refreshed by a single caller before it expires instead of by every caller after.
+ */
+@Slf4j
+@Component
+public class BalanceCache {
+
+    private static final String KEY_PREFIX = RedisConfig.USER_BALANCE_CACHE + "::{";
+    private static final String LEASE_PREFIX = "credit:balance:lease:";
+    private static final long LEASE_POLL_MILLIS = 20;
+
+    // KEYS: value, version; ARGV: value, version, value ttl millis, version ttl millis
+    private static final byte[] WRITE_THROUGH_SCRIPT = """
+            local current = tonumber(redis.call('GET', KEYS[2]) or '-1')
+            if current >= tonumber(ARGV[2]) then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+            redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[4])
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: value, version; ARGV: value, expected version ('' for none), value ttl millis, version ttl millis
+    private static final byte[] REFRESH_SCRIPT = """
+            local current = redis.call('GET', KEYS[2]) or ''
+            if current ~= ARGV[2] then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+            if current ~= '' then
+                redis.call('PEXPIRE', KEYS[2], ARGV[4])
+            end
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final CachedBalanceCodec codec = new CachedBalanceCodec();
+    private final Map<Long, CompletableFuture<BigDecimal>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${credit.balance.cache.max-ttl:PT1H}")
+    private Duration maxTtl;
+
+    @Value("${credit.balance.cache.lease-enabled:false}")
+    private boolean leaseEnabled;
+
+    @Value("${credit.balance.cache.lease-millis:2000}")
+    private long leaseMillis;
+
+    @Value("${credit.balance.cache.early-refresh-beta:1.0}")
+    private double earlyRefreshBeta;
+
+    public BalanceCache(RedisTemplate<String, Object> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Value and version keys share a hash tag so the guard scripts also run on Redis Cluster.
+     */
+    public static String key(Long userId) {
+        return KEY_PREFIX + userId + "}";
+    }
+
+    private static String versionKey(Long userId) {
+        return key(userId) + ":version";
+    }
+
+    /**
+     * Return the cached balance, or compute it with {@code loader} if it is missing or due for early refresh.
+     */
+    public BigDecimal get(Long userId, Supplier<AvailableBalance> loader) {
+        List<byte[]> raw = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(bytes(key(userId)), bytes(versionKey(userId))));
+        CachedBalance cached = raw != null ? read(raw.get(0)) : null;
+        String version = raw != null && raw.get(1) != null ? new String(raw.get(1), StandardCharsets.UTF_8) : "";
+        if (cached != null && !shouldRefreshEarly(cached)) {
+            return cached.balance();
+        }
+
+        CompletableFuture<BigDecimal> flight = new CompletableFuture<>();
+        CompletableFuture<BigDecimal> existing = inFlight.putIfAbsent(userId, flight);
+        if (existing != null) {
+            // Another caller in this pod is already recomputing; a stale value is good enough meanwhile
+            if (cached != null) {
+                return cached.balance();
+            }
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            // An undecodable entry (e.g. an older format) is replaced like an early refresh rather than left to block fills
+            boolean present = raw != null && raw.get(0) != null;
+            BigDecimal balance = load(userId, loader, present ? version : null);
+            flight.complete(balance);
+            return balance;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(userId, flight);
+        }
+    }
+
+    /**
+     * Cached balance together with the entry's encoded form, for scripts that must only act while the entry is
+     * unchanged. Fills the entry through {@code loader} on a miss.
+     * @return null if Redis holds no usable entry even after filling
+     */
+    public Snapshot snapshot(Long userId, Supplier<AvailableBalance> loader) {
+        byte[] raw = getRaw(userId);
+        CachedBalance cached = read(raw);
+        if (cached == null) {
+            get(userId, loader);
+            raw = getRaw(userId);
+            cached = read(raw);
+        }
+        return cached != null ? new Snapshot(cached.balance(), raw) : null;
+    }
+
+    public record Snapshot(BigDecimal balance, byte[] raw) {
+    }
+
+    private byte[] getRaw(Long userId) {
+        return redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(bytes(key(userId))));
+    }
+
+    /**
+     * Read cached balances with a single MGET. Users without a cache entry are absent from the result.
+     */
+    public Map<Long, BigDecimal> multiGet(List<Long> userIds) {
+        byte[][] keys = userIds.stream().map(userId -> bytes(key(userId))).toArray(byte[][]::new);
+        List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(keys));
+
+        Map<Long, BigDecimal> hits = new HashMap<>();
+        if (values == null) {
+            return hits;
+        }
+        for (int i = 0; i < userIds.size(); i++) {
+            CachedBalance cached = read(values.get(i));
+            if (cached != null) {
+                hits.put(userIds.get(i), cached.balance());
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Fill absent entries in one pipelined round trip; entries written meanwhile by a mutation are kept.
+     * @param computeMillis Time spent computing each balance, used for early refresh
+     */
+    public void multiPut(Map<Long, AvailableBalance> balances, long computeMillis) {
+        if (balances.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            balances.forEach((userId, balance) -> {
+                long ttlMillis = ttlMillis(balance, now);
+                connection.stringCommands().set(
+                        bytes(key(userId)),
+                        codec.serialize(new CachedBalance(balance.balance(), now + ttlMillis, computeMillis)),
+                        Expiration.milliseconds(ttlMillis),
+                        RedisStringCommands.SetOption.SET_IF_ABSENT);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Write post-transaction balances once the surrounding transaction commits (immediately if there is none).
+     * @param versions Per-user version of each balance; an entry only moves forward
+     * @param computeMillis Time spent computing the balances, used for early refresh
+     */
+    public void writeThroughAfterCommit(Map<Long, AvailableBalance> balances, Map<Long, Long> versions, long computeMillis) {
+        if (balances.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    writeThrough(balances, versions, computeMillis);
+                }
+
+                // Ahead of other after-commit work, which may rely on the cache already showing this transaction
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+            });
+        } else {
+            writeThrough(balances, versions, computeMillis);
+        }
+    }
+
+    public void evict(Long userId) {
+        redisTemplate.delete(key(userId));
+    }
+
+    private void writeThrough(Map<Long, AvailableBalance> balances, Map<Long, Long> versions, long computeMillis) {
+        long now = System.currentTimeMillis();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                balances.forEach((userId, balance) -> {
+                    long ttlMillis = ttlMillis(balance, now);
+                    connection.scriptingCommands().eval(
+                            WRITE_THROUGH_SCRIPT, ReturnType.INTEGER, 2,
+                            bytes(key(userId)),
+                            bytes(versionKey(userId)),
+                            codec.serialize(new CachedBalance(balance.balance(), now + ttlMillis, computeMillis)),
+                            bytes(String.valueOf(versions.get(userId))),
+                            bytes(String.valueOf(ttlMillis)),
+                            bytes(String.valueOf(maxTtl.toMillis())));
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // The transaction is committed; never leave the previous balance behind
+            log.warn("Balance write-through failed, evicting instead: userIds={}, error={}", balances.keySet(), e.getMessage());
+            try {
+                redisTemplate.delete(balances.keySet().stream().map(BalanceCache::key).toList());
+            } catch (RuntimeException evictError) {
+                log.error("Balance eviction failed: userIds={}", balances.keySet(), evictError);
+            }
+        }
+    }
+
+    /**
+     * @param refreshVersion Version of the entry being refreshed early, or null when filling a miss
+     */
+    private BigDecimal load(Long userId, Supplier<AvailableBalance> loader, String refreshVersion) {
+        if (!leaseEnabled) {
+            return compute(userId, loader, refreshVersion);
+        }
+
+        String leaseKey = LEASE_PREFIX + userId;
+        Boolean leased = redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands().set(
+                bytes(leaseKey), bytes("1"), Expiration.milliseconds(leaseMillis), RedisStringCommands.SetOption.SET_IF_ABSENT));
+        if (Boolean.TRUE.equals(leased)) {
+            try {
+                return compute(userId, loader, refreshVersion);
+            } finally {
+                redisTemplate.delete(leaseKey);
+            }
+        }
+
+        // Another pod holds the lease: wait for it to publish, then fall back to computing ourselves
+        long deadline = System.currentTimeMillis() + leaseMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            CachedBalance cached = read(getRaw(userId));
+            if (cached != null && refreshVersion == null) {
+                return cached.balance();
+            }
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(leaseKey))) {
+                break;
+            }
+        }
+        log.debug("Balance lease wait gave up, computing locally: userId={}", userId);
+        return compute(userId, loader, refreshVersion);
+    }
+
+    private BigDecimal compute(Long userId, Supplier<AvailableBalance> loader, String refreshVersion) {
+        long start = System.currentTimeMillis();
+        AvailableBalance balance = loader.get();
+        long now = System.currentTimeMillis();
+        long ttlMillis = ttlMillis(balance, now);
+        byte[] value = codec.serialize(new CachedBalance(balance.balance(), now + ttlMillis, now - start));
+
+        redisTemplate.execute((RedisCallback<Object>) connection -> {
+            if (refreshVersion == null) {
+                return connection.stringCommands().set(bytes(key(userId)), value,
+                        Expiration.milliseconds(ttlMillis), RedisStringCommands.SetOption.SET_IF_ABSENT);
+            }
+            return connection.scriptingCommands().eval(REFRESH_SCRIPT, ReturnType.INTEGER, 2,
+                    bytes(key(userId)), bytes(versionKey(userId)),
+                    value, bytes(refreshVersion), bytes(String.valueOf(ttlMillis)), bytes(String.valueOf(maxTtl.toMillis())));
+        });
+        return balance.balance();
+    }
+
+    /**
+     * {@code min(maxTtl, nextExpiry - now)}, at least one millisecond since Redis rejects a zero expiry.
+     */
+    private long ttlMillis(AvailableBalance balance, long nowMillis) {
+        long ttlMillis = maxTtl.toMillis();
+        if (balance.nextExpiry() != null) {
+            long untilExpiry = balance.nextExpiry().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - nowMillis;
+            ttlMillis = Math.min(ttlMillis, untilExpiry);
+        }
+        return Math.max(1, ttlMillis);
+    }
+
+    /**
+     * XFetch: refresh when {@code now - computeMillis * beta * ln(random)} passes the expiry.
+     */
+    private boolean shouldRefreshEarly(CachedBalance cached) {
+        if (earlyRefreshBeta <= 0) {
+            return false;
+        }
+        double gap = cached.computeMillis() * earlyRefreshBeta * -Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= cached.expiresAtMillis();
+    }
+
+    private CachedBalance read(byte[] raw) {
+        if (raw == null) {
+            return null;
+        }
+        return codec.deserialize(raw);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
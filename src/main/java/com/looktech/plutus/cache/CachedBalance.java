@@ -0,0 +1,10 @@
+package com.looktech.plutus.cache;
+
+import java.math.BigDecimal;
+
+/**
+ * A cached available balance together with what probabilistic early refresh needs: when the entry expires
+ * and how long it took to compute.
+ */
+public record CachedBalance(BigDecimal balance, long expiresAtMillis, long computeMillis) {
+}
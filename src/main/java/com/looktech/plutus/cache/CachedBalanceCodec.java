@@ -0,0 +1,148 @@
+package com.looktech.plutus.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Binary encoding of {@link CachedBalance}, about a tenth the size of the JSON form and without reflection.
+ *
+ * <pre>
+ * byte    format (FORMAT_V1)
+ * varint  zigzag(scale)
+ * byte    0: zigzag varint unscaled value follows, 1: varint length + two's complement bytes follow
+ * ...     unscaled value
+ * varint  expiresAtMillis
+ * varint  computeMillis
+ * </pre>
+ *
+ * Anything that does not start with a known format byte, including JSON written by older releases,
+ * decodes to null so callers treat it as a miss.
+ */
+public class CachedBalanceCodec implements RedisSerializer<CachedBalance> {
+
+    static final byte FORMAT_V1 = 0x01;
+
+    private static final byte UNSCALED_LONG = 0;
+    private static final byte UNSCALED_BYTES = 1;
+
+    @Override
+    public byte[] serialize(CachedBalance value) {
+        if (value == null) {
+            return null;
+        }
+        Writer out = new Writer();
+        out.write(FORMAT_V1);
+        out.writeBigDecimal(value.balance());
+        out.writeVarLong(value.expiresAtMillis());
+        out.writeVarLong(value.computeMillis());
+        return out.toByteArray();
+    }
+
+    @Override
+    public CachedBalance deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != FORMAT_V1) {
+            return null;
+        }
+        try {
+            Reader in = new Reader(bytes, 1);
+            BigDecimal balance = in.readBigDecimal();
+            long expiresAtMillis = in.readVarLong();
+            long computeMillis = in.readVarLong();
+            return new CachedBalance(balance, expiresAtMillis, computeMillis);
+        } catch (RuntimeException e) {
+            // Truncated or corrupt value
+            return null;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes into a plain array sized for the common case, where the unscaled value fits in a long.
+     */
+    static final class Writer {
+        private byte[] bytes = new byte[32];
+        private int position;
+
+        void write(int b) {
+            if (position == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[position++] = (byte) b;
+        }
+
+        void writeBigDecimal(BigDecimal value) {
+            writeVarLong(zigzag(value.scale()));
+            BigInteger unscaled = value.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                write(UNSCALED_LONG);
+                writeVarLong(zigzag(unscaled.longValue()));
+            } else {
+                byte[] magnitude = unscaled.toByteArray();
+                write(UNSCALED_BYTES);
+                writeVarLong(magnitude.length);
+                for (byte b : magnitude) {
+                    write(b);
+                }
+            }
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, position);
+        }
+    }
+
+    static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        BigDecimal readBigDecimal() {
+            int scale = (int) unzigzag(readVarLong());
+            byte tag = bytes[position++];
+            if (tag == UNSCALED_LONG) {
+                return BigDecimal.valueOf(unzigzag(readVarLong()), scale);
+            }
+            long length = readVarLong();
+            if (tag != UNSCALED_BYTES || length <= 0 || length > bytes.length - position) {
+                throw new IllegalArgumentException("Malformed unscaled value");
+            }
+            byte[] magnitude = Arrays.copyOfRange(bytes, position, position + (int) length);
+            position += (int) length;
+            return new BigDecimal(new BigInteger(magnitude), scale);
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
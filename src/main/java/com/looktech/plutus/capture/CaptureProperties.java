@@ -0,0 +1,39 @@
+package com.looktech.plutus.capture;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("credit.capture")
+public class CaptureProperties {
+    private boolean enabled = false;
+    private String directory = "data/capture";
+    /**
+     * Share of matching requests recorded, 0..1
+     */
+    private double sampleRate = 0.01;
+    /**
+     * Requests with a larger body are not recorded
+     */
+    private int maxBodyBytes = 16 * 1024;
+    /**
+     * Uncompressed bytes written to a file before the next one is started
+     */
+    private long maxFileBytes = 64L * 1024 * 1024;
+    /**
+     * Oldest files are deleted beyond this count
+     */
+    private int maxFiles = 20;
+    /**
+     * Records waiting for the writer thread; requests are not recorded while it is full
+     */
+    private int queueCapacity = 10_000;
+    /**
+     * Replace user IDs with a keyed hash, consistent across records so per-user contention is preserved
+     */
+    private boolean anonymizeUserIds = false;
+    /**
+     * Hash key; if empty, a random key is used and the mapping only holds for this process
+     */
+    private String anonymizationKey = "";
+}
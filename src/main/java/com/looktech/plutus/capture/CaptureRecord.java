@@ -0,0 +1,54 @@
+package com.looktech.plutus.capture;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * One sampled request.
+ * @param startedAtMillis When the request arrived
+ * @param method HTTP method
+ * @param path Path and query string
+ * @param contentType Request content type, empty if none
+ * @param body Request body
+ * @param status Response status, 0 if the request completed asynchronously
+ * @param latencyMicros Time spent in the filter chain
+ * @param sessionId Session ID returned by a session start, empty otherwise; lets the replayer map later
+ *                  settle and cancel calls onto the sessions it starts
+ */
+public record CaptureRecord(long startedAtMillis, String method, String path, String contentType, byte[] body,
+                            int status, long latencyMicros, String sessionId) {
+
+    static final int MAGIC = 0x504C4350;  // "PLCP"
+    static final short VERSION = 1;
+
+    /**
+     * @return Uncompressed bytes written
+     */
+    int writeTo(DataOutputStream out) throws IOException {
+        int before = out.size();
+        out.writeLong(startedAtMillis);
+        out.writeUTF(method);
+        out.writeUTF(path);
+        out.writeUTF(contentType);
+        out.writeInt(body.length);
+        out.write(body);
+        out.writeShort(status);
+        out.writeLong(latencyMicros);
+        out.writeUTF(sessionId);
+        return out.size() - before;
+    }
+
+    static CaptureRecord readFrom(DataInputStream in) throws IOException {
+        long startedAtMillis = in.readLong();
+        String method = in.readUTF();
+        String path = in.readUTF();
+        String contentType = in.readUTF();
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        int status = in.readShort();
+        long latencyMicros = in.readLong();
+        String sessionId = in.readUTF();
+        return new CaptureRecord(startedAtMillis, method, path, contentType, body, status, latencyMicros, sessionId);
+    }
+}
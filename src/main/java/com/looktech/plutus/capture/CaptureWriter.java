@@ -0,0 +1,169 @@
+package com.looktech.plutus.capture;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends capture records to gzip files {@code capture-<millis>-<seq>.plcap.gz} from a single background thread,
+ * starting a new file after {@code max-file-bytes} and keeping the newest {@code max-files}. Request threads only
+ * enqueue; when the queue is full the record is dropped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "credit.capture.enabled", havingValue = "true")
+@EnableConfigurationProperties(CaptureProperties.class)
+public class CaptureWriter {
+
+    static final String FILE_SUFFIX = ".plcap.gz";
+
+    private final CaptureProperties properties;
+    private final Path directory;
+    private final BlockingQueue<CaptureRecord> queue;
+    private final Thread writerThread;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+    private DataOutputStream out;
+    private long fileBytes;
+    private int fileSequence;
+
+    public CaptureWriter(CaptureProperties properties) throws IOException {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.writerThread = new Thread(this::drainQueue, "traffic-capture");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    public void offer(CaptureRecord record) {
+        if (!queue.offer(record)) {
+            long count = dropped.incrementAndGet();
+            if (count % 1000 == 1) {
+                log.warn("Traffic capture queue full, records dropped so far: {}", count);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Reads the records of one capture file, or of every capture file in a directory in file name order.
+     * A truncated tail, left by a process that did not shut down cleanly, ends its file quietly.
+     */
+    public static void read(Path input, Consumer<CaptureRecord> consumer) throws IOException {
+        List<Path> files;
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> listing = Files.list(input)) {
+                files = listing.filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX)).sorted().toList();
+            }
+        } else {
+            files = List.of(input);
+        }
+        for (Path file : files) {
+            try (InputStream raw = Files.newInputStream(file);
+                 DataInputStream in = new DataInputStream(new GZIPInputStream(raw, 64 * 1024))) {
+                if (in.readInt() != CaptureRecord.MAGIC || in.readShort() != CaptureRecord.VERSION) {
+                    throw new IOException("Not a capture file: " + file);
+                }
+                while (true) {
+                    CaptureRecord record;
+                    try {
+                        record = CaptureRecord.readFrom(in);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    consumer.accept(record);
+                }
+            } catch (EOFException e) {
+                log.warn("Capture file ends in a truncated record: {}", file);
+            }
+        }
+    }
+
+    private void drainQueue() {
+        while (running || !queue.isEmpty()) {
+            try {
+                CaptureRecord record = queue.poll(1, TimeUnit.SECONDS);
+                if (record == null) {
+                    if (out != null) {
+                        out.flush();
+                    }
+                    continue;
+                }
+                if (out == null || fileBytes >= properties.getMaxFileBytes()) {
+                    rotate();
+                }
+                fileBytes += record.writeTo(out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                log.error("Traffic capture write failed, starting a new file: error={}", e.getMessage());
+                closeQuietly();
+            }
+        }
+        closeQuietly();
+    }
+
+    private void rotate() throws IOException {
+        closeQuietly();
+        Path file = directory.resolve(String.format("capture-%013d-%04d%s",
+                System.currentTimeMillis(), fileSequence++ % 10_000, FILE_SUFFIX));
+        out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024, true)));
+        out.writeInt(CaptureRecord.MAGIC);
+        out.writeShort(CaptureRecord.VERSION);
+        fileBytes = 0;
+        deleteOldFiles();
+        log.info("Traffic capture writing to {}", file);
+    }
+
+    private void deleteOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX)).sorted().toList();
+        }
+        for (int i = 0; i < files.size() - properties.getMaxFiles(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private void closeQuietly() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Closing capture file failed: error={}", e.getMessage());
+        }
+        out = null;
+    }
+}
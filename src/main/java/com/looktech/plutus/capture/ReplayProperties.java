@@ -0,0 +1,51 @@
+package com.looktech.plutus.capture;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("credit.replay")
+public class ReplayProperties {
+    /**
+     * Capture file, or directory of capture files replayed in file name order
+     */
+    private String input = "data/capture";
+    /**
+     * Base URL to drive; if empty, the instance the replayer booted in
+     */
+    private String targetUrl = "";
+    private Mode mode = Mode.ORIGINAL;
+    /**
+     * Time compression for SCALED mode: 2 replays an hour of traffic in 30 minutes
+     */
+    private double speed = 1.0;
+    /**
+     * Requests in flight at most; in MAX mode this is the load
+     */
+    private int concurrency = 64;
+    /**
+     * Appended to every idempotency ID so the same capture can be replayed against one database repeatedly;
+     * if empty, a suffix unique to the run is used
+     */
+    private String idempotencySuffix = "";
+    private long requestTimeoutMillis = 30_000;
+    /**
+     * Exit the JVM when the replay finishes
+     */
+    private boolean exitOnFinish = true;
+
+    public enum Mode {
+        /**
+         * Original inter-arrival times
+         */
+        ORIGINAL,
+        /**
+         * Inter-arrival times divided by {@code speed}
+         */
+        SCALED,
+        /**
+         * No pacing: as fast as {@code concurrency} allows
+         */
+        MAX
+    }
+}
@@ -0,0 +1,142 @@
+package com.looktech.plutus.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.looktech.plutus.cluster.OwnershipForwardingFilter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records a sample of credit and session API requests for {@link TrafficReplayRunner}. Runs before the
+ * ownership forwarding filter so each client request is recorded once, by the pod it reached.
+ * Session IDs in recorded responses and paths are left as they are; they are random and the replayer maps
+ * them onto the sessions it starts.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+@ConditionalOnProperty(name = "credit.capture.enabled", havingValue = "true")
+public class TrafficCaptureFilter extends OncePerRequestFilter {
+
+    static final String SESSION_START_PATH = "/api/v1/sessions/start";
+    static final Pattern SESSION_PATH = Pattern.compile("^/api/v1/sessions/([^/]+)/(settle|cancel)$");
+
+    private final CaptureWriter writer;
+    private final CaptureProperties properties;
+    private final ObjectMapper objectMapper;
+    private final UserIdAnonymizer anonymizer;
+
+    public TrafficCaptureFilter(CaptureWriter writer, CaptureProperties properties, ObjectMapper objectMapper) {
+        this.writer = writer;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.anonymizer = properties.isAnonymizeUserIds() ? new UserIdAnonymizer(properties.getAnonymizationKey()) : null;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith("/api/v1/credits/") && !path.startsWith("/api/v1/sessions/")) {
+            return true;
+        }
+        // Streamed bodies are read after the filter returns and can be any size
+        if (path.endsWith(":stream") || request.getContentLengthLong() > properties.getMaxBodyBytes()) {
+            return true;
+        }
+        if (request.getHeader(OwnershipForwardingFilter.FORWARDED_HEADER) != null) {
+            return true;
+        }
+        // Sessions are sampled by ID so a recorded settle or cancel always comes with its start; the start is
+        // decided once its response carries the ID
+        if (SESSION_START_PATH.equals(path)) {
+            return false;
+        }
+        Matcher session = SESSION_PATH.matcher(path);
+        if (session.matches()) {
+            return !sampled(session.group(1));
+        }
+        return ThreadLocalRandom.current().nextDouble() >= properties.getSampleRate();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long startedAtMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        ContentCachingRequestWrapper cachedRequest = new ContentCachingRequestWrapper(request, properties.getMaxBodyBytes());
+        // Only the session start response is needed, for the session ID later settles and cancels refer to
+        ContentCachingResponseWrapper cachedResponse = SESSION_START_PATH.equals(request.getRequestURI())
+                ? new ContentCachingResponseWrapper(response) : null;
+        try {
+            chain.doFilter(cachedRequest, cachedResponse != null ? cachedResponse : response);
+        } finally {
+            long latencyMicros = (System.nanoTime() - start) / 1_000;
+            String sessionId = "";
+            if (cachedResponse != null) {
+                sessionId = sessionId(cachedResponse.getContentAsByteArray());
+                cachedResponse.copyBodyToResponse();
+            }
+            boolean sampled = cachedResponse == null
+                    || (sessionId.isEmpty() ? ThreadLocalRandom.current().nextDouble() < properties.getSampleRate() : sampled(sessionId));
+            try {
+                if (sampled) {
+                    record(cachedRequest, response, startedAtMillis, latencyMicros, sessionId);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Request not captured: path={}, error={}", request.getRequestURI(), e.getMessage());
+            }
+        }
+    }
+
+    private void record(ContentCachingRequestWrapper request, HttpServletResponse response, long startedAtMillis,
+                        long latencyMicros, String sessionId) throws IOException {
+        String path = request.getRequestURI();
+        if (request.getQueryString() != null) {
+            path += "?" + request.getQueryString();
+        }
+        byte[] body = request.getContentAsByteArray();
+        if (anonymizer != null) {
+            path = anonymizer.anonymizePath(path);
+            if (body.length > 0) {
+                JsonNode json = objectMapper.readTree(body);
+                anonymizer.anonymizeBody(json);
+                body = objectMapper.writeValueAsBytes(json);
+            }
+        }
+        int status = request.isAsyncStarted() ? 0 : response.getStatus();
+        String contentType = request.getContentType() != null ? request.getContentType() : "";
+        writer.offer(new CaptureRecord(startedAtMillis, request.getMethod(), path, contentType, body,
+                status, latencyMicros, sessionId));
+    }
+
+    private boolean sampled(String sessionId) {
+        return (sessionId.hashCode() & Integer.MAX_VALUE) < properties.getSampleRate() * Integer.MAX_VALUE;
+    }
+
+    private String sessionId(byte[] responseBody) {
+        if (responseBody.length == 0) {
+            return "";
+        }
+        try {
+            JsonNode sessionId = objectMapper.readTree(responseBody).get("sessionId");
+            return sessionId != null && sessionId.isTextual() ? sessionId.asText() : "";
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
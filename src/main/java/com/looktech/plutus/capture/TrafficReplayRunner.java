@@ -0,0 +1,321 @@
+package com.looktech.plutus.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+
+/**
+ * Replays capture files against an instance and reports latency percentiles per endpoint next to the latencies
+ * seen when the traffic was captured. Run with {@code --spring.profiles.active=replay} against a scratch database;
+ * with no target URL the requests go to the instance the replayer booted in.
+ *
+ * <p>Requests are sent in capture order, paced by their original arrival times (ORIGINAL), by those times
+ * compressed by {@code speed} (SCALED), or back to back (MAX), with at most {@code concurrency} in flight.
+ * Settle and cancel calls are rewritten to the sessions started during the replay, and idempotency IDs get a
+ * suffix so a capture can be replayed more than once.
+ */
+@Slf4j
+@Component
+@Profile("replay")
+@EnableConfigurationProperties(ReplayProperties.class)
+@RequiredArgsConstructor
+public class TrafficReplayRunner implements ApplicationRunner {
+
+    private final ReplayProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Environment environment;
+    private final ConfigurableApplicationContext context;
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<String>> sessions = new ConcurrentHashMap<>();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+    private final EndpointStats scheduleLag = new EndpointStats();
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String targetUrl = properties.getTargetUrl().isEmpty()
+                ? "http://localhost:" + environment.getProperty("local.server.port")
+                : properties.getTargetUrl();
+        String suffix = properties.getIdempotencySuffix().isEmpty()
+                ? "-replay-" + System.currentTimeMillis()
+                : properties.getIdempotencySuffix();
+        log.info("Replay starting: input={}, target={}, mode={}, speed={}, concurrency={}", properties.getInput(),
+                targetUrl, properties.getMode(), properties.getSpeed(), properties.getConcurrency());
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getConcurrency());
+        Semaphore inFlight = new Semaphore(properties.getConcurrency());
+        double speed = switch (properties.getMode()) {
+            case ORIGINAL -> 1.0;
+            case SCALED -> properties.getSpeed();
+            case MAX -> 0;
+        };
+        long[] firstCapturedAt = {-1};
+        long replayStart = System.nanoTime();
+        LongAdder sent = new LongAdder();
+
+        // 1. Dispatch in capture order, holding each record back until its due time
+        CaptureWriter.read(Paths.get(properties.getInput()), record -> {
+            if (firstCapturedAt[0] < 0) {
+                firstCapturedAt[0] = record.startedAtMillis();
+            }
+            long dueNanos = replayStart;
+            if (speed > 0) {
+                dueNanos += (long) (TimeUnit.MILLISECONDS.toNanos(record.startedAtMillis() - firstCapturedAt[0]) / speed);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    sleep(waitNanos);
+                }
+            }
+            if (record.path().startsWith(TrafficCaptureFilter.SESSION_START_PATH) && !record.sessionId().isEmpty()) {
+                sessions.put(record.sessionId(), new CompletableFuture<>());
+            }
+            inFlight.acquireUninterruptibly();
+            if (speed > 0) {
+                scheduleLag.add(Math.max(0, (System.nanoTime() - dueNanos) / 1_000), 0);
+            }
+            sent.increment();
+            executor.execute(() -> {
+                try {
+                    send(httpClient, targetUrl, suffix, record);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        });
+
+        // 2. Wait for the tail and report
+        inFlight.acquireUninterruptibly(properties.getConcurrency());
+        long elapsedNanos = System.nanoTime() - replayStart;
+        executor.shutdown();
+        report(sent.sum(), elapsedNanos);
+        if (properties.isExitOnFinish()) {
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+
+    private void send(HttpClient httpClient, String targetUrl, String suffix, CaptureRecord record) {
+        String path = record.path();
+        Matcher session = TrafficCaptureFilter.SESSION_PATH.matcher(path);
+        if (session.matches()) {
+            String replayedSessionId = replayedSession(session.group(1));
+            if (replayedSessionId == null) {
+                skipped.increment();
+                return;
+            }
+            path = "/api/v1/sessions/" + replayedSessionId + "/" + session.group(2);
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(targetUrl + path))
+                .timeout(Duration.ofMillis(properties.getRequestTimeoutMillis()))
+                .method(record.method(), record.body().length == 0
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(withIdempotencySuffix(record.body(), suffix)));
+        if (!record.contentType().isEmpty()) {
+            request.header("Content-Type", record.contentType());
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            transportErrors.increment();
+            completeSession(record, null);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            completeSession(record, null);
+            return;
+        }
+        long latencyMicros = (System.nanoTime() - start) / 1_000;
+        endpoints.computeIfAbsent(endpoint(record), k -> new EndpointStats())
+                .record(latencyMicros, record.latencyMicros(), response.statusCode());
+        completeSession(record, response.statusCode() == 200 ? sessionId(response.body()) : null);
+    }
+
+    private String replayedSession(String capturedSessionId) {
+        CompletableFuture<String> replayed = sessions.get(capturedSessionId);
+        if (replayed == null) {
+            // Started before the capture began
+            return null;
+        }
+        try {
+            return replayed.get(properties.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void completeSession(CaptureRecord record, String replayedSessionId) {
+        if (!record.sessionId().isEmpty()) {
+            CompletableFuture<String> future = sessions.get(record.sessionId());
+            if (future != null) {
+                future.complete(replayedSessionId);
+            }
+        }
+    }
+
+    private byte[] withIdempotencySuffix(byte[] body, String suffix) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            appendSuffix(json, suffix);
+            return objectMapper.writeValueAsBytes(json);
+        } catch (IOException e) {
+            return body;
+        }
+    }
+
+    private static void appendSuffix(JsonNode node, String suffix) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if ("idempotencyId".equals(field.getKey()) && field.getValue().isTextual()) {
+                    field.setValue(object.textNode(field.getValue().asText() + suffix));
+                } else {
+                    appendSuffix(field.getValue(), suffix);
+                }
+            }
+        } else if (node != null && node.isArray()) {
+            node.forEach(child -> appendSuffix(child, suffix));
+        }
+    }
+
+    private String sessionId(byte[] body) {
+        try {
+            JsonNode sessionId = objectMapper.readTree(body).get("sessionId");
+            return sessionId != null && sessionId.isTextual() ? sessionId.asText() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Groups by route template so per-user and per-session paths land in one bucket.
+     */
+    private static String endpoint(CaptureRecord record) {
+        String path = record.path();
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        path = path.replaceAll("/users/\\d+", "/users/{userId}");
+        Matcher session = TrafficCaptureFilter.SESSION_PATH.matcher(path);
+        if (session.matches()) {
+            path = "/api/v1/sessions/{sessionId}/" + session.group(2);
+        }
+        return record.method() + " " + path;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(long sent, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        log.info("Replay finished in {}s: sent={}, throughput={} req/s, skippedSessions={}, transportErrors={}",
+                String.format("%.1f", seconds), sent, String.format("%.1f", sent / seconds), skipped.sum(), transportErrors.sum());
+        if (scheduleLag.count() > 0) {
+            long[] lag = scheduleLag.sortedLatencies();
+            log.info("Schedule lag (us): p50={}, p99={}, max={}; high lag means the target or concurrency limit could not keep up",
+                    percentile(lag, 0.50), percentile(lag, 0.99), lag[lag.length - 1]);
+        }
+        new TreeMap<>(endpoints).forEach((endpoint, stats) -> {
+            long[] replayed = stats.sortedLatencies();
+            long[] captured = stats.sortedCapturedLatencies();
+            log.info("{}: count={}, statuses={}, replay p50={} p90={} p99={} p99.9={} max={} us, captured p50={} p99={} us",
+                    endpoint, replayed.length, stats.statuses(),
+                    percentile(replayed, 0.50), percentile(replayed, 0.90), percentile(replayed, 0.99),
+                    percentile(replayed, 0.999), replayed.length == 0 ? 0 : replayed[replayed.length - 1],
+                    percentile(captured, 0.50), percentile(captured, 0.99));
+        });
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    private static final class EndpointStats {
+        private long[] latencies = new long[1024];
+        private long[] capturedLatencies = new long[1024];
+        private int count;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        synchronized void record(long latencyMicros, long capturedMicros, int status) {
+            add(latencyMicros, capturedMicros);
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        synchronized void add(long latencyMicros, long capturedMicros) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+                capturedLatencies = Arrays.copyOf(capturedLatencies, count * 2);
+            }
+            latencies[count] = latencyMicros;
+            capturedLatencies[count] = capturedMicros;
+            count++;
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized Map<Integer, Integer> statuses() {
+            return new TreeMap<>(statuses);
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        synchronized long[] sortedCapturedLatencies() {
+            long[] sorted = Arrays.copyOf(capturedLatencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.looktech.plutus.capture;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Maps user IDs to HMAC-SHA256 derived IDs. The same user always maps to the same ID under one key, so a
+ * replay keeps the original per-user access pattern without revealing who the users were.
+ */
+class UserIdAnonymizer {
+
+    private static final Pattern USER_PATH = Pattern.compile("/users/(\\d+)(?=/|$)");
+    private static final long ID_RANGE = 1_000_000_000_000L;
+
+    private final SecretKeySpec key;
+
+    UserIdAnonymizer(String key) {
+        byte[] keyBytes;
+        if (key == null || key.isEmpty()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+    }
+
+    long anonymize(long userId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] digest = mac.doFinal(ByteBuffer.allocate(Long.BYTES).putLong(userId).array());
+            return 1 + Math.floorMod(ByteBuffer.wrap(digest).getLong(), ID_RANGE);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
+
+    String anonymizePath(String path) {
+        Matcher matcher = USER_PATH.matcher(path);
+        StringBuilder out = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(out, "/users/" + anonymize(Long.parseLong(matcher.group(1))));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    /**
+     * Rewrites every numeric {@code userId} field, at any depth, in place.
+     */
+    void anonymizeBody(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if ("userId".equals(field.getKey()) && field.getValue().canConvertToLong()) {
+                    field.setValue(object.numberNode(anonymize(field.getValue().asLong())));
+                } else {
+                    anonymizeBody(field.getValue());
+                }
+            }
+        } else if (node != null && node.isArray()) {
+            node.forEach(this::anonymizeBody);
+        }
+    }
+}
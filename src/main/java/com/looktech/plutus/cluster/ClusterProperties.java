@@ -0,0 +1,36 @@
+package com.looktech.plutus.cluster;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("credit.cluster")
+public class ClusterProperties {
+    /**
+     * Partition users into leased slots so that one pod at a time owns each user
+     */
+    private boolean enabled = false;
+    /**
+     * Number of slots; must be the same on every pod and must not change while pods are running
+     */
+    private int slots = 256;
+    /**
+     * Pod identity in the member registry
+     */
+    private String podId;
+    /**
+     * Base URL other pods use to forward requests to this pod
+     */
+    private String advertisedUrl;
+    private long leaseTtlMillis = 10_000;
+    private long renewIntervalMillis = 3_000;
+    private long forwardTimeoutMillis = 5_000;
+    /**
+     * Upper bound on post-commit balances the owner keeps in memory; past it the oldest entries are dropped
+     */
+    private int maxOwnedBalances = 100_000;
+    /**
+     * How long an in-memory balance is served at most, even if no ledger or freeze expires sooner
+     */
+    private long ownedBalanceTtlMillis = 600_000;
+}
@@ -0,0 +1,18 @@
+package com.looktech.plutus.cluster;
+
+import com.looktech.plutus.exception.CreditException;
+import lombok.Getter;
+
+/**
+ * A mutation reached a pod that does not own the user's slot, e.g. during a rebalance.
+ */
+@Getter
+public class NotSlotOwnerException extends CreditException {
+
+    private final String ownerUrl;
+
+    public NotSlotOwnerException(Long userId, String ownerUrl) {
+        super("NOT_SLOT_OWNER", String.format("User %d is owned by another instance", userId));
+        this.ownerUrl = ownerUrl;
+    }
+}
@@ -0,0 +1,221 @@
+package com.looktech.plutus.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.looktech.plutus.domain.CreditFreeze;
+import com.looktech.plutus.repository.CreditFreezeRepository;
+import com.looktech.plutus.reservation.FastReservationStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Forwards user-scoped requests that arrive at a pod not owning the user's slot to the owning pod, so clients
+ * can keep talking to the ClusterIP service. Requests already forwarded once are always handled locally; if
+ * ownership moved meanwhile, the service answers NOT_SLOT_OWNER and the client retries.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "credit.cluster.enabled", havingValue = "true")
+public class OwnershipForwardingFilter extends OncePerRequestFilter {
+
+    public static final String FORWARDED_HEADER = "X-Plutus-Forwarded-By";
+
+    private static final Pattern USER_PATH = Pattern.compile("^/api/v1/credits/users/(\\d+)/");
+    private static final Pattern SESSION_PATH = Pattern.compile("^/api/v1/sessions/([^/]+)/(settle|cancel)$");
+    private static final Set<String> USER_BODY_PATHS = Set.of(
+            "/api/v1/credits/grant", "/api/v1/credits/deduct", "/api/v1/sessions/start");
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "host", "connection", "content-length", "transfer-encoding", "expect", "upgrade", "keep-alive");
+
+    private final SlotLeaseManager leases;
+    private final ClusterProperties properties;
+    private final CreditFreezeRepository creditFreezeRepository;
+    private final FastReservationStore fastReservationStore;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public OwnershipForwardingFilter(SlotLeaseManager leases, ClusterProperties properties,
+                                     CreditFreezeRepository creditFreezeRepository, FastReservationStore fastReservationStore,
+                                     ObjectMapper objectMapper) {
+        this.leases = leases;
+        this.properties = properties;
+        this.creditFreezeRepository = creditFreezeRepository;
+        this.fastReservationStore = fastReservationStore;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(properties.getForwardTimeoutMillis()))
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(FORWARDED_HEADER) != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI();
+        Matcher userPath = USER_PATH.matcher(path);
+        Matcher sessionPath = SESSION_PATH.matcher(path);
+        boolean userPathMatched = userPath.find();
+        boolean sessionPathMatched = sessionPath.matches();
+        if (!userPathMatched && !sessionPathMatched && !USER_BODY_PATHS.contains(path)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Only these small user-scoped requests are buffered; bulk endpoints stream straight through
+        CachedBodyRequest cached = new CachedBodyRequest(request);
+        Long userId;
+        if (userPathMatched) {
+            userId = Long.valueOf(userPath.group(1));
+        } else if (sessionPathMatched) {
+            String sessionId = sessionPath.group(1);
+            userId = creditFreezeRepository.findBySessionId(sessionId).map(CreditFreeze::getUserId)
+                    .or(() -> fastReservationStore.findUserId(sessionId))
+                    .orElse(null);
+        } else {
+            userId = bodyUserId(cached.body);
+        }
+
+        if (userId != null) {
+            int slot = leases.slotOf(userId);
+            if (leases.tokenIfOwned(slot) < 0) {
+                String ownerUrl = leases.ownerUrl(slot);
+                if (ownerUrl != null && !ownerUrl.equals(properties.getAdvertisedUrl()) && forward(cached, response, ownerUrl)) {
+                    return;
+                }
+            }
+        }
+        chain.doFilter(cached, response);
+    }
+
+    private Long bodyUserId(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode userId = objectMapper.readTree(body).get("userId");
+            return userId != null && userId.canConvertToLong() ? userId.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the owner could not be reached, in which case the request is handled locally
+     */
+    private boolean forward(CachedBodyRequest request, HttpServletResponse response, String ownerUrl) throws IOException {
+        String query = request.getQueryString();
+        URI target = URI.create(ownerUrl + request.getRequestURI() + (query != null ? "?" + query : ""));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofMillis(properties.getForwardTimeoutMillis()))
+                .method(request.getMethod(), request.body.length > 0
+                        ? HttpRequest.BodyPublishers.ofByteArray(request.body)
+                        : HttpRequest.BodyPublishers.noBody())
+                .header(FORWARDED_HEADER, properties.getPodId());
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    builder.header(name, value);
+                }
+            }
+        }
+
+        HttpResponse<byte[]> forwarded;
+        try {
+            forwarded = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            log.warn("Forwarding to slot owner failed, handling locally: target={}, error={}", target, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        response.setStatus(forwarded.statusCode());
+        forwarded.headers().map().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        response.getOutputStream().write(forwarded.body());
+        return true;
+    }
+
+    /**
+     * Reads the body once so it can be both inspected here and forwarded or passed down the chain.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is already in memory, so it is available at once
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.looktech.plutus.cluster;
+
+import com.looktech.plutus.util.Hashing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Leases user slots in Redis. Every pod heartbeats into a member registry and computes the same rendezvous-hash
+ * assignment of slots to live members; it acquires the slots assigned to it and releases the others, so slots move
+ * when pods join or leave and fall to the survivors when a pod dies and its leases expire.
+ *
+ * <p>Each acquisition increments the slot's fencing token. A pod treats a slot as owned only until its lease could
+ * have expired, and stamps the token on the user's summary row in every mutation so that a pod which lost a slot
+ * without noticing is rejected by the database.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "credit.cluster.enabled", havingValue = "true")
+public class SlotLeaseManager {
+
+    private static final String MEMBERS_KEY = "credit:cluster:members";
+    private static final String URLS_KEY = "credit:cluster:urls";
+
+    // KEYS: slot lease, fence counter; ARGV: pod id, url, ttl millis. Returns the token, or -1 if another pod holds it
+    private static final byte[] ACQUIRE_SCRIPT = """
+            local owner = redis.call('HGET', KEYS[1], 'owner')
+            if owner == ARGV[1] then
+                redis.call('PEXPIRE', KEYS[1], ARGV[3])
+                return tonumber(redis.call('HGET', KEYS[1], 'token'))
+            end
+            if owner then
+                return -1
+            end
+            local token = redis.call('INCR', KEYS[2])
+            redis.call('HSET', KEYS[1], 'owner', ARGV[1], 'url', ARGV[2], 'token', token)
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return token
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: slot lease; ARGV: pod id
+    private static final byte[] RELEASE_SCRIPT = """
+            if redis.call('HGET', KEYS[1], 'owner') == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ClusterProperties properties;
+    private final Map<Integer, Lease> owned = new ConcurrentHashMap<>();
+    private final List<IntConsumer> slotLostListeners = new ArrayList<>();
+
+    private record Lease(long token, long validUntilMillis) {
+    }
+
+    public SlotLeaseManager(RedisTemplate<String, String> redisTemplate, ClusterProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+    }
+
+    public int slotOf(Long userId) {
+        return Math.floorMod(Long.hashCode(userId) * 0x9E3779B9, properties.getSlots());
+    }
+
+    /**
+     * @return The fencing token if this pod currently owns the slot, or -1
+     */
+    public long tokenIfOwned(int slot) {
+        Lease lease = owned.get(slot);
+        return lease != null && System.currentTimeMillis() < lease.validUntilMillis() ? lease.token() : -1;
+    }
+
+    /**
+     * @return Base URL of the pod holding the slot's lease, or null if it is unowned
+     */
+    public String ownerUrl(int slot) {
+        Object url = redisTemplate.opsForHash().get(slotKey(slot), "url");
+        return url != null ? url.toString() : null;
+    }
+
+    public void onSlotLost(IntConsumer listener) {
+        slotLostListeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${credit.cluster.renew-interval-millis:3000}")
+    public void heartbeat() {
+        long start = System.currentTimeMillis();
+        try {
+            Set<Integer> desired = desiredSlots(liveMembers(start));
+            renew(desired, start);
+        } catch (RuntimeException e) {
+            log.warn("Slot lease heartbeat failed: error={}", e.getMessage());
+        }
+        // Leases that could not be renewed stop counting once they might have expired elsewhere
+        owned.forEach((slot, lease) -> {
+            if (System.currentTimeMillis() >= lease.validUntilMillis()) {
+                drop(slot);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        for (Integer slot : List.copyOf(owned.keySet())) {
+            release(slot);
+        }
+        redisTemplate.opsForZSet().remove(MEMBERS_KEY, properties.getPodId());
+        redisTemplate.opsForHash().delete(URLS_KEY, properties.getPodId());
+        log.info("Released all slot leases: podId={}", properties.getPodId());
+    }
+
+    private List<String> liveMembers(long now) {
+        redisTemplate.opsForZSet().add(MEMBERS_KEY, properties.getPodId(), now + properties.getLeaseTtlMillis());
+        redisTemplate.opsForHash().put(URLS_KEY, properties.getPodId(), properties.getAdvertisedUrl());
+        redisTemplate.opsForZSet().removeRangeByScore(MEMBERS_KEY, Double.NEGATIVE_INFINITY, now);
+        Set<String> members = redisTemplate.opsForZSet().range(MEMBERS_KEY, 0, -1);
+        return members != null ? List.copyOf(members) : List.of(properties.getPodId());
+    }
+
+    /**
+     * Rendezvous hashing: a slot goes to the member with the highest hash of (member, slot), so a membership change
+     * only moves the slots of the member that joined or left.
+     */
+    private Set<Integer> desiredSlots(List<String> members) {
+        Set<Integer> desired = new HashSet<>();
+        for (int slot = 0; slot < properties.getSlots(); slot++) {
+            String winner = null;
+            long best = Long.MIN_VALUE;
+            for (String member : members) {
+                long score = Hashing.fmix64(member.hashCode() * 31L + slot);
+                if (winner == null || score > best) {
+                    best = score;
+                    winner = member;
+                }
+            }
+            if (properties.getPodId().equals(winner)) {
+                desired.add(slot);
+            }
+        }
+        return desired;
+    }
+
+    private void renew(Set<Integer> desired, long start) {
+        for (Integer slot : List.copyOf(owned.keySet())) {
+            if (!desired.contains(slot)) {
+                release(slot);
+            }
+        }
+
+        List<Integer> slots = List.copyOf(desired);
+        byte[] podId = bytes(properties.getPodId());
+        byte[] url = bytes(properties.getAdvertisedUrl());
+        byte[] ttl = bytes(String.valueOf(properties.getLeaseTtlMillis()));
+        List<Object> tokens = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int slot : slots) {
+                connection.scriptingCommands().eval(ACQUIRE_SCRIPT, ReturnType.INTEGER, 2,
+                        bytes(slotKey(slot)), bytes(fenceKey(slot)), podId, url, ttl);
+            }
+            return null;
+        });
+
+        // Count validity from before the requests were sent, less one renew interval of clock-drift margin
+        long validUntil = start + properties.getLeaseTtlMillis() - properties.getRenewIntervalMillis();
+        for (int i = 0; i < slots.size(); i++) {
+            long token = ((Number) tokens.get(i)).longValue();
+            int slot = slots.get(i);
+            if (token < 0) {
+                continue;
+            }
+            Lease previous = owned.put(slot, new Lease(token, validUntil));
+            if (previous == null) {
+                log.info("Acquired slot: slot={}, token={}", slot, token);
+            } else if (previous.token() != token) {
+                // The lease lapsed and was re-acquired; anything cached under the old token is suspect
+                slotLostListeners.forEach(listener -> listener.accept(slot));
+            }
+        }
+    }
+
+    private void release(int slot) {
+        drop(slot);
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.scriptingCommands().eval(
+                    RELEASE_SCRIPT, ReturnType.INTEGER, 1, bytes(slotKey(slot)), bytes(properties.getPodId())));
+        } catch (RuntimeException e) {
+            log.warn("Slot release failed, lease will expire: slot={}, error={}", slot, e.getMessage());
+        }
+    }
+
+    private void drop(int slot) {
+        if (owned.remove(slot) != null) {
+            log.info("Lost slot: slot={}", slot);
+            slotLostListeners.forEach(listener -> listener.accept(slot));
+        }
+    }
+
+    private static String slotKey(int slot) {
+        return "credit:cluster:{slot:" + slot + "}";
+    }
+
+    private static String fenceKey(int slot) {
+        return "credit:cluster:{slot:" + slot + "}:fence";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
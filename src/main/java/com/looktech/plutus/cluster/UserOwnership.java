@@ -0,0 +1,177 @@
+package com.looktech.plutus.cluster;
+
+import com.looktech.plutus.cache.AvailableBalance;
+import com.looktech.plutus.repository.UserCreditSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Ties mutations to slot ownership when {@code credit.cluster.enabled} is set; otherwise every method is a no-op.
+ *
+ * <p>Single-user mutations only run on the pod owning the user's slot, and stamp the slot's fencing token on the
+ * user's summary row inside the transaction. The owner keeps each user's post-commit balance in memory and answers
+ * balance reads from it while it still holds the slot under the same token and no ledger or freeze has expired.
+ * Writes that cannot be routed to one owner (batch grants) publish an invalidation instead.
+ * The in-memory balances are bounded by {@code max-owned-balances} and {@code owned-balance-ttl-millis}.
+ */
+@Slf4j
+@Component
+public class UserOwnership {
+
+    public static final String INVALIDATION_CHANNEL = "credit:cluster:invalidate";
+
+    private final SlotLeaseManager leases;
+    private final UserCreditSummaryRepository userCreditSummaryRepository;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ClusterProperties properties;
+    private final Map<Long, OwnedBalance> balances = new ConcurrentHashMap<>();
+
+    private record OwnedBalance(BigDecimal balance, long validUntilMillis, long token) {
+    }
+
+    public UserOwnership(ObjectProvider<SlotLeaseManager> leases,
+                         UserCreditSummaryRepository userCreditSummaryRepository,
+                         RedisTemplate<String, String> redisTemplate,
+                         ClusterProperties properties) {
+        this.leases = leases.getIfAvailable();
+        this.userCreditSummaryRepository = userCreditSummaryRepository;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        if (this.leases != null) {
+            this.leases.onSlotLost(this::dropSlot);
+        }
+    }
+
+    /**
+     * Must be called inside the mutation's transaction, before it changes anything.
+     * @throws NotSlotOwnerException If another pod owns the user, or took the slot over since this pod last renewed
+     */
+    public void claim(Long userId) {
+        if (leases == null) {
+            return;
+        }
+        int slot = leases.slotOf(userId);
+        long token = leases.tokenIfOwned(slot);
+        if (token < 0 || !userCreditSummaryRepository.advanceFence(userId, token)) {
+            balances.remove(userId);
+            throw new NotSlotOwnerException(userId, leases.ownerUrl(slot));
+        }
+    }
+
+    /**
+     * Whether this pod may mutate the user right now; always true with clustering off.
+     */
+    public boolean owns(Long userId) {
+        return leases == null || leases.tokenIfOwned(leases.slotOf(userId)) >= 0;
+    }
+
+    public Optional<BigDecimal> ownedBalance(Long userId) {
+        if (leases == null) {
+            return Optional.empty();
+        }
+        OwnedBalance owned = balances.get(userId);
+        if (owned == null) {
+            return Optional.empty();
+        }
+        if (System.currentTimeMillis() >= owned.validUntilMillis()
+                || owned.token() != leases.tokenIfOwned(leases.slotOf(userId))) {
+            balances.remove(userId, owned);
+            return Optional.empty();
+        }
+        return Optional.of(owned.balance());
+    }
+
+    /**
+     * Keep post-commit balances of owned users in memory and tell the owners of the rest to forget theirs.
+     * A not-owned user's entry is dropped here at once, since the published invalidation also reaches this pod
+     * only asynchronously.
+     */
+    public void recordAfterCommit(Map<Long, AvailableBalance> committed) {
+        if (leases == null || committed.isEmpty()) {
+            return;
+        }
+        Runnable record = () -> {
+            long now = System.currentTimeMillis();
+            List<Long> notOwned = new ArrayList<>();
+            committed.forEach((userId, balance) -> {
+                long token = leases.tokenIfOwned(leases.slotOf(userId));
+                if (token < 0) {
+                    balances.remove(userId);
+                    notOwned.add(userId);
+                    return;
+                }
+                long validUntil = now + properties.getOwnedBalanceTtlMillis();
+                if (balance.nextExpiry() != null) {
+                    validUntil = Math.min(validUntil,
+                            balance.nextExpiry().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                }
+                balances.put(userId, new OwnedBalance(balance.balance(), validUntil, token));
+            });
+            if (balances.size() > properties.getMaxOwnedBalances()) {
+                trim(now);
+            }
+            if (!notOwned.isEmpty()) {
+                publishInvalidation(notOwned);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    /**
+     * Handle an invalidation published by another pod.
+     */
+    public void invalidate(Collection<Long> userIds) {
+        userIds.forEach(balances::remove);
+    }
+
+    private void publishInvalidation(List<Long> userIds) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                    userIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        } catch (RuntimeException e) {
+            log.warn("Ownership invalidation publish failed: userIds={}, error={}", userIds, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop expired entries, then arbitrary ones down to 90% of the bound so that trimming is not repeated on
+     * every write while the map is full.
+     */
+    private void trim(long now) {
+        balances.values().removeIf(owned -> now >= owned.validUntilMillis());
+        int excess = balances.size() - properties.getMaxOwnedBalances() * 9 / 10;
+        Iterator<Long> userIds = balances.keySet().iterator();
+        while (excess-- > 0 && userIds.hasNext()) {
+            userIds.next();
+            userIds.remove();
+        }
+    }
+
+    private void dropSlot(int slot) {
+        balances.keySet().removeIf(userId -> leases.slotOf(userId) == slot);
+    }
+}
@@ -0,0 +1,62 @@
+package com.looktech.plutus.concurrency;
+
+import com.looktech.plutus.exception.CreditException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed array of locks indexed by user ID. Two users may share a stripe, which only costs some parallelism;
+ * memory stays bounded no matter how many users are active.
+ */
+@Component
+public class UserLockStripes {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public UserLockStripes(@Value("${credit.serialization.stripes:1024}") int stripeCount,
+                           @Value("${credit.serialization.lock-timeout-millis:5000}") long timeoutMillis) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Lock the stripes of all given users, in stripe order so that multi-user callers cannot deadlock.
+     * @return The locks taken, to pass to {@link #unlock(List)}
+     */
+    public List<ReentrantLock> lock(Collection<Long> userIds) throws InterruptedException {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        userIds.forEach(userId -> indexes.add(stripe(userId)));
+
+        List<ReentrantLock> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            ReentrantLock lock = stripes[index];
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                unlock(locked);
+                throw new CreditException("USER_BUSY", "Too many concurrent operations for this user, retry later");
+            }
+            locked.add(lock);
+        }
+        return locked;
+    }
+
+    public void unlock(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--) {
+            locked.get(i).unlock();
+        }
+    }
+
+    private int stripe(Long userId) {
+        return Math.floorMod(Long.hashCode(userId) * 0x9E3779B9, stripes.length);
+    }
+}
@@ -0,0 +1,33 @@
+package com.looktech.plutus.config;
+
+import com.looktech.plutus.cluster.ClusterProperties;
+import com.looktech.plutus.cluster.UserOwnership;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@Configuration
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "credit.cluster.enabled", havingValue = "true")
+    public RedisMessageListenerContainer clusterInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                     UserOwnership userOwnership) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> userOwnership.invalidate(
+                Arrays.stream(new String(message.getBody(), StandardCharsets.UTF_8).split(","))
+                        .map(Long::valueOf)
+                        .toList()),
+                new ChannelTopic(UserOwnership.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,99 @@
+package com.looktech.plutus.config;
+
+import com.looktech.plutus.budget.StatementCountingDataSource;
+import com.looktech.plutus.bulkhead.BulkheadProperties;
+import com.looktech.plutus.datasource.ConnectionWaitTimingDataSource;
+import com.looktech.plutus.datasource.MicroCreditColumnCheck;
+import com.looktech.plutus.datasource.ReadYourWritesGuard;
+import com.looktech.plutus.datasource.ReplicaRoutingDataSource;
+import com.looktech.plutus.datasource.TransactionLogXidMigration;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties({ReplicaDataSourceProperties.class, BulkheadProperties.class})
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                      ReplicaDataSourceProperties properties,
+                                                      BulkheadProperties bulkheadProperties,
+                                                      ReadYourWritesGuard readYourWritesGuard) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : properties.getReplicaUrls()) {
+            if (StringUtils.hasText(url)) {
+                replicas.add(createReplica(primaryDataSource, url.trim(), replicas.size()));
+            }
+        }
+        HikariDataSource bulk = bulkheadProperties.isEnabled() ? createBulkPool(primaryDataSource, bulkheadProperties) : null;
+        log.info("Initializing routing DataSource with {} read replica(s), bulk pool {}",
+                replicas.size(), bulk != null ? bulk.getMaximumPoolSize() : "disabled");
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, bulk, readYourWritesGuard);
+    }
+
+    /**
+     * The routing key depends on the transaction's read-only flag, which is only known after the
+     * transaction has begun, so the physical connection is fetched lazily at the first statement.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource,
+                                 @Value("${credit.query-budget.enabled:false}") boolean queryBudgetEnabled) {
+        // Connection waits feed the adaptive concurrency limiter
+        DataSource timed = new ConnectionWaitTimingDataSource(routingDataSource);
+        DataSource target = queryBudgetEnabled ? new StatementCountingDataSource(timed) : timed;
+        return new LazyConnectionDataSourceProxy(target);
+    }
+
+    /**
+     * Startup schema checks and migrations see existing tables before Hibernate compares the schema with the entities.
+     */
+    @Bean
+    public static EntityManagerFactoryDependsOnPostProcessor schemaMigrationsBeforeJpa() {
+        return new EntityManagerFactoryDependsOnPostProcessor(MicroCreditColumnCheck.class, TransactionLogXidMigration.class);
+    }
+
+    private HikariDataSource createBulkPool(HikariDataSource primary, BulkheadProperties properties) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("bulk");
+        config.setMaximumPoolSize(properties.getConnections());
+        config.setMinimumIdle(0);
+        config.setConnectionTimeout(properties.getConnectionTimeoutMillis());
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+
+    private HikariDataSource createReplica(HikariDataSource primary, String url, int index) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setJdbcUrl(url);
+        config.setPoolName("replica-" + index);
+        config.setReadOnly(true);
+        // A replica being down must not prevent startup; reads fall back to errors until it returns
+        config.setInitializationFailTimeout(-1);
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,29 @@
+package com.looktech.plutus.config;
+
+import com.looktech.plutus.budget.RedisCommandCounter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+/**
+ * Redis side of {@code @QueryBudget}; the JDBC side is wired in {@link DataSourceConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "credit.query-budget.enabled", havingValue = "true")
+public class QueryBudgetConfig {
+
+    /**
+     * Lettuce attaches command listeners when a connection is created, so this must run before first use.
+     */
+    @Bean
+    public SmartInitializingSingleton redisCommandCounterRegistrar(RedisConnectionFactory connectionFactory) {
+        return () -> {
+            if (connectionFactory instanceof LettuceConnectionFactory lettuce) {
+                lettuce.getRequiredNativeClient().addListener(new RedisCommandCounter());
+            }
+        };
+    }
+}
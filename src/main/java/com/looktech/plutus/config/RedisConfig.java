@@ -33,6 +33,9 @@ import java.util.Arrays;
 @RequiredArgsConstructor
 public class RedisConfig {
 
+    public static final String USER_BALANCE_CACHE = "userBalance";
+    public static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(10);
+
     private final Environment environment;
 
     @Bean
@@ -127,7 +130,7 @@ public class RedisConfig {
         log.info("Initializing RedisCacheManager with connection factory");
         
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10))
+                .entryTtl(DEFAULT_CACHE_TTL)
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
                 .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
                 .disableCachingNullValues();
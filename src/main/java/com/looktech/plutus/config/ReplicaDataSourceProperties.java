@@ -0,0 +1,22 @@
+package com.looktech.plutus.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "credit.datasource")
+public class ReplicaDataSourceProperties {
+
+    /**
+     * JDBC URLs of read replicas. Credentials and pool settings are taken from {@code spring.datasource}.
+     */
+    private List<String> replicaUrls = new ArrayList<>();
+
+    /**
+     * How long reads for a user stay on the primary after that user's own write.
+     */
+    private int readYourWritesSeconds = 5;
+}
@@ -0,0 +1,67 @@
+package com.looktech.plutus.controller;
+
+import com.looktech.plutus.annotation.AdaptiveLimit;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.dto.ConsumptionAnalyticsResponse;
+import com.looktech.plutus.dto.HistoricalBalanceResponse;
+import com.looktech.plutus.service.AnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/v1/analytics")
+@RequiredArgsConstructor
+@Tag(name = "Credit Analytics", description = "Credit usage analytics API endpoints")
+public class AnalyticsController {
+
+    private final AnalyticsService analyticsService;
+
+    @Operation(summary = "Get credit usage", description = "Get credit usage per source type and transaction type over a time range, served from rollups")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Usage retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = ConsumptionAnalyticsResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid time range or granularity"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @GetMapping("/usage")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW)
+    public ResponseEntity<ConsumptionAnalyticsResponse> getUsage(
+            @Parameter(description = "Range start (inclusive), ISO date-time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Range end (exclusive), ISO date-time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Bucket granularity") @RequestParam(defaultValue = "DAY") ConsumptionAnalyticsResponse.Granularity granularity,
+            @Parameter(description = "User ID; omit for all users") @RequestParam(required = false) Long userId,
+            @Parameter(description = "Source type filter") @RequestParam(required = false) String sourceType,
+            @Parameter(description = "Transaction type filter") @RequestParam(required = false) CreditTransactionLog.TransactionType transactionType) {
+        return ResponseEntity.ok(analyticsService.getUsage(userId, from, to, granularity, sourceType, transactionType));
+    }
+
+    @Operation(summary = "Get historical balance", description = "Get a user's available balance at a past point in time, from balance snapshots and transaction logs")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Balance retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = HistoricalBalanceResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Point in time is in the future"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @GetMapping("/users/{userId}/balance")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW)
+    public ResponseEntity<HistoricalBalanceResponse> getBalanceAt(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Point in time, ISO date-time") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(analyticsService.getBalanceAt(userId, at));
+    }
+}
@@ -0,0 +1,37 @@
+package com.looktech.plutus.controller;
+
+import com.looktech.plutus.bulkhead.BulkExecutor;
+import com.looktech.plutus.dto.BulkheadStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/bulkheads")
+@RequiredArgsConstructor
+@Tag(name = "Bulkheads", description = "Executor and connection pool bulkhead API endpoints")
+public class BulkheadController {
+
+    private final BulkExecutor bulkExecutor;
+
+    @Operation(summary = "Get bulkhead saturation", description = "Threads, queue and connection pool usage of the interactive and bulk bulkheads")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Saturation retrieved",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkheadStats.class))))
+    })
+    @GetMapping
+    public ResponseEntity<List<BulkheadStats>> stats() {
+        return ResponseEntity.ok(bulkExecutor.stats());
+    }
+}
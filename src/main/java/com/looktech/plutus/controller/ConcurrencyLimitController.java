@@ -0,0 +1,34 @@
+package com.looktech.plutus.controller;
+
+import com.looktech.plutus.dto.ConcurrencyLimitStats;
+import com.looktech.plutus.limit.AdaptiveConcurrencyLimiter;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/admin/concurrency-limit")
+@RequiredArgsConstructor
+@Tag(name = "Concurrency Limit", description = "Adaptive concurrency limiter API endpoints")
+public class ConcurrencyLimitController {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    @Operation(summary = "Get limiter state", description = "Current limit, admitted calls, latency averages and shed counts by priority")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "State retrieved",
+                    content = @Content(schema = @Schema(implementation = ConcurrencyLimitStats.class)))
+    })
+    @GetMapping
+    public ResponseEntity<ConcurrencyLimitStats> stats() {
+        return ResponseEntity.ok(limiter.stats());
+    }
+}
@@ -1,8 +1,11 @@
 package com.looktech.plutus.controller;
 
-import com.looktech.plutus.annotation.RateLimit;
+import com.looktech.plutus.annotation.AdaptiveLimit;
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.bulkhead.BulkExecutor;
 import com.looktech.plutus.domain.CreditTransactionLog;
 import com.looktech.plutus.dto.*;
+import com.looktech.plutus.service.BatchGrantIngestionService;
 import com.looktech.plutus.service.CreditService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,12 +14,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/credits")
@@ -25,16 +32,18 @@ import java.math.BigDecimal;
 public class CreditController {
 
     private final CreditService creditService;
+    private final BatchGrantIngestionService batchGrantIngestionService;
+    private final BulkExecutor bulkExecutor;
 
     @Operation(summary = "Grant credits to user", description = "Grant credits to a user with specified amount and expiration time")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Credits granted successfully",
                     content = @Content(schema = @Schema(implementation = CreditGrantResponse.class))),
         @ApiResponse(responseCode = "400", description = "Invalid input parameters"),
-        @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @PostMapping("/grant")
-    @RateLimit(key = "grant_credit", limit = 100, period = 60)
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.NORMAL)
     public ResponseEntity<CreditGrantResponse> grantCredit(@RequestBody CreditGrantRequest request) {
         CreditTransactionLog log = creditService.grantCredit(
             request.getUserId(),
@@ -51,23 +60,38 @@ public class CreditController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Balance retrieved successfully",
                     content = @Content(schema = @Schema(implementation = BigDecimal.class))),
-        @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @GetMapping("/users/{userId}/balance")
-    @RateLimit(key = "get_balance", limit = 1000, period = 60)
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.HIGH)
     public ResponseEntity<BigDecimal> getAvailableBalance(
             @Parameter(description = "User ID") @PathVariable Long userId) {
         return ResponseEntity.ok(creditService.getAvailableBalance(userId));
     }
 
+    @Operation(summary = "Get available balances for multiple users", description = "Get the available credit balances for up to several thousand users in one call")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Balances retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = BatchBalanceResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input parameters or batch too large"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @PostMapping("/balances:batchGet")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.NORMAL)
+    public ResponseEntity<BatchBalanceResponse> batchGetBalances(@RequestBody BatchBalanceRequest request) {
+        return ResponseEntity.ok(BatchBalanceResponse.builder()
+            .balances(creditService.getAvailableBalances(request.getUserIds()))
+            .build());
+    }
+
     @Operation(summary = "Get user's transaction history", description = "Get the transaction history for a user with pagination")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Transaction history retrieved successfully",
                     content = @Content(schema = @Schema(implementation = Page.class))),
-        @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @GetMapping("/users/{userId}/transactions")
-    @RateLimit(key = "get_transactions", limit = 500, period = 60)
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW)
     public ResponseEntity<Page<CreditTransactionLog>> getTransactionHistory(
             @Parameter(description = "User ID") @PathVariable Long userId,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
@@ -81,10 +105,10 @@ public class CreditController {
                     content = @Content(schema = @Schema(implementation = CreditTransactionLog.class))),
         @ApiResponse(responseCode = "400", description = "Invalid input parameters"),
         @ApiResponse(responseCode = "409", description = "Insufficient balance"),
-        @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @PostMapping("/deduct")
-    @RateLimit(key = "deduct_credit", limit = 200, period = 60)
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.CRITICAL)
     public ResponseEntity<CreditTransactionLog> deductCredit(@RequestBody CreditDeductRequest request) {
         return ResponseEntity.ok(creditService.deductCredit(
             request.getUserId(),
@@ -100,11 +124,29 @@ public class CreditController {
         @ApiResponse(responseCode = "200", description = "Credits granted successfully",
                     content = @Content(schema = @Schema(implementation = BatchCreditGrantResponse.class))),
         @ApiResponse(responseCode = "400", description = "Invalid input parameters"),
-        @ApiResponse(responseCode = "429", description = "Rate limit exceeded")
+        @ApiResponse(responseCode = "503", description = "Service overloaded or bulk queue full, retry later")
     })
     @PostMapping("/batch-grant")
-    @RateLimit(key = "batch_grant_credit", limit = 50, period = 60)
-    public ResponseEntity<BatchCreditGrantResponse> batchGrantCredit(@RequestBody BatchCreditGrantRequest request) {
-        return ResponseEntity.ok(creditService.batchGrantCredit(request.getItems()));
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW, sampleLatency = false)
+    public CompletableFuture<ResponseEntity<BatchCreditGrantResponse>> batchGrantCredit(@RequestBody BatchCreditGrantRequest request) {
+        // Frees the request thread while the batch waits for and runs on the bulk executor
+        return bulkExecutor.submit(BulkWork.Priority.HIGH, () -> creditService.batchGrantCredit(request.getItems()))
+            .thenApply(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Stream a batch grant", description = "Grant credits for an NDJSON stream of grant items of any size. "
+            + "Items are granted in chunks as they are read, and one NDJSON result line per item is streamed back as each chunk completes")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Results streamed; check each line for success",
+                    content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = BatchGrantItemResult.class))),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @PostMapping(value = "/batch-grant:stream", consumes = {"application/x-ndjson", MediaType.APPLICATION_JSON_VALUE},
+            produces = "application/x-ndjson")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW, sampleLatency = false)
+    public ResponseEntity<StreamingResponseBody> streamBatchGrant(HttpServletRequest request) {
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(out -> batchGrantIngestionService.ingest(request.getInputStream(), out));
     }
 } 
\ No newline at end of file
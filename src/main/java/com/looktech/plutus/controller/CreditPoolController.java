@@ -0,0 +1,134 @@
+package com.looktech.plutus.controller;
+
+import com.looktech.plutus.annotation.AdaptiveLimit;
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.bulkhead.BulkExecutor;
+import com.looktech.plutus.domain.CreditPool;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.dto.*;
+import com.looktech.plutus.service.CreditPoolService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/v1/pools")
+@RequiredArgsConstructor
+@Tag(name = "Credit Pool Service", description = "Shared credit pool API endpoints")
+public class CreditPoolController {
+
+    private final CreditPoolService creditPoolService;
+    private final BulkExecutor bulkExecutor;
+
+    @Operation(summary = "Create a credit pool", description = "Create a pool whose balance is split over the given number of shards")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Pool created successfully",
+                    content = @Content(schema = @Schema(implementation = CreditPool.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input parameters"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @PostMapping
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW)
+    public ResponseEntity<CreditPool> createPool(@RequestBody CreditPoolRequest request) {
+        int shardCount = request.getShardCount() != null ? request.getShardCount() : 1;
+        return ResponseEntity.ok(creditPoolService.createPool(request.getName(), shardCount));
+    }
+
+    @Operation(summary = "Add a pool member", description = "Let a user spend from the pool")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Member added"),
+        @ApiResponse(responseCode = "400", description = "Pool not found"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @PutMapping("/{poolId}/members/{userId}")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW)
+    public ResponseEntity<Void> addMember(
+            @Parameter(description = "Pool ID") @PathVariable Long poolId,
+            @Parameter(description = "User ID") @PathVariable Long userId) {
+        creditPoolService.addMember(poolId, userId);
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(summary = "Remove a pool member", description = "Stop a user from spending from the pool")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Member removed"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @DeleteMapping("/{poolId}/members/{userId}")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.LOW)
+    public ResponseEntity<Void> removeMember(
+            @Parameter(description = "Pool ID") @PathVariable Long poolId,
+            @Parameter(description = "User ID") @PathVariable Long userId) {
+        creditPoolService.removeMember(poolId, userId);
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(summary = "Get pool's available balance", description = "Get the available balance of the pool, summed over its shards")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Balance retrieved successfully",
+                    content = @Content(schema = @Schema(implementation = PoolBalanceResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Pool not found"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @GetMapping("/{poolId}/balance")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.HIGH)
+    public ResponseEntity<PoolBalanceResponse> getBalance(
+            @Parameter(description = "Pool ID") @PathVariable Long poolId) {
+        return ResponseEntity.ok(creditPoolService.getBalance(poolId));
+    }
+
+    @Operation(summary = "Grant credits to a pool", description = "Grant credits to a pool, split evenly over its shards")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Grant processed; check the per-shard results",
+                    content = @Content(schema = @Schema(implementation = BatchCreditGrantResponse.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input parameters"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded or bulk queue full, retry later")
+    })
+    @PostMapping("/{poolId}/grant")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.NORMAL, sampleLatency = false)
+    public CompletableFuture<ResponseEntity<BatchCreditGrantResponse>> grantCredit(
+            @Parameter(description = "Pool ID") @PathVariable Long poolId,
+            @RequestBody PoolGrantRequest request) {
+        // One grant item per shard, run on the bulk executor like any batch grant
+        return bulkExecutor.submit(BulkWork.Priority.HIGH, () -> creditPoolService.grantCredit(
+                poolId,
+                request.getAmount(),
+                request.getSourceType(),
+                request.getSourceId(),
+                request.getExpiresAt(),
+                request.getIdempotencyId()))
+            .thenApply(ResponseEntity::ok);
+    }
+
+    @Operation(summary = "Deduct credits from a pool", description = "Deduct credits from the pool on behalf of a member")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Credits deducted successfully",
+                    content = @Content(schema = @Schema(implementation = CreditTransactionLog.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input parameters or not a pool member"),
+        @ApiResponse(responseCode = "409", description = "Insufficient balance"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
+    })
+    @PostMapping("/{poolId}/deduct")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.CRITICAL)
+    public ResponseEntity<CreditTransactionLog> deductCredit(
+            @Parameter(description = "Pool ID") @PathVariable Long poolId,
+            @RequestBody PoolDeductRequest request) {
+        return ResponseEntity.ok(creditPoolService.deductCredit(
+            poolId,
+            request.getUserId(),
+            request.getAmount(),
+            request.getSourceType(),
+            request.getSourceId(),
+            request.getIdempotencyId()
+        ));
+    }
+}
@@ -1,5 +1,6 @@
 package com.looktech.plutus.controller;
 
+import com.looktech.plutus.annotation.AdaptiveLimit;
 import com.looktech.plutus.domain.CreditTransactionLog;
 import com.looktech.plutus.domain.SettleSessionResponse;
 import com.looktech.plutus.dto.CreditSessionRequest;
@@ -28,9 +29,11 @@ public class CreditSessionController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Session started successfully",
                     content = @Content(schema = @Schema(implementation = CreateSessionResponse.class))),
-        @ApiResponse(responseCode = "400", description = "Invalid input parameters, duplicate request, or insufficient balance")
+        @ApiResponse(responseCode = "400", description = "Invalid input parameters, duplicate request, or insufficient balance"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @PostMapping("/start")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.HIGH)
     public ResponseEntity<CreateSessionResponse> startSession(@RequestBody CreditSessionRequest request) {
         return ResponseEntity.ok(creditService.startSession(
             request.getUserId(),
@@ -43,9 +46,11 @@ public class CreditSessionController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Session settled successfully",
                     content = @Content(schema = @Schema(implementation = SettleSessionResponse.class))),
-        @ApiResponse(responseCode = "400", description = "Invalid input parameters, duplicate operation, or session not found")
+        @ApiResponse(responseCode = "400", description = "Invalid input parameters, duplicate operation, or session not found"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @PostMapping("/{sessionId}/settle")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.CRITICAL)
     public ResponseEntity<SettleSessionResponse> settleSession(
             @Parameter(description = "Session ID") @PathVariable String sessionId,
             @RequestBody CreditSessionSettleRequest request) {
@@ -58,6 +63,7 @@ public class CreditSessionController {
         response.setTransactionId(transactionLog.getTransactionId());
         response.setType(transactionLog.getType());
         response.setCreatedAt(transactionLog.getCreatedAt());
+        response.setBalanceAfter(transactionLog.getBalanceAfter());
         
         return ResponseEntity.ok(response);
     }
@@ -65,9 +71,11 @@ public class CreditSessionController {
     @Operation(summary = "Cancel a credit session", description = "Cancel a credit session and release reserved credits")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Session cancelled successfully"),
-        @ApiResponse(responseCode = "400", description = "Invalid session status or session not found")
+        @ApiResponse(responseCode = "400", description = "Invalid session status or session not found"),
+        @ApiResponse(responseCode = "503", description = "Service overloaded, retry later")
     })
     @PostMapping("/{sessionId}/cancel")
+    @AdaptiveLimit(priority = AdaptiveLimit.Priority.CRITICAL)
     public ResponseEntity<Boolean> cancelSession(
             @Parameter(description = "Session ID") @PathVariable String sessionId) {
         creditService.cancelSession(sessionId);
@@ -0,0 +1,34 @@
+package com.looktech.plutus.controller;
+
+import com.looktech.plutus.dto.IdempotencyStats;
+import com.looktech.plutus.idempotency.IdempotencyStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/admin/idempotency")
+@RequiredArgsConstructor
+@Tag(name = "Idempotency", description = "Idempotency store API endpoints")
+public class IdempotencyController {
+
+    private final IdempotencyStore idempotencyStore;
+
+    @Operation(summary = "Get idempotency store report", description = "Filter sizing, memory compared with per-ID keys, false positives and claim latency")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Report retrieved",
+                    content = @Content(schema = @Schema(implementation = IdempotencyStats.class)))
+    })
+    @GetMapping
+    public ResponseEntity<IdempotencyStats> stats() {
+        return ResponseEntity.ok(idempotencyStore.stats());
+    }
+}
@@ -0,0 +1,38 @@
+package com.looktech.plutus.controller;
+
+import com.looktech.plutus.dto.ReconciliationReport;
+import com.looktech.plutus.service.ReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/admin/reconciliation")
+@RequiredArgsConstructor
+@Tag(name = "Reconciliation", description = "Credit reconciliation API endpoints")
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    @Operation(summary = "Run a reconciliation scan", description = "Verify summaries, ledgers and consumption details for all users and optionally repair drifted summaries")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Scan completed",
+                    content = @Content(schema = @Schema(implementation = ReconciliationReport.class))),
+        @ApiResponse(responseCode = "400", description = "A reconciliation is already running")
+    })
+    @PostMapping
+    public ResponseEntity<ReconciliationReport> reconcile(
+            @Parameter(description = "Reset drifted summaries to the ledger balance") @RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(reconciliationService.reconcile(repair));
+    }
+}
@@ -0,0 +1,24 @@
+package com.looktech.plutus.datasource;
+
+/**
+ * Set on bulk executor threads while they run a task, so that their writes use the bulk connection pool.
+ */
+public final class BulkConnectionScope {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private BulkConnectionScope() {
+    }
+
+    public static boolean isActive() {
+        return Boolean.TRUE.equals(ACTIVE.get());
+    }
+
+    public static void enter() {
+        ACTIVE.set(Boolean.TRUE);
+    }
+
+    public static void exit() {
+        ACTIVE.remove();
+    }
+}
@@ -0,0 +1,70 @@
+package com.looktech.plutus.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Adds the time spent waiting for pooled connections to the current thread's total, between {@link #begin}
+ * and {@link #end}. Failed attempts (pool timeouts) are counted too.
+ */
+public class ConnectionWaitTimingDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<long[]> WAIT_NANOS = new ThreadLocal<>();
+
+    public ConnectionWaitTimingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    /**
+     * Start timing on this thread.
+     * @return The previous total for {@link #end}, or null if this thread was not timing
+     */
+    public static long[] begin() {
+        long[] previous = WAIT_NANOS.get();
+        WAIT_NANOS.set(new long[1]);
+        return previous;
+    }
+
+    /**
+     * @return Nanoseconds spent waiting for connections since {@link #begin}
+     */
+    public static long end(long[] previous) {
+        long[] current = WAIT_NANOS.get();
+        if (previous == null) {
+            WAIT_NANOS.remove();
+        } else {
+            WAIT_NANOS.set(previous);
+        }
+        return current != null ? current[0] : 0;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return super.getConnection(username, password);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    private static void record(long nanos) {
+        long[] total = WAIT_NANOS.get();
+        if (total != null) {
+            total[0] += nanos;
+        }
+    }
+}
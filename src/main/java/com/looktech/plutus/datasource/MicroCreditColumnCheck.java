@@ -0,0 +1,91 @@
+package com.looktech.plutus.datasource;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks at startup that credit amount columns created before amounts were fixed at {@code numeric(18,6)} hold
+ * nothing micro-credits cannot represent. It never alters a table: the conversion rewrites each table under an
+ * exclusive lock and truncates money, so it is the offline script {@code db/offline/micro-credit-columns.sql},
+ * run in a maintenance window, which records every truncated amount and recomputes the summaries.
+ *
+ * <p>VALIDATE warns about each column not converted yet and fails startup if any amount has more than six
+ * decimals or more than twelve integer digits.
+ */
+@Slf4j
+@Component
+public class MicroCreditColumnCheck implements InitializingBean {
+
+    enum Mode {
+        VALIDATE,
+        OFF
+    }
+
+    /** Tables created later were created with the right type by Hibernate. */
+    private static final List<String[]> COLUMNS = List.of(
+            new String[]{"credit_ledgers", "remaining_amount"},
+            new String[]{"user_credit_summaries", "total_balance"},
+            new String[]{"credit_transaction_logs", "amount"},
+            new String[]{"credit_consumption_detail", "amount"},
+            new String[]{"credit_freeze", "amount"});
+
+    private static final long MAX_INTEGER_PART = 1_000_000_000_000L;
+
+    private final HikariDataSource primaryDataSource;
+
+    @Value("${credit.schema.micro-credit-columns:VALIDATE}")
+    private Mode mode;
+
+    public MicroCreditColumnCheck(HikariDataSource primaryDataSource) {
+        this.primaryDataSource = primaryDataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(primaryDataSource);
+        List<String> invalid = new ArrayList<>();
+        for (String[] column : COLUMNS) {
+            String table = column[0];
+            String name = column[1];
+            List<Map<String, Object>> type = jdbcTemplate.queryForList(
+                    "SELECT numeric_precision, numeric_scale FROM information_schema.columns " +
+                    "WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?", table, name);
+            if (type.isEmpty() || isMicroCreditType(type.get(0))) {
+                continue;
+            }
+            Long unrepresentable = jdbcTemplate.queryForObject(String.format(
+                    "SELECT count(*) FROM %s WHERE %s <> trunc(%s, %d) OR abs(%s) >= %d",
+                    table, name, name, MicroCredits.SCALE, name, MAX_INTEGER_PART), Long.class);
+            log.warn("Credit amount column is not numeric({},{}): {}.{}, rows micro-credits cannot hold={}",
+                    MicroCredits.PRECISION, MicroCredits.SCALE, table, name, unrepresentable);
+            if (unrepresentable != null && unrepresentable > 0) {
+                invalid.add(table + "." + name + " (" + unrepresentable + " rows)");
+            }
+        }
+        if (!invalid.isEmpty()) {
+            throw new IllegalStateException("Stored credit amounts do not fit numeric(" + MicroCredits.PRECISION + "," +
+                    MicroCredits.SCALE + "): " + String.join(", ", invalid) +
+                    "; run db/offline/micro-credit-columns.sql in a maintenance window");
+        }
+    }
+
+    private static boolean isMicroCreditType(Map<String, Object> type) {
+        Object precision = type.get("numeric_precision");
+        Object scale = type.get("numeric_scale");
+        return precision != null && scale != null
+                && ((Number) precision).intValue() == MicroCredits.PRECISION
+                && ((Number) scale).intValue() == MicroCredits.SCALE;
+    }
+}
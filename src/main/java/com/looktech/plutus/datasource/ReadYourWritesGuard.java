@@ -0,0 +1,80 @@
+package com.looktech.plutus.datasource;
+
+import com.looktech.plutus.config.ReplicaDataSourceProperties;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Remembers, across pods, which users wrote recently so their reads are served by the primary
+ * until the replicas have had time to catch up.
+ */
+@Component
+public class ReadYourWritesGuard {
+
+    private static final String KEY_PREFIX = "credit:recent-write:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final long windowSeconds;
+
+    public ReadYourWritesGuard(StringRedisTemplate redisTemplate, ReplicaDataSourceProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.windowSeconds = properties.getReadYourWritesSeconds();
+        this.enabled = windowSeconds > 0 && properties.getReplicaUrls().stream().anyMatch(StringUtils::hasText);
+    }
+
+    public void recordWrite(Long userId) {
+        recordWrites(List.of(userId));
+    }
+
+    /**
+     * Mark users as recently written. Inside a transaction the mark is set just before commit,
+     * so no reader can see the committed write on the primary without the mark being in place.
+     */
+    public void recordWrites(Collection<Long> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    mark(userIds);
+                }
+            });
+        } else {
+            mark(userIds);
+        }
+    }
+
+    public boolean hasRecentWrite(Collection<Long> userIds) {
+        if (!enabled || userIds.isEmpty()) {
+            return false;
+        }
+        if (userIds.size() == 1) {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + userIds.iterator().next()));
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            userIds.forEach(userId -> stringConnection.exists(KEY_PREFIX + userId));
+            return null;
+        });
+        return results.stream().anyMatch(Boolean.TRUE::equals);
+    }
+
+    private void mark(Collection<Long> userIds) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            userIds.forEach(userId -> stringConnection.setEx(KEY_PREFIX + userId, windowSeconds, "1"));
+            return null;
+        });
+    }
+}
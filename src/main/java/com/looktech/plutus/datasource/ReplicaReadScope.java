@@ -0,0 +1,37 @@
+package com.looktech.plutus.datasource;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Users whose data the current read-only call touches, consulted when a replica connection is about to be chosen.
+ */
+public final class ReplicaReadScope {
+
+    private static final ThreadLocal<Collection<Long>> USER_IDS = new ThreadLocal<>();
+
+    private ReplicaReadScope() {
+    }
+
+    public static Collection<Long> currentUserIds() {
+        Collection<Long> userIds = USER_IDS.get();
+        return userIds != null ? userIds : List.of();
+    }
+
+    /**
+     * Bind the given users to the current thread and return the previous binding for {@link #restore}.
+     */
+    public static Collection<Long> bind(Collection<Long> userIds) {
+        Collection<Long> previous = USER_IDS.get();
+        USER_IDS.set(userIds);
+        return previous;
+    }
+
+    public static void restore(Collection<Long> previous) {
+        if (previous == null) {
+            USER_IDS.remove();
+        } else {
+            USER_IDS.set(previous);
+        }
+    }
+}
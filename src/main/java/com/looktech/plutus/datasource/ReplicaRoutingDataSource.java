@@ -0,0 +1,75 @@
+package com.looktech.plutus.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas round-robin and everything else to the primary.
+ * Reads scoped to users with a recent write of their own stay on the primary. Bulk executor threads use
+ * their own pool for the primary so batch work cannot take interactive connections.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String BULK = "bulk";
+
+    private final List<HikariDataSource> replicas;
+    private final HikariDataSource bulk;
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final ReadYourWritesGuard readYourWritesGuard;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, HikariDataSource bulk,
+                                    ReadYourWritesGuard readYourWritesGuard) {
+        this.replicas = replicas;
+        this.bulk = bulk;
+        this.readYourWritesGuard = readYourWritesGuard;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        if (bulk != null) {
+            targets.put(BULK, bulk);
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            targets.put(key, replicas.get(i));
+            replicaKeys.add(key);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String primaryKey = bulk != null && BulkConnectionScope.isActive() ? BULK : PRIMARY;
+        if (replicaKeys.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primaryKey;
+        }
+        if (readYourWritesGuard.hasRecentWrite(ReplicaReadScope.currentUserIds())) {
+            return primaryKey;
+        }
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+
+    /**
+     * @return The bulk connection pool, or null when bulkheads are disabled
+     */
+    public HikariDataSource getBulk() {
+        return bulk;
+    }
+
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        if (bulk != null) {
+            bulk.close();
+        }
+    }
+}
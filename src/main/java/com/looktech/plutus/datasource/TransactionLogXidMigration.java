@@ -0,0 +1,48 @@
+package com.looktech.plutus.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Adds the {@code xid} column to an existing credit_transaction_logs table before Hibernate updates the schema.
+ * Left to Hibernate, the column would be added with its {@code txid_current()} default and rewrite the whole
+ * table; added with a constant default first, it is a catalog change only and existing rows read 0.
+ */
+@Slf4j
+@Component
+public class TransactionLogXidMigration implements InitializingBean {
+
+    private static final long ADVISORY_LOCK_KEY = 0x4c4f47584944L;
+
+    private final HikariDataSource primaryDataSource;
+
+    public TransactionLogXidMigration(HikariDataSource primaryDataSource) {
+        this.primaryDataSource = primaryDataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(primaryDataSource);
+        new TransactionTemplate(new DataSourceTransactionManager(primaryDataSource)).executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + ADVISORY_LOCK_KEY + ")");
+            Integer tables = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM information_schema.tables " +
+                    "WHERE table_schema = current_schema() AND table_name = 'credit_transaction_logs'", Integer.class);
+            Integer columns = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM information_schema.columns " +
+                    "WHERE table_schema = current_schema() AND table_name = 'credit_transaction_logs' AND column_name = 'xid'",
+                    Integer.class);
+            if (tables == null || tables == 0 || (columns != null && columns > 0)) {
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE credit_transaction_logs ADD COLUMN xid bigint NOT NULL DEFAULT 0");
+            jdbcTemplate.execute("ALTER TABLE credit_transaction_logs ALTER COLUMN xid SET DEFAULT txid_current()");
+            log.info("Added xid column to credit_transaction_logs");
+        });
+    }
+}
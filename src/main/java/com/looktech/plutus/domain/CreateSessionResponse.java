@@ -9,4 +9,5 @@ public class CreateSessionResponse {
     private Long userId;
     private BigDecimal amount;
     private String idempotencyId;
+    private BigDecimal balanceAfter;
 } 
\ No newline at end of file
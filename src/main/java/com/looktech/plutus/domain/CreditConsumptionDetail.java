@@ -1,5 +1,6 @@
 package com.looktech.plutus.domain;
 
+import com.looktech.plutus.allocation.MicroCredits;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -7,7 +8,10 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "credit_consumption_detail")
+@Table(name = "credit_consumption_detail", indexes = {
+    @Index(name = "idx_consumption_detail_ledger_id", columnList = "ledger_id"),
+    @Index(name = "idx_consumption_detail_transaction_id", columnList = "transaction_id")
+})
 public class CreditConsumptionDetail {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,7 +23,7 @@ public class CreditConsumptionDetail {
     @Column(name = "ledger_id", nullable = false)
     private Long ledgerId;
 
-    @Column(name = "amount", nullable = false)
+    @Column(name = "amount", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
     private BigDecimal amount;
 
     @Column(name = "created_at", nullable = false)
@@ -1,5 +1,6 @@
 package com.looktech.plutus.domain;
 
+import com.looktech.plutus.allocation.MicroCredits;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.math.BigDecimal;
@@ -7,7 +8,9 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "credit_freeze")
+@Table(name = "credit_freeze",
+        uniqueConstraints = @UniqueConstraint(name = "uk_credit_freeze_session_id", columnNames = "session_id"),
+        indexes = @Index(name = "idx_credit_freeze_user_expires", columnList = "user_id, expires_at"))
 public class CreditFreeze {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -15,10 +18,16 @@ public class CreditFreeze {
     
     private Long userId;
     private String sessionId;
+    @Column(precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
     private BigDecimal amount;
     private LocalDateTime expiresAt;
     private String requestId;
     private LocalDateTime createdAt;
+
+    /**
+     * When the freeze was settled or cancelled; null while active.
+     */
+    private LocalDateTime closedAt;
     
     @Enumerated(EnumType.STRING)
     private FreezeStatus status;
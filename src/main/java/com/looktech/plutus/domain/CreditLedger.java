@@ -1,5 +1,6 @@
 package com.looktech.plutus.domain;
 
+import com.looktech.plutus.allocation.MicroCredits;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -10,7 +11,9 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "credit_ledgers")
+@Table(name = "credit_ledgers", indexes = {
+    @Index(name = "idx_credit_ledgers_user_status_expires", columnList = "user_id, status, expires_at")
+})
 public class CreditLedger {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,7 +22,7 @@ public class CreditLedger {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
-    @Column(name = "remaining_amount", nullable = false)
+    @Column(name = "remaining_amount", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
     private BigDecimal remainingAmount;
 
     @Column(name = "status", nullable = false)
@@ -47,6 +50,7 @@ public class CreditLedger {
         ACTIVE,
         RESERVED,
         CONSUMED,
-        EXPIRED
+        EXPIRED,
+        MERGED
     }
 } 
\ No newline at end of file
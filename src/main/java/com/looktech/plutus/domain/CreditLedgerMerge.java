@@ -0,0 +1,44 @@
+package com.looktech.plutus.domain;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Provenance of ledger compaction: the remaining amount of {@code sourceLedgerId} was moved into {@code targetLedgerId}.
+ * Consumption details keep pointing at the original ledgers.
+ */
+@Data
+@Entity
+@Table(name = "credit_ledger_merges", indexes = {
+    @Index(name = "idx_ledger_merges_source", columnList = "source_ledger_id"),
+    @Index(name = "idx_ledger_merges_target", columnList = "target_ledger_id")
+})
+public class CreditLedgerMerge {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "source_ledger_id", nullable = false)
+    private Long sourceLedgerId;
+
+    @Column(name = "target_ledger_id", nullable = false)
+    private Long targetLedgerId;
+
+    @Column(name = "amount", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
+    private BigDecimal amount;
+
+    @Column(name = "source_expires_at")
+    private LocalDateTime sourceExpiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,29 @@
+package com.looktech.plutus.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A credit balance shared by the pool's members, split over {@code shardCount} shard accounts.
+ */
+@Data
+@Entity
+@Table(name = "credit_pools")
+public class CreditPool {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "shard_count", nullable = false)
+    private Integer shardCount;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
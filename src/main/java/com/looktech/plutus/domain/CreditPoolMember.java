@@ -0,0 +1,28 @@
+package com.looktech.plutus.domain;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "credit_pool_members",
+        uniqueConstraints = @UniqueConstraint(name = "uk_credit_pool_members_pool_user", columnNames = {"pool_id", "user_id"}),
+        indexes = @Index(name = "idx_credit_pool_members_user_id", columnList = "user_id"))
+public class CreditPoolMember {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "pool_id", nullable = false)
+    private Long poolId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,5 +1,7 @@
 package com.looktech.plutus.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.looktech.plutus.allocation.MicroCredits;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -10,7 +12,11 @@ import java.time.LocalDateTime;
 @Data
 @Entity
 @Table(name = "credit_transaction_logs", indexes = {
-    @Index(name = "idx_transaction_id", columnList = "transaction_id")
+    @Index(name = "idx_transaction_id", columnList = "transaction_id"),
+    @Index(name = "idx_transaction_logs_user_created", columnList = "user_id, created_at"),
+    @Index(name = "idx_transaction_logs_user_id", columnList = "user_id, id"),
+    @Index(name = "idx_transaction_logs_xid", columnList = "xid"),
+    @Index(name = "idx_transaction_logs_user_xid", columnList = "user_id, xid")
 })
 public class CreditTransactionLog {
     @Id
@@ -27,7 +33,7 @@ public class CreditTransactionLog {
     @Enumerated(EnumType.STRING)
     private TransactionType type;
 
-    @Column(name = "amount", nullable = false)
+    @Column(name = "amount", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
     private BigDecimal amount;
 
     @Column(name = "source_type")
@@ -46,11 +52,31 @@ public class CreditTransactionLog {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Postgres transaction that inserted the row, set by the column default; lets jobs tail the table in
+     * commit-safe order. Rows from before the column existed read 0.
+     */
+    @JsonIgnore
+    @Column(name = "xid", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint DEFAULT txid_current()")
+    private Long xid;
+
+    /**
+     * Available balance right after this transaction; only set on the instance returned by the mutation.
+     */
+    @Transient
+    private BigDecimal balanceAfter;
+
     public enum TransactionType {
         GRANT,
         RESERVE,
         CONSUME,
         CANCEL,
-        EXPIRE
+        EXPIRE,
+        /**
+         * Credits moved out of a pool shard to a sibling shard
+         */
+        TRANSFER_OUT,
+        TRANSFER_IN
     }
 } 
\ No newline at end of file
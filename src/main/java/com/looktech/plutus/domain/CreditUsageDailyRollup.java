@@ -0,0 +1,38 @@
+package com.looktech.plutus.domain;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Entity
+@Table(name = "credit_usage_daily_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_daily_rollup_bucket", columnNames = {"user_id", "bucket_date", "source_type", "transaction_type"})
+})
+public class CreditUsageDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "bucket_date", nullable = false)
+    private LocalDate bucketDate;
+
+    @Column(name = "source_type", nullable = false)
+    private String sourceType;
+
+    @Column(name = "transaction_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private CreditTransactionLog.TransactionType transactionType;
+
+    @Column(name = "total_amount", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
+    private BigDecimal totalAmount;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+}
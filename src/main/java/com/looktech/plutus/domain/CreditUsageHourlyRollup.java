@@ -0,0 +1,35 @@
+package com.looktech.plutus.domain;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "credit_usage_hourly_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_hourly_rollup_bucket", columnNames = {"bucket_hour", "source_type", "transaction_type"})
+})
+public class CreditUsageHourlyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "bucket_hour", nullable = false)
+    private LocalDateTime bucketHour;
+
+    @Column(name = "source_type", nullable = false)
+    private String sourceType;
+
+    @Column(name = "transaction_type", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private CreditTransactionLog.TransactionType transactionType;
+
+    @Column(name = "total_amount", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
+    private BigDecimal totalAmount;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+}
@@ -25,4 +25,7 @@ public class SettleSessionResponse {
 
     @Schema(description = "Transaction timestamp")
     private LocalDateTime createdAt;
+
+    @Schema(description = "Available balance after settlement")
+    private BigDecimal balanceAfter;
 } 
\ No newline at end of file
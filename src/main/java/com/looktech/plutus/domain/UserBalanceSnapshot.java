@@ -0,0 +1,48 @@
+package com.looktech.plutus.domain;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A user's available balance as of {@code takenAt}, counting the transaction logs created by then by transactions
+ * below {@code uptoXid}.
+ * Historical balances are answered from the nearest snapshot plus the logs and expiries after it.
+ */
+@Data
+@Entity
+@Table(name = "user_balance_snapshots", indexes = {
+    @Index(name = "idx_user_balance_snapshots_user_taken", columnList = "user_id, taken_at")
+})
+public class UserBalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+
+    /**
+     * Highest log id counted. Snapshots without {@code uptoXid} were written by id and count the logs up to it.
+     */
+    @Column(name = "last_log_id", nullable = false)
+    private Long lastLogId;
+
+    /**
+     * Exclusive bound on the inserting transaction of the logs counted, or null for snapshots written by id.
+     */
+    @Column(name = "upto_xid")
+    private Long uptoXid;
+
+    @Column(name = "available_balance", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
+    private BigDecimal availableBalance;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
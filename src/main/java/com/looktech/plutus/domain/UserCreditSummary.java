@@ -1,5 +1,6 @@
 package com.looktech.plutus.domain;
 
+import com.looktech.plutus.allocation.MicroCredits;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -19,12 +20,18 @@ public class UserCreditSummary {
     @Column(name = "user_id", nullable = false, unique = true)
     private Long userId;
 
-    @Column(name = "total_balance", nullable = false)
+    @Column(name = "total_balance", nullable = false, precision = MicroCredits.PRECISION, scale = MicroCredits.SCALE)
     private BigDecimal totalBalance;
 
     @Version
     private Long version;
 
+    /**
+     * Highest slot fencing token that has mutated this user; only used with {@code credit.cluster.enabled}
+     */
+    @Column(name = "fence_token")
+    private Long fenceToken;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
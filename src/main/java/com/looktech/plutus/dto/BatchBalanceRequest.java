@@ -0,0 +1,13 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Schema(description = "Batch balance lookup request")
+public class BatchBalanceRequest {
+    @Schema(description = "List of user IDs")
+    private List<Long> userIds;
+}
@@ -0,0 +1,16 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@Builder
+@Schema(description = "Batch balance lookup response")
+public class BatchBalanceResponse {
+    @Schema(description = "Available balance keyed by user ID")
+    private Map<Long, BigDecimal> balances;
+}
@@ -29,6 +29,9 @@ public class BatchCreditGrantResponse {
         @Schema(description = "User ID")
         private Long userId;
 
+        @Schema(description = "Idempotency ID of the failed item")
+        private String idempotencyId;
+
         @Schema(description = "Error code")
         private String errorCode;
 
@@ -0,0 +1,31 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@Schema(description = "Outcome of one item of a streamed batch grant, written as one NDJSON line")
+public class BatchGrantItemResult {
+    @Schema(description = "Zero-based position of the item in the request stream")
+    private long index;
+
+    @Schema(description = "User ID")
+    private Long userId;
+
+    @Schema(description = "Idempotency ID of the item")
+    private String idempotencyId;
+
+    @Schema(description = "Whether the credits were granted")
+    private boolean success;
+
+    @Schema(description = "Grant result, when successful")
+    private CreditGrantResponse result;
+
+    @Schema(description = "Error code, when failed")
+    private String errorCode;
+
+    @Schema(description = "Error message, when failed")
+    private String errorMessage;
+}
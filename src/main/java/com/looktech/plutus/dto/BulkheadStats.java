@@ -0,0 +1,44 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Saturation of one bulkhead")
+public class BulkheadStats {
+    @Schema(description = "Bulkhead name: interactive or bulk")
+    private String name;
+
+    @Schema(description = "Executor threads running a task; not reported for the interactive bulkhead")
+    private Integer activeThreads;
+
+    @Schema(description = "Executor thread limit")
+    private Integer maxThreads;
+
+    @Schema(description = "Tasks waiting for a thread")
+    private Integer queued;
+
+    @Schema(description = "Queue capacity")
+    private Integer queueCapacity;
+
+    @Schema(description = "Tasks completed since startup")
+    private Long completed;
+
+    @Schema(description = "Tasks rejected because the queue was full")
+    private Long rejected;
+
+    @Schema(description = "Tasks that waited for interactive pressure to clear before starting")
+    private Long deferred;
+
+    @Schema(description = "Connections in use")
+    private int activeConnections;
+
+    @Schema(description = "Idle connections")
+    private int idleConnections;
+
+    @Schema(description = "Connection pool size limit")
+    private int maxConnections;
+
+    @Schema(description = "Threads waiting for a connection")
+    private int threadsAwaitingConnection;
+}
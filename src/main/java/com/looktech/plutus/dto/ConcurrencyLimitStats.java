@@ -0,0 +1,27 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@Builder
+@Schema(description = "State of the adaptive concurrency limiter")
+public class ConcurrencyLimitStats {
+    @Schema(description = "Current concurrency limit")
+    private int limit;
+
+    @Schema(description = "Calls currently admitted")
+    private int inFlight;
+
+    @Schema(description = "Long-term average latency in milliseconds")
+    private double longRttMillis;
+
+    @Schema(description = "Latency of the last sampled call in milliseconds")
+    private double lastRttMillis;
+
+    @Schema(description = "Calls shed since startup, by priority")
+    private Map<String, Long> shed;
+}
@@ -0,0 +1,49 @@
+package com.looktech.plutus.dto;
+
+import com.looktech.plutus.domain.CreditTransactionLog;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@Schema(description = "Credit usage analytics response")
+public class ConsumptionAnalyticsResponse {
+    @Schema(description = "User ID, or null for all users")
+    private Long userId;
+
+    @Schema(description = "Bucket granularity")
+    private Granularity granularity;
+
+    @Schema(description = "Usage buckets ordered by start time")
+    private List<Bucket> buckets;
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    @Data
+    @Builder
+    @Schema(description = "Usage within one time bucket")
+    public static class Bucket {
+        @Schema(description = "Bucket start time")
+        private LocalDateTime bucketStart;
+
+        @Schema(description = "Source type")
+        private String sourceType;
+
+        @Schema(description = "Transaction type")
+        private CreditTransactionLog.TransactionType transactionType;
+
+        @Schema(description = "Total amount")
+        private BigDecimal totalAmount;
+
+        @Schema(description = "Number of transactions")
+        private long transactionCount;
+    }
+}
@@ -33,6 +33,9 @@ public class CreditGrantResponse {
     @Schema(description = "Transaction time")
     private LocalDateTime createdAt;
 
+    @Schema(description = "Available balance after the grant")
+    private BigDecimal balanceAfter;
+
     public static CreditGrantResponse fromTransactionLog(CreditTransactionLog log) {
         return CreditGrantResponse.builder()
                 .transactionId(log.getTransactionId())
@@ -41,6 +44,7 @@ public class CreditGrantResponse {
                 .sourceType(log.getSourceType())
                 .sourceId(log.getSourceId())
                 .createdAt(log.getCreatedAt())
+                .balanceAfter(log.getBalanceAfter())
                 .build();
     }
 } 
\ No newline at end of file
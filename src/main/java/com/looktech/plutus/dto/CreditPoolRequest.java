@@ -0,0 +1,14 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+@Data
+@Schema(description = "Credit pool creation request")
+public class CreditPoolRequest {
+    @Schema(description = "Pool name")
+    private String name;
+
+    @Schema(description = "Number of shards the balance is split over; more shards allow more concurrent deducts")
+    private Integer shardCount;
+}
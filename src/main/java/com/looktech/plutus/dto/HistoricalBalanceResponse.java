@@ -0,0 +1,28 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@Schema(description = "Available balance of a user at a point in time")
+public class HistoricalBalanceResponse {
+    @Schema(description = "User ID")
+    private Long userId;
+
+    @Schema(description = "Point in time the balance is for")
+    private LocalDateTime at;
+
+    @Schema(description = "Available balance at that time")
+    private BigDecimal balance;
+
+    @Schema(description = "Time of the snapshot the balance was rolled forward from, or null if none was taken before it")
+    private LocalDateTime snapshotTakenAt;
+
+    @Schema(description = "Number of transaction logs replayed on top of the snapshot")
+    private long replayedLogs;
+}
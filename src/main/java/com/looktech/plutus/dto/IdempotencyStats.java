@@ -0,0 +1,70 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@Schema(description = "Idempotency store sizing and false positive report")
+public class IdempotencyStats {
+    @Schema(description = "Store mode, KEYS or BLOOM")
+    private String mode;
+
+    @Schema(description = "Span of one Bloom filter in seconds")
+    private long bucketSeconds;
+
+    @Schema(description = "Filters covering the window, including the current one")
+    private int buckets;
+
+    @Schema(description = "Bits per filter")
+    private long bitsPerBucket;
+
+    @Schema(description = "Hash functions per filter")
+    private int hashFunctions;
+
+    @Schema(description = "Insertions one filter is sized for")
+    private long expectedPerBucket;
+
+    @Schema(description = "IDs claimed on this pod since startup")
+    private long acquired;
+
+    @Schema(description = "Claims rejected by an exact key or in-flight marker")
+    private long duplicates;
+
+    @Schema(description = "Claims the filters reported as probable duplicates")
+    private long probableDuplicates;
+
+    @Schema(description = "Probable duplicates whose original was found")
+    private long confirmedDuplicates;
+
+    @Schema(description = "Probable duplicates without an original")
+    private long falsePositives;
+
+    @Schema(description = "False positives per claim observed on this pod")
+    private double observedFalsePositiveRate;
+
+    @Schema(description = "False positive rate implied by how full the filters are")
+    private double estimatedFalsePositiveRate;
+
+    @Schema(description = "IDs in the window, estimated from filter fill")
+    private long estimatedEntries;
+
+    @Schema(description = "Redis memory of the filters in bytes")
+    private long filterBytes;
+
+    @Schema(description = "Heap used by this pod's copy of past filters in bytes")
+    private long mirrorBytes;
+
+    @Schema(description = "Estimated Redis memory of in-flight markers in bytes")
+    private long inFlightKeyBytes;
+
+    @Schema(description = "Estimated Redis memory the same IDs would take as 24h keys in KEYS mode")
+    private long keysModeBytes;
+
+    @Schema(description = "Average claim latency in microseconds, per call")
+    private double avgAcquireMicros;
+
+    @Schema(description = "Slowest claim in microseconds")
+    private double maxAcquireMicros;
+}
@@ -0,0 +1,22 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@Schema(description = "Available balance of a credit pool")
+public class PoolBalanceResponse {
+    @Schema(description = "Pool ID")
+    private Long poolId;
+
+    @Schema(description = "Available balance of the whole pool")
+    private BigDecimal balance;
+
+    @Schema(description = "Available balance of each shard, by shard index")
+    private List<BigDecimal> shards;
+}
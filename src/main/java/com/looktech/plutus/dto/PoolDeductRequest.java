@@ -0,0 +1,26 @@
+package com.looktech.plutus.dto;
+
+import com.looktech.plutus.enums.SourceType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Schema(description = "Pool credit deduct request")
+public class PoolDeductRequest {
+    @Schema(description = "ID of the member spending the credits")
+    private Long userId;
+
+    @Schema(description = "Credit amount")
+    private BigDecimal amount;
+
+    @Schema(description = "Source type of the consumption")
+    private SourceType sourceType;
+
+    @Schema(description = "Source ID of the consumption")
+    private String sourceId;
+
+    @Schema(description = "Unique ID for idempotency")
+    private String idempotencyId;
+}
@@ -0,0 +1,64 @@
+package com.looktech.plutus.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@Schema(description = "Credit reconciliation report")
+public class ReconciliationReport {
+    @Schema(description = "Scan start time")
+    private LocalDateTime startedAt;
+
+    @Schema(description = "Scan duration in milliseconds")
+    private long durationMillis;
+
+    @Schema(description = "Lowest user ID covered")
+    private Long fromUserId;
+
+    @Schema(description = "Highest user ID covered")
+    private Long toUserId;
+
+    @Schema(description = "Number of user ID ranges scanned")
+    private long rangesScanned;
+
+    @Schema(description = "Number of users whose summary differs from their ledgers")
+    private long summaryDriftCount;
+
+    @Schema(description = "Number of users whose ledger consumption differs from the consumption details")
+    private long consumptionDriftCount;
+
+    @Schema(description = "Number of summaries repaired")
+    private long repairedCount;
+
+    @Schema(description = "Drifted users, truncated to the configured report limit")
+    private List<Drift> drifts;
+
+    @Data
+    @Builder
+    @Schema(description = "Drift found for a single user")
+    public static class Drift {
+        @Schema(description = "User ID")
+        private Long userId;
+
+        @Schema(description = "UserCreditSummary.totalBalance")
+        private BigDecimal summaryBalance;
+
+        @Schema(description = "Sum of remaining amounts over the user's ledgers")
+        private BigDecimal ledgerBalance;
+
+        @Schema(description = "Sum of granted amounts in the transaction log")
+        private BigDecimal grantedAmount;
+
+        @Schema(description = "Sum of consumption details over the user's ledgers")
+        private BigDecimal consumedAmount;
+
+        @Schema(description = "Whether the summary was repaired")
+        private boolean repaired;
+    }
+}
@@ -1,5 +1,9 @@
 package com.looktech.plutus.exception;
 
+import com.looktech.plutus.bulkhead.BulkheadFullException;
+import com.looktech.plutus.cluster.NotSlotOwnerException;
+import com.looktech.plutus.limit.OverloadedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -23,6 +27,42 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * 421 tells the caller this instance cannot serve the user; Location points at the owner when known.
+     */
+    @ExceptionHandler(NotSlotOwnerException.class)
+    public ResponseEntity<Map<String, Object>> handleNotSlotOwner(NotSlotOwnerException ex) {
+        log.warn("Request for a user owned by another instance: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", ex.getCode());
+        response.put("message", ex.getMessage());
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(421);
+        if (ex.getOwnerUrl() != null) {
+            builder.header(HttpHeaders.LOCATION, ex.getOwnerUrl());
+        }
+        return builder.body(response);
+    }
+
+    @ExceptionHandler(OverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleOverloaded(OverloadedException ex) {
+        log.warn("Request shed: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", ex.getCode());
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response);
+    }
+
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<Map<String, Object>> handleBulkheadFull(BulkheadFullException ex) {
+        log.warn("Bulk work rejected: {}", ex.getMessage());
+        Map<String, Object> response = new HashMap<>();
+        response.put("code", ex.getCode());
+        response.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(response);
+    }
+
     @ExceptionHandler(Exception.class)
 public ResponseEntity<Map<String, Object>> handleException(Exception ex) {        
         log.error("Unexpected error occurred", ex);
@@ -0,0 +1,53 @@
+package com.looktech.plutus.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("credit.idempotency")
+public class IdempotencyProperties {
+    /**
+     * KEYS by default; BLOOM is an opt-in rollout, see {@link Mode#BLOOM}
+     */
+    private Mode mode = Mode.KEYS;
+    /**
+     * How long an idempotency ID is remembered
+     */
+    private Duration window = Duration.ofHours(24);
+    /**
+     * Span of one Bloom filter; the window is covered by this many rotating filters plus the current one
+     */
+    private Duration bucket = Duration.ofHours(1);
+    /**
+     * Insertions one filter is sized for
+     */
+    private long expectedPerBucket = 2_000_000;
+    /**
+     * False positive rate of one filter at its expected insertions
+     */
+    private double falsePositiveRate = 0.001;
+    /**
+     * Lifetime of the exact marker that blocks concurrent duplicates while the first call is still running.
+     * Must exceed the longest credit transaction and the mirror refresh interval.
+     */
+    private Duration inFlightTtl = Duration.ofMinutes(5);
+    /**
+     * Approximate Redis memory of one 24h key in KEYS mode, for the sizing report
+     */
+    private int keyBytes = 100;
+
+    public enum Mode {
+        /**
+         * One Redis key per idempotency ID, kept for the whole window
+         */
+        KEYS,
+        /**
+         * Rotating Bloom filters as a negative pre-check; probable duplicates are checked against the database.
+         * For one window after it is first enabled every repeated ID costs a database lookup, and each pod keeps
+         * local copies of the past filters (about 90MB at the default sizing).
+         */
+        BLOOM
+    }
+}
@@ -0,0 +1,385 @@
+package com.looktech.plutus.idempotency;
+
+import com.looktech.plutus.dto.IdempotencyStats;
+import com.looktech.plutus.util.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Idempotency IDs of grants, deducts and session calls.
+ *
+ * <p>In KEYS mode every ID is a Redis key kept for the whole window. In BLOOM mode IDs go into one Bloom filter
+ * (a Redis bitmap) per time bucket. The current bucket is tested and updated in Redis by one script; earlier
+ * buckets no longer change and are tested against a local copy. A short-lived exact marker still blocks concurrent
+ * duplicates, so only a probable duplicate needs the caller to look for the original in the database.
+ *
+ * <p>A duplicate arriving later than the marker's lifetime needs the original's bucket in the local copy. Each
+ * bucket keeps being reloaded until the marker lifetime has passed after its end, and a copy not loaded late enough
+ * for the lookup counts as a probable duplicate. So do buckets from before BLOOM mode was first enabled.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(IdempotencyProperties.class)
+public class IdempotencyStore {
+
+    private static final String IN_FLIGHT_PREFIX = "credit:idem:inflight:";
+    // Renamed whenever the bit offsets change; a filter written with other offsets would miss every ID in it
+    private static final String BUCKET_PREFIX = "credit:idem:bloom2:";
+    private static final String SINCE_KEY = "credit:idem:bloom2:since";
+
+    // KEYS: bucket bitmap; ARGV: ttl seconds, bit offsets. Returns 1 if every bit was already set
+    private static final byte[] TEST_AND_ADD_SCRIPT = """
+            local present = 1
+            for i = 2, #ARGV do
+                if redis.call('SETBIT', KEYS[1], ARGV[i], 1) == 0 then
+                    present = 0
+                end
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return present
+            """.getBytes(StandardCharsets.UTF_8);
+
+    public enum Outcome {
+        NEW,
+        /**
+         * Possibly seen before; the caller checks for the original and goes ahead if there is none
+         */
+        PROBABLE_DUPLICATE,
+        DUPLICATE
+    }
+
+    private record Mirror(byte[] bits, long setBits, long loadedAtMillis) {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final IdempotencyProperties properties;
+    private final long bucketMillis;
+    private final int pastBuckets;
+    private final long bitsPerBucket;
+    private final int hashFunctions;
+    private final Map<Long, Mirror> mirrors = new ConcurrentHashMap<>();
+    private volatile Long sinceBucket;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder probable = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder confirmedDuplicates = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+    public IdempotencyStore(RedisTemplate<String, Object> redisTemplate, IdempotencyProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.bucketMillis = properties.getBucket().toMillis();
+        this.pastBuckets = (int) Math.ceil((double) properties.getWindow().toMillis() / bucketMillis);
+        // Standard sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hash functions
+        double n = properties.getExpectedPerBucket();
+        this.bitsPerBucket = (long) Math.ceil(-n * Math.log(properties.getFalsePositiveRate()) / (Math.log(2) * Math.log(2)));
+        this.hashFunctions = Math.max(1, (int) Math.round(bitsPerBucket / n * Math.log(2)));
+        if (bitsPerBucket > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Idempotency Bloom filter too large: " + bitsPerBucket + " bits per bucket");
+        }
+    }
+
+    /**
+     * Claim an idempotency ID.
+     * @param operation Operation name, e.g. {@code grant} or {@code session:settle}
+     * @param key ID within the operation, e.g. {@code <userId>:<idempotencyId>}
+     */
+    public Outcome acquire(String operation, String key) {
+        return acquireAll(operation, List.of(key)).get(0);
+    }
+
+    /**
+     * Claim several idempotency IDs in one pipelined round trip.
+     */
+    public List<Outcome> acquireAll(String operation, List<String> keys) {
+        long start = System.nanoTime();
+        List<Outcome> outcomes = properties.getMode() == IdempotencyProperties.Mode.BLOOM
+                ? acquireBloom(operation, keys)
+                : acquireKeys(operation, keys);
+        long elapsed = System.nanoTime() - start;
+        acquired.add(keys.size());
+        acquireNanos.add(elapsed);
+        maxAcquireNanos.accumulateAndGet(elapsed, Math::max);
+        for (Outcome outcome : outcomes) {
+            if (outcome == Outcome.PROBABLE_DUPLICATE) {
+                probable.increment();
+            } else if (outcome == Outcome.DUPLICATE) {
+                duplicates.increment();
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Report what the caller found for a probable duplicate, for the false positive rate in {@link #stats()}.
+     */
+    public void recordExactCheck(boolean duplicate) {
+        (duplicate ? confirmedDuplicates : falsePositives).increment();
+    }
+
+    /**
+     * Forget a claim whose operation failed, so the client can retry with the same ID. In BLOOM mode the ID stays
+     * in the filter and the retry is checked against the database.
+     */
+    public void release(String operation, String key) {
+        redisTemplate.delete(claimKey(operation, key));
+    }
+
+    /**
+     * Release {@code keys} once the current transaction completes without committing, so a retry of work that
+     * rolled back is not rejected as a duplicate for the whole window.
+     */
+    public void releaseUnlessCommitted(String operation, Collection<String> keys) {
+        if (keys.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    return;
+                }
+                try {
+                    redisTemplate.delete(keys.stream().map(key -> claimKey(operation, key)).toList());
+                } catch (RuntimeException e) {
+                    log.warn("Idempotency release after rollback failed: operation={}, keys={}, error={}",
+                            operation, keys.size(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    private String claimKey(String operation, String key) {
+        return properties.getMode() == IdempotencyProperties.Mode.BLOOM
+                ? IN_FLIGHT_PREFIX + operation + ":" + key
+                : "credit:" + operation + ":" + key;
+    }
+
+    private List<Outcome> acquireKeys(String operation, List<String> keys) {
+        long ttlSeconds = properties.getWindow().toSeconds();
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.stringCommands().set(bytes("credit:" + operation + ":" + key), bytes("1"),
+                        Expiration.seconds(ttlSeconds), RedisStringCommands.SetOption.SET_IF_ABSENT);
+            }
+            return null;
+        });
+        List<Outcome> outcomes = new ArrayList<>(keys.size());
+        for (Object result : results) {
+            outcomes.add(Boolean.TRUE.equals(result) ? Outcome.NEW : Outcome.DUPLICATE);
+        }
+        return outcomes;
+    }
+
+    private List<Outcome> acquireBloom(String operation, List<String> keys) {
+        long now = System.currentTimeMillis();
+        long current = now / bucketMillis;
+        byte[] bucketKey = bytes(BUCKET_PREFIX + current);
+        byte[] bucketTtl = bytes(String.valueOf(properties.getWindow().plus(properties.getBucket().multipliedBy(2)).toSeconds()));
+        long inFlightSeconds = properties.getInFlightTtl().toSeconds();
+        List<long[]> offsets = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            offsets.add(offsets(operation + ":" + key));
+        }
+
+        // The exact marker and the filter update are separate commands so they may live on different cluster nodes
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < keys.size(); i++) {
+                connection.stringCommands().set(bytes(IN_FLIGHT_PREFIX + operation + ":" + keys.get(i)), bytes("1"),
+                        Expiration.seconds(inFlightSeconds), RedisStringCommands.SetOption.SET_IF_ABSENT);
+                long[] bits = offsets.get(i);
+                byte[][] args = new byte[bits.length + 2][];
+                args[0] = bucketKey;
+                args[1] = bucketTtl;
+                for (int j = 0; j < bits.length; j++) {
+                    args[j + 2] = bytes(String.valueOf(bits[j]));
+                }
+                connection.scriptingCommands().eval(TEST_AND_ADD_SCRIPT, ReturnType.INTEGER, 1, args);
+            }
+            return null;
+        });
+
+        List<Outcome> outcomes = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (!Boolean.TRUE.equals(results.get(2 * i))) {
+                outcomes.add(Outcome.DUPLICATE);
+            } else if (Long.valueOf(1).equals(results.get(2 * i + 1)) || inPastBuckets(offsets.get(i), current, now)) {
+                outcomes.add(Outcome.PROBABLE_DUPLICATE);
+            } else {
+                outcomes.add(Outcome.NEW);
+            }
+        }
+        return outcomes;
+    }
+
+    private boolean inPastBuckets(long[] offsets, long current, long now) {
+        Long since = sinceBucket;
+        for (long bucket = current - 1; bucket >= current - pastBuckets; bucket--) {
+            if (since == null || bucket < since) {
+                return true;
+            }
+            Mirror mirror = mirrors.get(bucket);
+            // The copy must have been loaded after anything a lookup now could miss from the in-flight marker
+            long needed = Math.min((bucket + 1) * bucketMillis, now - properties.getInFlightTtl().toMillis());
+            if (mirror == null || mirror.loadedAtMillis() < needed) {
+                return true;
+            }
+            boolean present = true;
+            for (long offset : offsets) {
+                if (!isSet(mirror.bits(), offset)) {
+                    present = false;
+                    break;
+                }
+            }
+            if (present) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${credit.idempotency.mirror-refresh-ms:30000}")
+    public void refreshMirrors() {
+        if (properties.getMode() != IdempotencyProperties.Mode.BLOOM) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long current = now / bucketMillis;
+        try {
+            if (sinceBucket == null) {
+                redisTemplate.opsForValue().setIfAbsent(SINCE_KEY, String.valueOf(current));
+                Object since = redisTemplate.opsForValue().get(SINCE_KEY);
+                sinceBucket = since != null ? Long.valueOf(since.toString()) : null;
+            }
+            mirrors.keySet().removeIf(bucket -> bucket < current - pastBuckets);
+            for (long bucket = current - pastBuckets; bucket < current; bucket++) {
+                Mirror mirror = mirrors.get(bucket);
+                long settledAt = (bucket + 1) * bucketMillis + properties.getInFlightTtl().toMillis();
+                if (mirror == null || mirror.loadedAtMillis() < settledAt) {
+                    mirrors.put(bucket, load(bucket));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Idempotency filter refresh failed, older buckets count as probable duplicates: error={}", e.getMessage());
+        }
+    }
+
+    private Mirror load(long bucket) {
+        long loadedAt = System.currentTimeMillis();
+        byte[] raw = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(bytes(BUCKET_PREFIX + bucket)));
+        byte[] bits = new byte[(int) ((bitsPerBucket + 7) / 8)];
+        long setBits = 0;
+        if (raw != null) {
+            System.arraycopy(raw, 0, bits, 0, Math.min(raw.length, bits.length));
+            for (byte b : bits) {
+                setBits += Integer.bitCount(b & 0xFF);
+            }
+        }
+        return new Mirror(bits, setBits, loadedAt);
+    }
+
+    /**
+     * Sizing and false positive report. Entry counts are estimated from how full each filter is.
+     */
+    public IdempotencyStats stats() {
+        long bucketBytes = (bitsPerBucket + 7) / 8;
+        IdempotencyStats.IdempotencyStatsBuilder stats = IdempotencyStats.builder()
+                .mode(properties.getMode().name())
+                .bucketSeconds(properties.getBucket().toSeconds())
+                .buckets(pastBuckets + 1)
+                .bitsPerBucket(bitsPerBucket)
+                .hashFunctions(hashFunctions)
+                .expectedPerBucket(properties.getExpectedPerBucket())
+                .acquired(acquired.sum())
+                .duplicates(duplicates.sum())
+                .probableDuplicates(probable.sum())
+                .confirmedDuplicates(confirmedDuplicates.sum())
+                .falsePositives(falsePositives.sum())
+                .avgAcquireMicros(acquired.sum() == 0 ? 0 : acquireNanos.sum() / 1_000.0 / acquired.sum())
+                .maxAcquireMicros(maxAcquireNanos.get() / 1_000.0);
+        stats.observedFalsePositiveRate(acquired.sum() == 0 ? 0 : (double) falsePositives.sum() / acquired.sum());
+        if (properties.getMode() != IdempotencyProperties.Mode.BLOOM) {
+            return stats.build();
+        }
+
+        long current = System.currentTimeMillis() / bucketMillis;
+        Long currentSetBits = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.stringCommands().bitCount(bytes(BUCKET_PREFIX + current)));
+        List<Long> setBits = new ArrayList<>();
+        setBits.add(currentSetBits != null ? currentSetBits : 0);
+        long mirrorBytes = 0;
+        for (Mirror mirror : mirrors.values()) {
+            setBits.add(mirror.setBits());
+            mirrorBytes += mirror.bits().length;
+        }
+        double entries = 0;
+        double notFalsePositive = 1;
+        for (long bits : setBits) {
+            double fill = (double) bits / bitsPerBucket;
+            entries += fill >= 1 ? Double.POSITIVE_INFINITY : -bitsPerBucket / (double) hashFunctions * Math.log(1 - fill);
+            notFalsePositive *= 1 - Math.pow(fill, hashFunctions);
+        }
+        double inFlightShare = (double) properties.getInFlightTtl().toMillis() / properties.getWindow().toMillis();
+        return stats
+                .estimatedEntries((long) entries)
+                .estimatedFalsePositiveRate(1 - notFalsePositive)
+                .filterBytes(bucketBytes * (pastBuckets + 1))
+                .mirrorBytes(mirrorBytes)
+                .inFlightKeyBytes((long) (entries * inFlightShare * properties.getKeyBytes()))
+                .keysModeBytes((long) entries * properties.getKeyBytes())
+                .build();
+    }
+
+    /**
+     * Bit offsets of an element by double hashing: {@code h1 + i * h2} for the {@code k} hash functions.
+     */
+    long[] offsets(String element) {
+        long h1 = fnv1a(element.getBytes(StandardCharsets.UTF_8));
+        long h2 = Hashing.fmix64(h1) | 1;
+        long[] offsets = new long[hashFunctions];
+        for (int i = 0; i < hashFunctions; i++) {
+            offsets[i] = Math.floorMod(h1 + i * h2, bitsPerBucket);
+        }
+        return offsets;
+    }
+
+    // Redis bitmaps number bits from the most significant bit of the first byte
+    private static boolean isSet(byte[] bits, long offset) {
+        return (bits[(int) (offset >>> 3)] & (0x80 >>> (offset & 7))) != 0;
+    }
+
+    private static long fnv1a(byte[] data) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : data) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return Hashing.fmix64(hash);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+package com.looktech.plutus.job;
+
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.domain.JobCheckpoint;
+import com.looktech.plutus.repository.CreditTransactionLogRepository;
+import com.looktech.plutus.repository.JobCheckpointRepository;
+import com.looktech.plutus.repository.UserBalanceSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Tails credit_transaction_logs by inserting transaction id and writes a balance snapshot for every user with new
+ * logs, so a historical balance query only replays the logs since the user's last change. Only transactions below
+ * the oldest one still running are taken, as in {@link CreditRollupJob}, so a log committed after later ids never
+ * falls behind a snapshot. Users without activity keep their last snapshot.
+ */
+@Slf4j
+@Component
+public class BalanceSnapshotJob {
+
+    private static final String CHECKPOINT_NAME = "balance-snapshot-xid";
+
+    /** Checkpoint of the former id-tailing job; moved to Long.MAX_VALUE once this job takes over from it. */
+    private static final String LEGACY_CHECKPOINT_NAME = "balance-snapshot";
+
+    private final CreditTransactionLogRepository transactionLogRepository;
+    private final UserBalanceSnapshotRepository snapshotRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${credit.balance-snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${credit.balance-snapshot.batch-size:20000}")
+    private int batchSize;
+
+    @Value("${credit.balance-snapshot.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    public BalanceSnapshotJob(CreditTransactionLogRepository transactionLogRepository,
+                              UserBalanceSnapshotRepository snapshotRepository,
+                              JobCheckpointRepository jobCheckpointRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.transactionLogRepository = transactionLogRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${credit.balance-snapshot.interval-ms:900000}")
+    @BulkWork
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        // Every batch of a run snapshots as of the same time; logs created after it are left for the replay
+        LocalDateTime takenAt = LocalDateTime.now();
+        int batches = 0;
+        int snapshots = 0;
+        while (batches < maxBatchesPerRun) {
+            Integer written = transactionTemplate.execute(status -> snapshotNextBatch(takenAt));
+            if (written == null) {
+                break;
+            }
+            batches++;
+            snapshots += written;
+        }
+        if (batches > 0) {
+            log.debug("Balance snapshots advanced {} batch(es), {} snapshot(s) written", batches, snapshots);
+        }
+    }
+
+    private Integer snapshotNextBatch(LocalDateTime takenAt) {
+        jobCheckpointRepository.insertIfAbsent(CHECKPOINT_NAME);
+        JobCheckpoint checkpoint = jobCheckpointRepository.findByNameForUpdate(CHECKPOINT_NAME)
+                .orElseThrow(() -> new IllegalStateException("Checkpoint not found: " + CHECKPOINT_NAME));
+
+        long horizon = transactionLogRepository.findCommittedXidHorizon();
+        Optional<JobCheckpoint> legacy = jobCheckpointRepository.findByNameForUpdate(LEGACY_CHECKPOINT_NAME)
+                .filter(c -> c.getLastId() != Long.MAX_VALUE);
+        if (legacy.isPresent()) {
+            return takeOver(legacy.get(), checkpoint, horizon) ? 0 : null;
+        }
+
+        long fromXid = checkpoint.getLastId();
+        Long toXid = transactionLogRepository.findXidBatchUpperBound(fromXid, horizon, batchSize);
+        if (toXid == null) {
+            return null;
+        }
+
+        int written = snapshotRepository.snapshotChangedUsers(fromXid, toXid, takenAt);
+        checkpoint.setLastId(toXid);
+        jobCheckpointRepository.save(checkpoint);
+        return written;
+    }
+
+    /**
+     * Switch from the id checkpoint to the transaction id one, starting right above the highest transaction among
+     * the logs up to the id checkpoint. Snapshots written by id stay valid: rolling one forward counts the logs
+     * past its id, and every log up to it is below the new start.
+     * @return false if a transaction below the new start is still running; the switch is retried next run
+     */
+    private boolean takeOver(JobCheckpoint legacy, JobCheckpoint checkpoint, long horizon) {
+        long legacyId = legacy.getLastId();
+        Long maxXid = transactionLogRepository.findMaxXidUpToId(legacyId);
+        long startXid = maxXid != null ? maxXid + 1 : 0;
+        if (startXid > horizon) {
+            return false;
+        }
+
+        checkpoint.setLastId(startXid);
+        jobCheckpointRepository.save(checkpoint);
+        // Stops pods still running the id-tailing job
+        legacy.setLastId(Long.MAX_VALUE);
+        jobCheckpointRepository.save(legacy);
+        log.info("Balance snapshots switched to transaction id checkpoint: lastId={}, startXid={}", legacyId, startXid);
+        return true;
+    }
+}
@@ -0,0 +1,124 @@
+package com.looktech.plutus.job;
+
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.domain.JobCheckpoint;
+import com.looktech.plutus.repository.CreditTransactionLogRepository;
+import com.looktech.plutus.repository.CreditUsageDailyRollupRepository;
+import com.looktech.plutus.repository.CreditUsageHourlyRollupRepository;
+import com.looktech.plutus.repository.JobCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Tails credit_transaction_logs by inserting transaction id and folds new rows into the usage rollups. Only
+ * transactions below the oldest one still running are taken, so a transaction that commits long after its rows
+ * got their ids is still counted. The rollup upserts and the checkpoint advance commit together, so every log row
+ * is counted exactly once even with several pods running.
+ */
+@Slf4j
+@Component
+public class CreditRollupJob {
+
+    private static final String CHECKPOINT_NAME = "credit-usage-rollup-xid";
+
+    /** Checkpoint of the former id-tailing rollup; moved to Long.MAX_VALUE once this job takes over from it. */
+    private static final String LEGACY_CHECKPOINT_NAME = "credit-usage-rollup";
+
+    private final CreditTransactionLogRepository transactionLogRepository;
+    private final CreditUsageDailyRollupRepository dailyRollupRepository;
+    private final CreditUsageHourlyRollupRepository hourlyRollupRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${credit.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${credit.rollup.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${credit.rollup.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    public CreditRollupJob(CreditTransactionLogRepository transactionLogRepository,
+                           CreditUsageDailyRollupRepository dailyRollupRepository,
+                           CreditUsageHourlyRollupRepository hourlyRollupRepository,
+                           JobCheckpointRepository jobCheckpointRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.transactionLogRepository = transactionLogRepository;
+        this.dailyRollupRepository = dailyRollupRepository;
+        this.hourlyRollupRepository = hourlyRollupRepository;
+        this.jobCheckpointRepository = jobCheckpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${credit.rollup.interval-ms:60000}")
+    @BulkWork
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        int batches = 0;
+        while (batches < maxBatchesPerRun && Boolean.TRUE.equals(transactionTemplate.execute(status -> rollupNextBatch()))) {
+            batches++;
+        }
+        if (batches > 0) {
+            log.debug("Credit usage rollup advanced {} batch(es)", batches);
+        }
+    }
+
+    private boolean rollupNextBatch() {
+        jobCheckpointRepository.insertIfAbsent(CHECKPOINT_NAME);
+        JobCheckpoint checkpoint = jobCheckpointRepository.findByNameForUpdate(CHECKPOINT_NAME)
+                .orElseThrow(() -> new IllegalStateException("Checkpoint not found: " + CHECKPOINT_NAME));
+
+        long horizon = transactionLogRepository.findCommittedXidHorizon();
+        Optional<JobCheckpoint> legacy = jobCheckpointRepository.findByNameForUpdate(LEGACY_CHECKPOINT_NAME)
+                .filter(c -> c.getLastId() != Long.MAX_VALUE);
+        if (legacy.isPresent()) {
+            return takeOver(legacy.get(), checkpoint, horizon);
+        }
+
+        long fromXid = checkpoint.getLastId();
+        Long toXid = transactionLogRepository.findXidBatchUpperBound(fromXid, horizon, batchSize);
+        if (toXid == null) {
+            return false;
+        }
+
+        dailyRollupRepository.rollupTransactionLogs(fromXid, toXid, 0);
+        hourlyRollupRepository.rollupTransactionLogs(fromXid, toXid, 0);
+        checkpoint.setLastId(toXid);
+        jobCheckpointRepository.save(checkpoint);
+        return true;
+    }
+
+    /**
+     * Switch from the id checkpoint to the transaction id one. Logs up to the id checkpoint were rolled up by
+     * id; the transaction id checkpoint starts right above the highest transaction among them, and the logs past
+     * the id checkpoint from transactions below that are rolled up here.
+     * @return false if a transaction below the new start is still running; the switch is retried next run
+     */
+    private boolean takeOver(JobCheckpoint legacy, JobCheckpoint checkpoint, long horizon) {
+        long legacyId = legacy.getLastId();
+        Long maxXid = transactionLogRepository.findMaxXidUpToId(legacyId);
+        long startXid = maxXid != null ? maxXid + 1 : 0;
+        if (startXid > horizon) {
+            return false;
+        }
+
+        dailyRollupRepository.rollupTransactionLogs(0, startXid, legacyId);
+        hourlyRollupRepository.rollupTransactionLogs(0, startXid, legacyId);
+        checkpoint.setLastId(startXid);
+        jobCheckpointRepository.save(checkpoint);
+        // Stops pods still running the id-tailing rollup
+        legacy.setLastId(Long.MAX_VALUE);
+        jobCheckpointRepository.save(legacy);
+        log.info("Credit usage rollup switched to transaction id checkpoint: lastId={}, startXid={}", legacyId, startXid);
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+package com.looktech.plutus.job;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.domain.CreditLedger;
+import com.looktech.plutus.domain.CreditLedgerMerge;
+import com.looktech.plutus.repository.CreditLedgerMergeRepository;
+import com.looktech.plutus.repository.CreditLedgerRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges a user's active ledgers that share a source type and expiry time into one of them, so no credit's
+ * validity changes. With an expiry bucket set, ledgers of a source type expiring within the bucket after the
+ * earliest one are merged into that earliest ledger instead: fewer rows remain, but merged credits expire up to
+ * a bucket earlier than granted.
+ * Each user is compacted in its own short transaction that only takes row locks nobody else holds, so live
+ * deductions are never blocked by it and rows they hold are simply left for the next run.
+ */
+@Slf4j
+@Component
+public class LedgerCompactionJob {
+
+    private final CreditLedgerRepository creditLedgerRepository;
+    private final CreditLedgerMergeRepository creditLedgerMergeRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${credit.compaction.enabled:false}")
+    private boolean enabled;
+
+    @Value("${credit.compaction.min-ledgers:20}")
+    private int minLedgers;
+
+    @Value("${credit.compaction.user-batch-size:500}")
+    private int userBatchSize;
+
+    @Value("${credit.compaction.expiry-bucket:0}")
+    private Duration expiryBucket;
+
+    public LedgerCompactionJob(CreditLedgerRepository creditLedgerRepository,
+                               CreditLedgerMergeRepository creditLedgerMergeRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.creditLedgerRepository = creditLedgerRepository;
+        this.creditLedgerMergeRepository = creditLedgerMergeRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${credit.compaction.cron:0 30 3 * * *}")
+    @BulkWork
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        long usersCompacted = 0;
+        long ledgersMerged = 0;
+        Long afterUserId = 0L;
+        while (true) {
+            List<Long> userIds = creditLedgerRepository.findUserIdsWithActiveLedgerCountAtLeast(
+                    minLedgers, afterUserId, LocalDateTime.now(), userBatchSize);
+            for (Long userId : userIds) {
+                Integer merged = transactionTemplate.execute(status -> compactUser(userId));
+                // A merge keeps the available balance, so cached balances stay valid
+                if (merged != null && merged > 0) {
+                    usersCompacted++;
+                    ledgersMerged += merged;
+                }
+            }
+            if (userIds.size() < userBatchSize) {
+                break;
+            }
+            afterUserId = userIds.get(userIds.size() - 1);
+        }
+        log.info("Ledger compaction finished: usersCompacted={}, ledgersMerged={}", usersCompacted, ledgersMerged);
+    }
+
+    /**
+     * @return Number of ledgers merged into another ledger
+     */
+    private int compactUser(Long userId) {
+        List<CreditLedger> ledgers = creditLedgerRepository.lockActiveLedgersSkipLocked(userId, LocalDateTime.now());
+
+        // Ledgers come in expiry order, so each group starts with its earliest ledger
+        List<List<CreditLedger>> groups = new ArrayList<>();
+        Map<String, List<CreditLedger>> openGroups = new HashMap<>();
+        for (CreditLedger ledger : ledgers) {
+            List<CreditLedger> group = openGroups.get(ledger.getSourceType());
+            if (group == null || !inGroup(group.get(0), ledger)) {
+                group = new ArrayList<>();
+                groups.add(group);
+                openGroups.put(ledger.getSourceType(), group);
+            }
+            group.add(ledger);
+        }
+
+        List<CreditLedger> changed = new ArrayList<>();
+        List<CreditLedgerMerge> merges = new ArrayList<>();
+        for (List<CreditLedger> group : groups) {
+            if (group.size() < 2) {
+                continue;
+            }
+            CreditLedger target = group.get(0);
+            long total = MicroCredits.ofStored(target.getRemainingAmount());
+            for (CreditLedger source : group.subList(1, group.size())) {
+                total += MicroCredits.ofStored(source.getRemainingAmount());
+
+                CreditLedgerMerge merge = new CreditLedgerMerge();
+                merge.setUserId(userId);
+                merge.setSourceLedgerId(source.getId());
+                merge.setTargetLedgerId(target.getId());
+                merge.setAmount(source.getRemainingAmount());
+                merge.setSourceExpiresAt(source.getExpiresAt());
+                merges.add(merge);
+
+                source.setRemainingAmount(BigDecimal.ZERO);
+                source.setStatus(CreditLedger.CreditStatus.MERGED);
+                changed.add(source);
+            }
+            target.setRemainingAmount(MicroCredits.toBigDecimal(total));
+            changed.add(target);
+        }
+
+        if (!merges.isEmpty()) {
+            creditLedgerRepository.saveAll(changed);
+            creditLedgerMergeRepository.saveAll(merges);
+        }
+        return merges.size();
+    }
+
+    private boolean inGroup(CreditLedger first, CreditLedger ledger) {
+        if (expiryBucket.isZero()) {
+            return ledger.getExpiresAt().equals(first.getExpiresAt());
+        }
+        return ledger.getExpiresAt().isBefore(first.getExpiresAt().plus(expiryBucket));
+    }
+}
@@ -0,0 +1,129 @@
+package com.looktech.plutus.limit;
+
+import com.looktech.plutus.annotation.AdaptiveLimit;
+import com.looktech.plutus.dto.ConcurrencyLimitStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit estimated from latency, in the style of a gradient limiter: the limit follows
+ * {@code limit * (tolerance * longRtt / rtt) + sqrt(limit)}, so it grows while latency stays near its long-term
+ * average and shrinks as requests start to queue. Waiting for a database connection is a direct overload
+ * signal and cuts the limit multiplicatively.
+ *
+ * <p>Each priority may only fill its share of the limit, so under overload LOW calls are shed first and
+ * CRITICAL calls last.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<AdaptiveLimit.Priority, AtomicLong> shed = new EnumMap<>(AdaptiveLimit.Priority.class);
+
+    private volatile double limit;
+    private double longRttNanos;
+    private double lastRttNanos;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        for (AdaptiveLimit.Priority priority : AdaptiveLimit.Priority.values()) {
+            shed.put(priority, new AtomicLong());
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Take a slot, or shed the call.
+     * @throws OverloadedException if this priority's share of the limit is in use
+     */
+    public void acquire(AdaptiveLimit.Priority priority) {
+        double allowed = limit * properties.getPriorityShares().getOrDefault(priority, 1.0);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                shed.get(priority).incrementAndGet();
+                throw new OverloadedException(properties.getRetryAfterSeconds());
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Free the slot without a sample.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Free the slot and feed the call's latency and connection wait into the limit.
+     */
+    public void release(long rttNanos, long poolWaitNanos) {
+        int concurrency = inFlight.getAndDecrement();
+        update(rttNanos, poolWaitNanos, concurrency);
+    }
+
+    public ConcurrencyLimitStats stats() {
+        Map<String, Long> shedByPriority = new LinkedHashMap<>();
+        shed.forEach((priority, count) -> shedByPriority.put(priority.name(), count.get()));
+        synchronized (this) {
+            return ConcurrencyLimitStats.builder()
+                    .limit((int) limit)
+                    .inFlight(inFlight.get())
+                    .longRttMillis(longRttNanos / 1_000_000)
+                    .lastRttMillis(lastRttNanos / 1_000_000)
+                    .shed(shedByPriority)
+                    .build();
+        }
+    }
+
+    private synchronized void update(long rttNanos, long poolWaitNanos, int concurrency) {
+        if (poolWaitNanos > TimeUnit.MILLISECONDS.toNanos(properties.getPoolWaitThresholdMillis())) {
+            setLimit(limit * properties.getBackoffRatio());
+            return;
+        }
+        if (rttNanos <= 0) {
+            return;
+        }
+        lastRttNanos = rttNanos;
+        longRttNanos = longRttNanos == 0
+                ? rttNanos
+                : longRttNanos + (rttNanos - longRttNanos) / properties.getLongWindow();
+        // After a latency regression clears, let the long-term average catch up instead of holding the limit down
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+        // With most of the limit unused the latency says nothing about a higher limit
+        if (concurrency < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / rttNanos));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        setLimit(limit * (1 - properties.getSmoothing()) + estimate * properties.getSmoothing());
+    }
+
+    private void setLimit(double newLimit) {
+        double clamped = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+        if ((int) clamped != (int) limit) {
+            log.debug("Concurrency limit changed: {} -> {}", (int) limit, (int) clamped);
+        }
+        limit = clamped;
+    }
+}
@@ -0,0 +1,51 @@
+package com.looktech.plutus.limit;
+
+import com.looktech.plutus.annotation.AdaptiveLimit;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties("credit.concurrency-limit")
+public class ConcurrencyLimitProperties {
+    private boolean enabled = true;
+    private int initialLimit = 50;
+    private int minLimit = 10;
+    private int maxLimit = 500;
+    /**
+     * How far a new limit estimate moves the current limit, 0..1
+     */
+    private double smoothing = 0.2;
+    /**
+     * Latency may grow by this factor over its long-term average before the limit starts to shrink
+     */
+    private double rttTolerance = 1.5;
+    /**
+     * Number of samples the long-term latency average spans
+     */
+    private int longWindow = 600;
+    /**
+     * A call that waited longer than this for a database connection shrinks the limit immediately
+     */
+    private long poolWaitThresholdMillis = 50;
+    /**
+     * Multiplicative decrease applied on a pool wait over the threshold
+     */
+    private double backoffRatio = 0.9;
+    private int retryAfterSeconds = 1;
+    /**
+     * Share of the limit each priority may fill
+     */
+    private Map<AdaptiveLimit.Priority, Double> priorityShares = defaultShares();
+
+    private static Map<AdaptiveLimit.Priority, Double> defaultShares() {
+        Map<AdaptiveLimit.Priority, Double> shares = new EnumMap<>(AdaptiveLimit.Priority.class);
+        shares.put(AdaptiveLimit.Priority.CRITICAL, 1.0);
+        shares.put(AdaptiveLimit.Priority.HIGH, 0.9);
+        shares.put(AdaptiveLimit.Priority.NORMAL, 0.75);
+        shares.put(AdaptiveLimit.Priority.LOW, 0.5);
+        return shares;
+    }
+}
@@ -0,0 +1,18 @@
+package com.looktech.plutus.limit;
+
+import com.looktech.plutus.exception.CreditException;
+import lombok.Getter;
+
+/**
+ * The call was shed because the service is at its concurrency limit for the call's priority.
+ */
+@Getter
+public class OverloadedException extends CreditException {
+
+    private final int retryAfterSeconds;
+
+    public OverloadedException(int retryAfterSeconds) {
+        super("SERVICE_OVERLOADED", "Service is overloaded, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
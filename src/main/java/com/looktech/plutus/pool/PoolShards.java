@@ -0,0 +1,40 @@
+package com.looktech.plutus.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards of a credit pool are credit accounts of their own, with negative IDs so they never collide with a user.
+ * Each shard has its own ledgers and summary row, so deducts on different shards of one pool do not contend.
+ */
+public final class PoolShards {
+
+    public static final int MAX_SHARDS = 1024;
+
+    private PoolShards() {
+    }
+
+    public static long accountId(long poolId, int shard) {
+        return -(poolId * MAX_SHARDS + shard + 1);
+    }
+
+    public static List<Long> accountIds(long poolId, int shardCount) {
+        List<Long> accountIds = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            accountIds.add(accountId(poolId, shard));
+        }
+        return accountIds;
+    }
+
+    public static boolean isShard(Long accountId) {
+        return accountId != null && accountId < 0;
+    }
+
+    public static long poolIdOf(long accountId) {
+        return (-accountId - 1) / MAX_SHARDS;
+    }
+
+    public static int shardOf(long accountId) {
+        return (int) ((-accountId - 1) % MAX_SHARDS);
+    }
+}
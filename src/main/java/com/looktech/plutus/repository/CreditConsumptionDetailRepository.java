@@ -7,7 +7,8 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface CreditConsumptionDetailRepository extends JpaRepository<CreditConsumptionDetail, Long> {
+public interface CreditConsumptionDetailRepository extends JpaRepository<CreditConsumptionDetail, Long>,
+        CreditConsumptionDetailRepositoryCustom {
     List<CreditConsumptionDetail> findByTransactionId(String transactionId);
     List<CreditConsumptionDetail> findByLedgerId(Long ledgerId);
 } 
\ No newline at end of file
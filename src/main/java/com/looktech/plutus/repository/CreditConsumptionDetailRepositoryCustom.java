@@ -0,0 +1,14 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditConsumptionDetail;
+
+import java.util.List;
+
+public interface CreditConsumptionDetailRepositoryCustom {
+
+    /**
+     * Insert details in one JDBC batch. IDENTITY ids keep Hibernate from batching inserts, and a deduct writes
+     * one detail per ledger it touches. Generated ids are not read back.
+     */
+    void insertAll(List<CreditConsumptionDetail> details);
+}
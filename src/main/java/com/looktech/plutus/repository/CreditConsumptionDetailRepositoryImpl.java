@@ -0,0 +1,35 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditConsumptionDetail;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CreditConsumptionDetailRepositoryImpl implements CreditConsumptionDetailRepositoryCustom {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO credit_consumption_detail (transaction_id, ledger_id, amount, created_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CreditConsumptionDetailRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void insertAll(List<CreditConsumptionDetail> details) {
+        if (details.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, details, details.size(), (ps, detail) -> {
+            ps.setString(1, detail.getTransactionId());
+            ps.setLong(2, detail.getLedgerId());
+            ps.setBigDecimal(3, detail.getAmount());
+            ps.setTimestamp(4, detail.getCreatedAt() != null ? Timestamp.valueOf(detail.getCreatedAt()) : now);
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditLedgerMerge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CreditLedgerMergeRepository extends JpaRepository<CreditLedgerMerge, Long> {
+    List<CreditLedgerMerge> findBySourceLedgerId(Long sourceLedgerId);
+    List<CreditLedgerMerge> findByTargetLedgerId(Long targetLedgerId);
+}
@@ -2,12 +2,11 @@ package com.looktech.plutus.repository;
 
 import com.looktech.plutus.domain.CreditLedger;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import jakarta.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.math.BigDecimal;
@@ -15,19 +14,84 @@ import java.math.BigDecimal;
 @Repository
 public interface CreditLedgerRepository extends JpaRepository<CreditLedger, Long> {
     
-    List<CreditLedger> findByUserIdAndStatusAndExpiresAtAfterOrderByExpiresAtAsc(
-            Long userId, 
-            CreditLedger.CreditStatus status, 
-            LocalDateTime now);
-    
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT c FROM CreditLedger c WHERE c.id = :id")
-    Optional<CreditLedger> findByIdWithLock(@Param("id") Long id);
-    
     @Query("SELECT SUM(c.remainingAmount) FROM CreditLedger c " +
            "WHERE c.userId = :userId AND c.status = :status AND c.expiresAt > :now")
     Optional<BigDecimal> sumRemainingAmountByUserIdAndStatusAndNotExpired(
             @Param("userId") Long userId,
             @Param("status") CreditLedger.CreditStatus status,
             @Param("now") LocalDateTime now);
-} 
\ No newline at end of file
+
+    /**
+     * Available balance (active ledgers minus active freezes) for many users in one grouped aggregate.
+     * Each row is {@code [user_id, available, next_expiry]}, where {@code next_expiry} is the earliest expiry
+     * among the counted rows; users without any active ledger or freeze are omitted.
+     */
+    @Query(value = "SELECT t.user_id, SUM(t.amount), MIN(t.expires_at) FROM (" +
+           "  SELECT l.user_id, l.remaining_amount AS amount, l.expires_at FROM credit_ledgers l " +
+           "  WHERE l.user_id IN (:userIds) AND l.status = 'ACTIVE' AND l.expires_at > :now " +
+           "  UNION ALL " +
+           "  SELECT f.user_id, -f.amount AS amount, f.expires_at FROM credit_freeze f " +
+           "  WHERE f.user_id IN (:userIds) AND f.status = 'ACTIVE' AND f.expires_at > :now" +
+           ") t GROUP BY t.user_id",
+           nativeQuery = true)
+    List<Object[]> sumAvailableAmountGroupByUserId(
+            @Param("userIds") Collection<Long> userIds,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Users holding at least {@code minLedgers} active ledgers, in user ID order after {@code afterUserId}.
+     */
+    @Query(value = "SELECT l.user_id FROM credit_ledgers l " +
+                   "WHERE l.status = 'ACTIVE' AND l.expires_at > :now AND l.user_id > :afterUserId " +
+                   "GROUP BY l.user_id HAVING COUNT(*) >= :minLedgers " +
+                   "ORDER BY l.user_id LIMIT :limit",
+           nativeQuery = true)
+    List<Long> findUserIdsWithActiveLedgerCountAtLeast(
+            @Param("minLedgers") int minLedgers,
+            @Param("afterUserId") Long afterUserId,
+            @Param("now") LocalDateTime now,
+            @Param("limit") int limit);
+
+    /**
+     * Lock the next {@code limit} active ledgers of a user in FEFO order after the keyset cursor
+     * {@code (afterExpiresAt, afterId)}; start from {@code (now, 0)}. A row another transaction consumed while
+     * this one waited for its lock is re-checked against the filter and left out.
+     */
+    @Query(value = "SELECT * FROM credit_ledgers " +
+                   "WHERE user_id = :userId AND status = 'ACTIVE' AND expires_at > :now " +
+                   "AND (expires_at, id) > (:afterExpiresAt, :afterId) " +
+                   "ORDER BY expires_at, id LIMIT :limit FOR UPDATE",
+           nativeQuery = true)
+    List<CreditLedger> lockActiveLedgersAfter(
+            @Param("userId") Long userId,
+            @Param("now") LocalDateTime now,
+            @Param("afterExpiresAt") LocalDateTime afterExpiresAt,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit);
+
+    /**
+     * Like {@link #lockActiveLedgersAfter}, but skipping rows another transaction holds instead of waiting.
+     */
+    @Query(value = "SELECT * FROM credit_ledgers " +
+                   "WHERE user_id = :userId AND status = 'ACTIVE' AND expires_at > :now " +
+                   "AND (expires_at, id) > (:afterExpiresAt, :afterId) " +
+                   "ORDER BY expires_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<CreditLedger> lockActiveLedgersAfterSkipLocked(
+            @Param("userId") Long userId,
+            @Param("now") LocalDateTime now,
+            @Param("afterExpiresAt") LocalDateTime afterExpiresAt,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit);
+
+    /**
+     * Lock a user's active ledgers in FEFO order, skipping rows a live deduction holds.
+     */
+    @Query(value = "SELECT * FROM credit_ledgers " +
+                   "WHERE user_id = :userId AND status = 'ACTIVE' AND expires_at > :now " +
+                   "ORDER BY expires_at, id FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<CreditLedger> lockActiveLedgersSkipLocked(
+            @Param("userId") Long userId,
+            @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,23 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditPoolMember;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CreditPoolMemberRepository extends JpaRepository<CreditPoolMember, Long> {
+
+    boolean existsByPoolIdAndUserId(Long poolId, Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO credit_pool_members (pool_id, user_id, created_at) VALUES (:poolId, :userId, now()) " +
+                   "ON CONFLICT (pool_id, user_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("poolId") Long poolId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM CreditPoolMember m WHERE m.poolId = :poolId AND m.userId = :userId")
+    int deleteByPoolIdAndUserId(@Param("poolId") Long poolId, @Param("userId") Long userId);
+}
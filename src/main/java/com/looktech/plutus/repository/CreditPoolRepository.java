@@ -0,0 +1,9 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditPool;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CreditPoolRepository extends JpaRepository<CreditPool, Long> {
+}
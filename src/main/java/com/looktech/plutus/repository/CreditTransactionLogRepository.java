@@ -4,16 +4,46 @@ import com.looktech.plutus.domain.CreditTransactionLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
-public interface CreditTransactionLogRepository extends JpaRepository<CreditTransactionLog, Long> {
+public interface CreditTransactionLogRepository extends JpaRepository<CreditTransactionLog, Long>,
+        CreditTransactionLogRepositoryCustom {
     
     Optional<CreditTransactionLog> findByTransactionId(String transactionId);
     
     Page<CreditTransactionLog> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
     Optional<CreditTransactionLog> findBySourceId(String sourceId);
-} 
\ No newline at end of file
+    
+    /**
+     * Oldest transaction still running; every transaction below it has committed or rolled back, so its rows
+     * are final and visible to statements that start afterwards.
+     */
+    @Query(value = "SELECT txid_snapshot_xmin(txid_current_snapshot())", nativeQuery = true)
+    long findCommittedXidHorizon();
+
+    /**
+     * Exclusive upper bound of the next batch of at most about {@code batchSize} logs inserted by transactions
+     * {@code fromXid <= xid < horizon}; a transaction's rows are never split across batches.
+     */
+    @Query(value = "SELECT MAX(b.xid) + 1 FROM (" +
+                   "  SELECT xid FROM credit_transaction_logs " +
+                   "  WHERE xid >= :fromXid AND xid < :horizon ORDER BY xid LIMIT :batchSize" +
+                   ") b", nativeQuery = true)
+    Long findXidBatchUpperBound(
+            @Param("fromXid") long fromXid,
+            @Param("horizon") long horizon,
+            @Param("batchSize") int batchSize);
+
+    /**
+     * Highest inserting transaction among logs up to {@code maxId}, or null if there are none.
+     */
+    @Query(value = "SELECT xid FROM credit_transaction_logs WHERE id <= :maxId ORDER BY xid DESC LIMIT 1",
+           nativeQuery = true)
+    Long findMaxXidUpToId(@Param("maxId") long maxId);
+}
@@ -0,0 +1,11 @@
+package com.looktech.plutus.repository;
+
+public interface CreditTransactionLogRepositoryCustom {
+
+    /**
+     * Take the next value of the transaction log id sequence without inserting a row, together with the current
+     * Postgres transaction id, in one statement.
+     * @return {@code {version, xid}}
+     */
+    long[] allocateVersion();
+}
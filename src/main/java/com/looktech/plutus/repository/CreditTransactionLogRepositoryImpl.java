@@ -0,0 +1,22 @@
+package com.looktech.plutus.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+public class CreditTransactionLogRepositoryImpl implements CreditTransactionLogRepositoryCustom {
+
+    private static final String ALLOCATE_VERSION_SQL =
+            "SELECT nextval(pg_get_serial_sequence('credit_transaction_logs', 'id')), txid_current()";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CreditTransactionLogRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public long[] allocateVersion() {
+        return jdbcTemplate.queryForObject(ALLOCATE_VERSION_SQL, (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+    }
+}
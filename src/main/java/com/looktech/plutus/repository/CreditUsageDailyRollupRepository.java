@@ -0,0 +1,36 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditUsageDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CreditUsageDailyRollupRepository extends JpaRepository<CreditUsageDailyRollup, Long> {
+
+    List<CreditUsageDailyRollup> findByUserIdAndBucketDateBetweenOrderByBucketDateAsc(
+            Long userId,
+            LocalDate from,
+            LocalDate to);
+
+    /**
+     * Fold transaction logs inserted by transactions {@code fromXid <= xid < toXid}, and with {@code id > afterId},
+     * into the per-user daily rollup.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO credit_usage_daily_rollups " +
+                   "  (user_id, bucket_date, source_type, transaction_type, total_amount, transaction_count) " +
+                   "SELECT user_id, CAST(created_at AS date), COALESCE(source_type, ''), type, SUM(amount), COUNT(*) " +
+                   "FROM credit_transaction_logs WHERE xid >= :fromXid AND xid < :toXid AND id > :afterId " +
+                   "GROUP BY user_id, CAST(created_at AS date), COALESCE(source_type, ''), type " +
+                   "ON CONFLICT (user_id, bucket_date, source_type, transaction_type) DO UPDATE SET " +
+                   "  total_amount = credit_usage_daily_rollups.total_amount + EXCLUDED.total_amount, " +
+                   "  transaction_count = credit_usage_daily_rollups.transaction_count + EXCLUDED.transaction_count",
+           nativeQuery = true)
+    int rollupTransactionLogs(@Param("fromXid") long fromXid, @Param("toXid") long toXid, @Param("afterId") long afterId);
+}
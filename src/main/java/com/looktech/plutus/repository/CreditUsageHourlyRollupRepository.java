@@ -0,0 +1,37 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.CreditUsageHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CreditUsageHourlyRollupRepository extends JpaRepository<CreditUsageHourlyRollup, Long> {
+
+    @Query("SELECT r FROM CreditUsageHourlyRollup r " +
+           "WHERE r.bucketHour >= :from AND r.bucketHour < :to ORDER BY r.bucketHour")
+    List<CreditUsageHourlyRollup> findByBucketHourRange(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    /**
+     * Fold transaction logs inserted by transactions {@code fromXid <= xid < toXid}, and with {@code id > afterId},
+     * into the global hourly rollup.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO credit_usage_hourly_rollups " +
+                   "  (bucket_hour, source_type, transaction_type, total_amount, transaction_count) " +
+                   "SELECT date_trunc('hour', created_at), COALESCE(source_type, ''), type, SUM(amount), COUNT(*) " +
+                   "FROM credit_transaction_logs WHERE xid >= :fromXid AND xid < :toXid AND id > :afterId " +
+                   "GROUP BY date_trunc('hour', created_at), COALESCE(source_type, ''), type " +
+                   "ON CONFLICT (bucket_hour, source_type, transaction_type) DO UPDATE SET " +
+                   "  total_amount = credit_usage_hourly_rollups.total_amount + EXCLUDED.total_amount, " +
+                   "  transaction_count = credit_usage_hourly_rollups.transaction_count + EXCLUDED.transaction_count",
+           nativeQuery = true)
+    int rollupTransactionLogs(@Param("fromXid") long fromXid, @Param("toXid") long toXid, @Param("afterId") long afterId);
+}
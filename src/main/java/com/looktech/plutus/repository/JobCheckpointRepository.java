@@ -0,0 +1,28 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.JobCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO job_checkpoints (name, last_id, updated_at) VALUES (:name, 0, now()) " +
+                   "ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    void insertIfAbsent(@Param("name") String name);
+
+    /**
+     * Lock the checkpoint so that only one pod advances a job at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM JobCheckpoint j WHERE j.name = :name")
+    Optional<JobCheckpoint> findByNameForUpdate(@Param("name") String name);
+}
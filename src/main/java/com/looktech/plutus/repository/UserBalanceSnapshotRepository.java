@@ -0,0 +1,17 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.UserBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface UserBalanceSnapshotRepository extends JpaRepository<UserBalanceSnapshot, Long>,
+        UserBalanceSnapshotRepositoryCustom {
+
+    Optional<UserBalanceSnapshot> findFirstByUserIdAndTakenAtLessThanEqualOrderByTakenAtDescLastLogIdDesc(
+            Long userId,
+            LocalDateTime at);
+}
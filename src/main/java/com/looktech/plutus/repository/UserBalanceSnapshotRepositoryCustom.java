@@ -0,0 +1,26 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.UserBalanceSnapshot;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface UserBalanceSnapshotRepositoryCustom {
+
+    /**
+     * Snapshot every user with transaction logs inserted by transactions {@code fromXid <= xid < toXid}, rolling
+     * their latest snapshot forward to {@code takenAt} and transaction {@code toXid}.
+     * @return Number of snapshots written
+     */
+    int snapshotChangedUsers(long fromXid, long toXid, LocalDateTime takenAt);
+
+    /**
+     * Roll a snapshot forward to {@code at}: the logs after it created up to {@code at}, and the ledgers and
+     * freezes that expired in between.
+     * @param snapshot Starting snapshot, or null to replay the user's whole history
+     */
+    BalanceReplay replay(Long userId, UserBalanceSnapshot snapshot, LocalDateTime at);
+
+    record BalanceReplay(BigDecimal balance, long replayedLogs) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.looktech.plutus.repository;
+
+import com.looktech.plutus.domain.UserBalanceSnapshot;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+public class UserBalanceSnapshotRepositoryImpl implements UserBalanceSnapshotRepositoryCustom {
+
+    /**
+     * Start of history for users without a snapshot; no ledger or freeze expires before it.
+     */
+    private static final String NO_SNAPSHOT_TIME = "TIMESTAMP '1970-01-01 00:00:00'";
+
+    /**
+     * Balance of {@code p} rolled forward from {@code (p.from_xid, p.taken_at)} to {@code (p.upto_xid, p.upto_time)}.
+     * A session's RESERVE holds the freeze amount until the freeze is settled, cancelled or expires, whichever comes
+     * first, so settles and cancels only give it back when they happen before the freeze's expiry. Consumption and
+     * transfers out count what was taken from ledgers, which can be less than the logged amount. An expired ledger's remaining amount and
+     * a closed freeze's closing time no longer change, so the expiry terms can read the current rows.
+     */
+    private static final String ROLL_FORWARD_SQL =
+            "p.balance + COALESCE(r.delta, 0) " +
+            "  - COALESCE((SELECT SUM(l.remaining_amount) FROM credit_ledgers l " +
+            "      WHERE l.user_id = p.user_id AND l.status = 'ACTIVE' " +
+            "        AND l.expires_at > p.taken_at AND l.expires_at <= p.upto_time), 0) " +
+            "  + COALESCE((SELECT SUM(f.amount) FROM credit_freeze f " +
+            "      WHERE f.user_id = p.user_id AND f.expires_at > p.taken_at AND f.expires_at <= p.upto_time " +
+            "        AND (f.status = 'ACTIVE' OR f.closed_at >= f.expires_at)), 0)";
+
+    /**
+     * Logs of {@code p.user_id} inside the new bound and outside the starting snapshot. A snapshot counts the logs
+     * created up to its {@code taken_at} by transactions below its {@code upto_xid}; snapshots written before
+     * {@code upto_xid} existed (null {@code from_xid}) count the logs up to their {@code last_log_id} instead.
+     */
+    private static final String LOG_REPLAY_SQL =
+            "LEFT JOIN LATERAL (" +
+            "  SELECT COUNT(*) AS log_count, MAX(t.id) AS max_log_id, SUM(CASE t.type " +
+            "    WHEN 'GRANT' THEN t.amount " +
+            "    WHEN 'RESERVE' THEN -t.amount " +
+            "    WHEN 'CANCEL' THEN CASE WHEN f.expires_at > t.created_at THEN t.amount ELSE 0 END " +
+            "    WHEN 'CONSUME' THEN CASE WHEN f.expires_at > t.created_at THEN f.amount ELSE 0 END " +
+            "      - (SELECT COALESCE(SUM(d.amount), 0) FROM credit_consumption_detail d WHERE d.transaction_id = t.transaction_id) " +
+            "    WHEN 'TRANSFER_IN' THEN t.amount " +
+            "    WHEN 'TRANSFER_OUT' THEN " +
+            "      -(SELECT COALESCE(SUM(d.amount), 0) FROM credit_consumption_detail d WHERE d.transaction_id = t.transaction_id) " +
+            "    ELSE 0 END) AS delta " +
+            "  FROM credit_transaction_logs t " +
+            "  LEFT JOIN credit_freeze f ON t.source_type = 'SESSION' AND f.session_id = t.source_id " +
+            "  WHERE t.user_id = p.user_id AND t.xid < p.upto_xid AND t.created_at <= p.upto_time " +
+            "    AND (t.created_at > p.taken_at OR t.xid >= p.from_xid OR (p.from_xid IS NULL AND t.id > p.last_log_id))" +
+            ") r ON true";
+
+    // A pod with a clock behind the previous run's never moves a user's snapshots back in time
+    private static final String SNAPSHOT_SQL =
+            "INSERT INTO user_balance_snapshots (user_id, taken_at, last_log_id, upto_xid, available_balance, created_at) " +
+            "SELECT p.user_id, p.upto_time, GREATEST(p.last_log_id, COALESCE(r.max_log_id, 0)), p.upto_xid, " +
+            ROLL_FORWARD_SQL + ", now() " +
+            "FROM (" +
+            "  SELECT c.user_id, COALESCE(s.available_balance, 0) AS balance, COALESCE(s.last_log_id, 0) AS last_log_id, " +
+            "    CASE WHEN s.taken_at IS NULL THEN 0 ELSE s.upto_xid END AS from_xid, " +
+            "    COALESCE(s.taken_at, " + NO_SNAPSHOT_TIME + ") AS taken_at, " +
+            "    GREATEST(COALESCE(s.taken_at, " + NO_SNAPSHOT_TIME + "), CAST(:takenAt AS timestamp)) AS upto_time, " +
+            "    CAST(:toXid AS bigint) AS upto_xid " +
+            "  FROM (SELECT DISTINCT user_id FROM credit_transaction_logs WHERE xid >= :fromXid AND xid < :toXid) c " +
+            "  LEFT JOIN LATERAL (" +
+            "    SELECT available_balance, last_log_id, upto_xid, taken_at FROM user_balance_snapshots " +
+            "    WHERE user_id = c.user_id ORDER BY taken_at DESC, upto_xid DESC NULLS LAST, last_log_id DESC LIMIT 1" +
+            "  ) s ON true" +
+            ") p " + LOG_REPLAY_SQL;
+
+    private static final String REPLAY_SQL =
+            "SELECT " + ROLL_FORWARD_SQL + " AS balance, COALESCE(r.log_count, 0) AS log_count " +
+            "FROM (" +
+            "  SELECT CAST(:userId AS bigint) AS user_id, CAST(:balance AS numeric) AS balance, " +
+            "    CAST(:lastLogId AS bigint) AS last_log_id, CAST(:fromXid AS bigint) AS from_xid, " +
+            "    COALESCE(CAST(:takenAt AS timestamp), " + NO_SNAPSHOT_TIME + ") AS taken_at, " +
+            "    CAST(:at AS timestamp) AS upto_time, CAST(:uptoXid AS bigint) AS upto_xid" +
+            ") p " + LOG_REPLAY_SQL;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public UserBalanceSnapshotRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Override
+    public int snapshotChangedUsers(long fromXid, long toXid, LocalDateTime takenAt) {
+        return jdbcTemplate.update(SNAPSHOT_SQL, new MapSqlParameterSource()
+                .addValue("fromXid", fromXid)
+                .addValue("toXid", toXid)
+                .addValue("takenAt", takenAt));
+    }
+
+    @Override
+    public BalanceReplay replay(Long userId, UserBalanceSnapshot snapshot, LocalDateTime at) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("balance", snapshot != null ? snapshot.getAvailableBalance() : BigDecimal.ZERO)
+                .addValue("lastLogId", snapshot != null ? snapshot.getLastLogId() : 0L)
+                .addValue("fromXid", snapshot != null ? snapshot.getUptoXid() : Long.valueOf(0L), Types.BIGINT)
+                .addValue("takenAt", snapshot != null ? snapshot.getTakenAt() : null, Types.TIMESTAMP)
+                .addValue("at", at)
+                .addValue("uptoXid", Long.MAX_VALUE);
+        return jdbcTemplate.queryForObject(REPLAY_SQL, params,
+                (rs, rowNum) -> new BalanceReplay(rs.getBigDecimal("balance"), rs.getLong("log_count")));
+    }
+}
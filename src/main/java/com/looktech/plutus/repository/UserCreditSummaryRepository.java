@@ -7,14 +7,28 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserCreditSummaryRepository extends JpaRepository<UserCreditSummary, Long> {
+public interface UserCreditSummaryRepository extends JpaRepository<UserCreditSummary, Long>,
+        UserCreditSummaryRepositoryCustom {
     
     Optional<UserCreditSummary> findByUserId(Long userId);
     
     @Lock(LockModeType.OPTIMISTIC)
     @Query("SELECT u FROM UserCreditSummary u WHERE u.userId = :userId")
     Optional<UserCreditSummary> findByUserIdWithLock(@Param("userId") Long userId);
-} 
\ No newline at end of file
+
+    @Query(value = "SELECT user_id FROM user_credit_summaries WHERE user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockSummary(@Param("userId") Long userId);
+
+    /**
+     * Lock the summaries of {@code userIds} that no other transaction holds right now; the rest are skipped.
+     * @return IDs of the users whose summaries were locked
+     */
+    @Query(value = "SELECT user_id FROM user_credit_summaries WHERE user_id IN (:userIds) " +
+                   "ORDER BY user_id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockUnheldSummaries(@Param("userIds") Collection<Long> userIds);
+}
@@ -0,0 +1,36 @@
+package com.looktech.plutus.repository;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Summary balance changes as single atomic statements. Concurrent changes for one user queue on the row lock
+ * instead of failing the optimistic version check; each statement still bumps {@code version}.
+ */
+public interface UserCreditSummaryRepositoryCustom {
+
+    /**
+     * Add {@code delta} to the user's total balance, creating the summary on the first grant.
+     * @return Total balance after the change
+     */
+    BigDecimal addToTotalBalance(Long userId, BigDecimal delta);
+
+    /**
+     * Subtract {@code amount} from an existing summary.
+     * @return Total balance after the change, or empty if the user has no summary
+     */
+    Optional<BigDecimal> subtractFromTotalBalance(Long userId, BigDecimal amount);
+
+    /**
+     * Apply per-user deltas in one JDBC batch, in user ID order so concurrent batches lock rows consistently.
+     */
+    void addToTotalBalances(Map<Long, BigDecimal> deltas);
+
+    /**
+     * Raise the user's fencing token to {@code token}, locking the summary row for the rest of the transaction.
+     * @return false if a newer owner has already stamped a higher token; true otherwise, including for users
+     *         without a summary yet
+     */
+    boolean advanceFence(Long userId, long token);
+}
@@ -0,0 +1,64 @@
+package com.looktech.plutus.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+public class UserCreditSummaryRepositoryImpl implements UserCreditSummaryRepositoryCustom {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO user_credit_summaries (user_id, total_balance, version, created_at, updated_at) " +
+            "VALUES (?, ?, 0, now(), now()) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "  total_balance = user_credit_summaries.total_balance + EXCLUDED.total_balance, " +
+            "  version = user_credit_summaries.version + 1, updated_at = now()";
+
+    private static final String SUBTRACT_SQL =
+            "UPDATE user_credit_summaries SET total_balance = total_balance - ?, version = version + 1, updated_at = now() " +
+            "WHERE user_id = ? RETURNING total_balance";
+
+    private static final String ADVANCE_FENCE_SQL =
+            "UPDATE user_credit_summaries SET fence_token = GREATEST(COALESCE(fence_token, 0), ?) " +
+            "WHERE user_id = ? RETURNING fence_token";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserCreditSummaryRepositoryImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public BigDecimal addToTotalBalance(Long userId, BigDecimal delta) {
+        return jdbcTemplate.queryForObject(UPSERT_SQL + " RETURNING total_balance", BigDecimal.class, userId, delta);
+    }
+
+    @Override
+    public Optional<BigDecimal> subtractFromTotalBalance(Long userId, BigDecimal amount) {
+        List<BigDecimal> balances = jdbcTemplate.queryForList(SUBTRACT_SQL, BigDecimal.class, amount, userId);
+        return balances.stream().findFirst();
+    }
+
+    @Override
+    public boolean advanceFence(Long userId, long token) {
+        List<Long> fences = jdbcTemplate.queryForList(ADVANCE_FENCE_SQL, Long.class, token, userId);
+        return fences.isEmpty() || fences.get(0) <= token;
+    }
+
+    @Override
+    public void addToTotalBalances(Map<Long, BigDecimal> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, BigDecimal>> ordered = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, ordered, ordered.size(), (ps, delta) -> {
+            ps.setLong(1, delta.getKey());
+            ps.setBigDecimal(2, delta.getValue());
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package com.looktech.plutus.reservation;
+
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.service.CreditService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the freeze and RESERVE log of fast-path sessions in the background, and reconciles the pending sessions
+ * in Redis with the database: sessions whose persistence failed, was never run (queue full, pod crash) or whose
+ * release after commit was lost are persisted again or released, and the user's pending total is recomputed.
+ * A session is never dropped from Redis before its freeze row exists: the client already holds its ID, and settle
+ * or cancel persists it on demand. Sessions still not persisted after {@code alert-after-millis} are logged as
+ * errors on every pass instead.
+ */
+@Slf4j
+@Component
+public class FastReservationPersister {
+
+    private final ObjectProvider<CreditService> creditService;
+    private final FastReservationStore store;
+    private final ThreadPoolExecutor executor;
+
+    @Value("${credit.reservation.fast.reconcile-grace-millis:5000}")
+    private long reconcileGraceMillis;
+
+    @Value("${credit.reservation.fast.alert-after-millis:600000}")
+    private long alertAfterMillis;
+
+    @Value("${credit.reservation.fast.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    public FastReservationPersister(ObjectProvider<CreditService> creditService,
+                                    FastReservationStore store,
+                                    @Value("${credit.reservation.fast.persist-threads:4}") int threads,
+                                    @Value("${credit.reservation.fast.persist-queue-capacity:10000}") int queueCapacity) {
+        this.creditService = creditService;
+        this.store = store;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fast-reservation-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public void submit(PendingReservation reservation) {
+        try {
+            executor.execute(() -> {
+                try {
+                    creditService.getObject().persistFastReservation(reservation);
+                } catch (RuntimeException e) {
+                    log.warn("Fast reservation persist failed, left to the reconciler: sessionId={}, error={}",
+                            reservation.sessionId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Fast reservation persist queue full, left to the reconciler: sessionId={}", reservation.sessionId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${credit.reservation.fast.reconcile-interval-millis:10000}")
+    @BulkWork
+    public void reconcile() {
+        if (!store.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<PendingReservation> stale;
+        try {
+            stale = store.findOlderThan(now - reconcileGraceMillis, reconcileBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("Fast reservation reconcile skipped: error={}", e.getMessage());
+            return;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        int persisted = 0;
+        int overdue = 0;
+        for (PendingReservation reservation : stale) {
+            userIds.add(reservation.userId());
+            try {
+                creditService.getObject().persistFastReservation(reservation);
+                persisted++;
+            } catch (RuntimeException e) {
+                if (now - reservation.createdAtMillis() < alertAfterMillis) {
+                    log.warn("Fast reservation still not persisted: sessionId={}, error={}", reservation.sessionId(), e.getMessage());
+                    continue;
+                }
+                // Still pending in Redis and holding the balance; settle or cancel retries the persist
+                overdue++;
+                log.error("Fast reservation overdue, kept pending: userId={}, sessionId={}, amountMicros={}, ageMillis={}",
+                        reservation.userId(), reservation.sessionId(), reservation.amountMicros(),
+                        now - reservation.createdAtMillis(), e);
+            }
+        }
+        for (Long userId : userIds) {
+            long drift = store.repair(userId);
+            if (drift != 0) {
+                log.warn("Fast reservation pending total repaired: userId={}, driftMicros={}", userId, drift);
+            }
+        }
+        if (!stale.isEmpty()) {
+            log.info("Fast reservation reconcile finished: stale={}, persisted={}, overdue={}", stale.size(), persisted, overdue);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Fast reservation persist queue not drained on shutdown, left to the reconciler");
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.looktech.plutus.reservation;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import com.looktech.plutus.cache.AvailableBalance;
+import com.looktech.plutus.cache.BalanceCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Redis side of the fast reservation path ({@code credit.reservation.fast.enabled}).
+ *
+ * <p>Sessions reserved here but not yet persisted as freeze rows are kept per user in one hash
+ * ({@code credit:fast-reserve:{userId}}): a {@code total} field with their sum in micro-credits and one field per
+ * session. A user can reserve up to the cached balance minus that total; the reserve script only proceeds while the
+ * cached balance entry is byte-for-byte the one the caller read, so a mutation committing in between forces a retry.
+ * Once a session's freeze row commits and the cache reflects it, the session is released from the hash.
+ *
+ * <p>A global index (sorted by reservation time) and a sessionId to userId hash let the reconciler and
+ * settle/cancel find pending sessions without knowing the user.
+ */
+@Slf4j
+@Component
+public class FastReservationStore {
+
+    private static final String PENDING_PREFIX = "credit:fast-reserve:{";
+    private static final String INDEX_KEY = "credit:fast-reserve:index";
+    private static final String SESSIONS_KEY = "credit:fast-reserve:sessions";
+    private static final String TOTAL_FIELD = "total";
+    private static final String SESSION_FIELD_PREFIX = "s:";
+    private static final long PENDING_TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+    private static final long IDEMPOTENCY_TTL_SECONDS = TimeUnit.HOURS.toSeconds(24);
+    private static final int MAX_ATTEMPTS = 3;
+
+    // KEYS: cached balance, pending hash, idempotency
+    // ARGV: cached balance as read, its balance in micros, amount, sessionId, pending entry, idempotency ttl seconds,
+    //       pending ttl millis
+    private static final byte[] RESERVE_SCRIPT = """
+            local replayed = redis.call('GET', KEYS[3])
+            if replayed then
+                return {2, replayed}
+            end
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return {0, ''}
+            end
+            local pending = tonumber(redis.call('HGET', KEYS[2], 'total') or '0')
+            local remaining = tonumber(ARGV[2]) - pending - tonumber(ARGV[3])
+            if remaining < 0 then
+                return {-1, ''}
+            end
+            redis.call('HINCRBY', KEYS[2], 'total', ARGV[3])
+            redis.call('HSET', KEYS[2], 's:' .. ARGV[4], ARGV[5])
+            redis.call('PEXPIRE', KEYS[2], ARGV[7])
+            redis.call('SET', KEYS[3], ARGV[4], 'EX', ARGV[6])
+            return {1, tostring(remaining)}
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: pending hash; ARGV: sessionId
+    private static final byte[] RELEASE_SCRIPT = """
+            local field = 's:' .. ARGV[1]
+            local entry = redis.call('HGET', KEYS[1], field)
+            if not entry then
+                return 0
+            end
+            redis.call('HDEL', KEYS[1], field)
+            redis.call('HINCRBY', KEYS[1], 'total', -tonumber(string.match(entry, '^(%d+):')))
+            if redis.call('HLEN', KEYS[1]) <= 1 then
+                redis.call('DEL', KEYS[1])
+            end
+            return 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: pending hash; returns how far total had drifted from the sum of the sessions
+    private static final byte[] REPAIR_SCRIPT = """
+            local fields = redis.call('HGETALL', KEYS[1])
+            local sum = 0
+            local sessions = 0
+            for i = 1, #fields, 2 do
+                if string.sub(fields[i], 1, 2) == 's:' then
+                    sum = sum + tonumber(string.match(fields[i + 1], '^(%d+):'))
+                    sessions = sessions + 1
+                end
+            end
+            local total = tonumber(redis.call('HGET', KEYS[1], 'total') or '0')
+            if sessions == 0 then
+                redis.call('DEL', KEYS[1])
+            else
+                redis.call('HSET', KEYS[1], 'total', sum)
+            end
+            return total - sum
+            """.getBytes(StandardCharsets.UTF_8);
+
+    public enum Status {
+        RESERVED,
+        REPLAYED,
+        INSUFFICIENT,
+        /**
+         * No usable cached balance, or it kept moving; the caller falls back to the database path
+         */
+        UNAVAILABLE
+    }
+
+    public record Outcome(Status status, String sessionId, BigDecimal remaining, PendingReservation reservation) {
+    }
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final BalanceCache balanceCache;
+
+    @Value("${credit.reservation.fast.enabled:false}")
+    private boolean enabled;
+
+    public FastReservationStore(RedisTemplate<String, Object> redisTemplate, BalanceCache balanceCache) {
+        this.redisTemplate = redisTemplate;
+        this.balanceCache = balanceCache;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static String pendingKey(Long userId) {
+        return PENDING_PREFIX + userId + "}";
+    }
+
+    private static String idempotencyKey(Long userId, String idempotencyId) {
+        return pendingKey(userId) + ":idem:" + idempotencyId;
+    }
+
+    /**
+     * Reserve {@code amountMicros} for a new session in one script call.
+     * @param loader Computes the balance from the database if the cache has no entry
+     */
+    public Outcome reserve(Long userId, long amountMicros, String idempotencyId, Supplier<AvailableBalance> loader) {
+        PendingReservation reservation = new PendingReservation(userId, UUID.randomUUID().toString(), amountMicros,
+                idempotencyId, System.currentTimeMillis());
+        // Indexed first, so a crash right after the script still leaves the session to the reconciler
+        index(reservation);
+        Outcome outcome = new Outcome(Status.UNAVAILABLE, null, null, null);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && outcome.status() == Status.UNAVAILABLE; attempt++) {
+            BalanceCache.Snapshot snapshot = balanceCache.snapshot(userId, loader);
+            if (snapshot == null) {
+                break;
+            }
+            outcome = runReserve(reservation, snapshot);
+        }
+        if (outcome.status() != Status.RESERVED) {
+            unindex(reservation);
+        }
+        return outcome;
+    }
+
+    private Outcome runReserve(PendingReservation reservation, BalanceCache.Snapshot snapshot) {
+        List<Object> result = redisTemplate.execute((RedisCallback<List<Object>>) connection ->
+                connection.scriptingCommands().eval(RESERVE_SCRIPT, ReturnType.MULTI, 3,
+                        bytes(BalanceCache.key(reservation.userId())),
+                        bytes(pendingKey(reservation.userId())),
+                        bytes(idempotencyKey(reservation.userId(), reservation.idempotencyId())),
+                        snapshot.raw(),
+                        bytes(String.valueOf(MicroCredits.ofStored(snapshot.balance()))),
+                        bytes(String.valueOf(reservation.amountMicros())),
+                        bytes(reservation.sessionId()),
+                        bytes(reservation.encode()),
+                        bytes(String.valueOf(IDEMPOTENCY_TTL_SECONDS)),
+                        bytes(String.valueOf(PENDING_TTL_MILLIS))));
+        if (result == null) {
+            return new Outcome(Status.UNAVAILABLE, null, null, null);
+        }
+        long status = (Long) result.get(0);
+        String payload = new String((byte[]) result.get(1), StandardCharsets.UTF_8);
+        if (status == 1) {
+            return new Outcome(Status.RESERVED, reservation.sessionId(),
+                    MicroCredits.toBigDecimal(Long.parseLong(payload)), reservation);
+        }
+        if (status == 2) {
+            return new Outcome(Status.REPLAYED, payload, null, null);
+        }
+        if (status == -1) {
+            return new Outcome(Status.INSUFFICIENT, null, null, null);
+        }
+        return new Outcome(Status.UNAVAILABLE, null, null, null);
+    }
+
+    /**
+     * The user's balance less sessions reserved on the fast path but not persisted yet.
+     */
+    public BigDecimal subtractPending(Long userId, BigDecimal balance) {
+        if (!enabled) {
+            return balance;
+        }
+        byte[] total = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(bytes(pendingKey(userId)), bytes(TOTAL_FIELD)));
+        return total != null ? lessPending(balance, new String(total, StandardCharsets.UTF_8)) : balance;
+    }
+
+    /**
+     * Each user's balance less their pending fast-path sessions, read in one pipeline.
+     */
+    public Map<Long, BigDecimal> subtractPending(Map<Long, BigDecimal> balances) {
+        if (!enabled || balances.isEmpty()) {
+            return balances;
+        }
+        List<Long> userIds = List.copyOf(balances.keySet());
+        List<Object> totals = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                connection.hashCommands().hGet(bytes(pendingKey(userId)), bytes(TOTAL_FIELD));
+            }
+            return null;
+        }, RedisSerializer.string());
+        Map<Long, BigDecimal> result = new HashMap<>(balances);
+        for (int i = 0; i < userIds.size(); i++) {
+            BigDecimal balance = balances.get(userIds.get(i));
+            if (totals.get(i) != null && balance != null) {
+                result.put(userIds.get(i), lessPending(balance, (String) totals.get(i)));
+            }
+        }
+        return result;
+    }
+
+    private static BigDecimal lessPending(BigDecimal balance, String total) {
+        long pendingMicros = Long.parseLong(total);
+        return balance.subtract(MicroCredits.toBigDecimal(Math.max(0, pendingMicros)));
+    }
+
+    /**
+     * The session the fast path reserved for {@code idempotencyId}, kept for the whole idempotency window.
+     */
+    public Optional<String> findSessionId(Long userId, String idempotencyId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        byte[] sessionId = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(bytes(idempotencyKey(userId, idempotencyId))));
+        return sessionId != null ? Optional.of(new String(sessionId, StandardCharsets.UTF_8)) : Optional.empty();
+    }
+
+    public Optional<Long> findUserId(String sessionId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        byte[] userId = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(bytes(SESSIONS_KEY), bytes(sessionId)));
+        return userId != null ? Optional.of(Long.valueOf(new String(userId, StandardCharsets.UTF_8))) : Optional.empty();
+    }
+
+    public Optional<PendingReservation> findBySessionId(String sessionId) {
+        return findUserId(sessionId).flatMap(userId -> find(userId, sessionId));
+    }
+
+    private Optional<PendingReservation> find(Long userId, String sessionId) {
+        byte[] entry = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(bytes(pendingKey(userId)), bytes(SESSION_FIELD_PREFIX + sessionId)));
+        return entry != null
+                ? Optional.of(PendingReservation.decode(userId, sessionId, new String(entry, StandardCharsets.UTF_8)))
+                : Optional.empty();
+    }
+
+    /**
+     * Release the session once the surrounding transaction has committed its freeze row. Runs after the balance
+     * write-through, so the cache already includes the freeze when the session stops counting as pending.
+     */
+    public void releaseAfterCommit(PendingReservation reservation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(reservation);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    release(reservation);
+                } catch (RuntimeException e) {
+                    log.warn("Fast reservation release failed, left to the reconciler: sessionId={}, error={}",
+                            reservation.sessionId(), e.getMessage());
+                }
+            }
+
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+        });
+    }
+
+    public void release(PendingReservation reservation) {
+        redisTemplate.execute((RedisCallback<Object>) connection -> connection.scriptingCommands().eval(
+                RELEASE_SCRIPT, ReturnType.INTEGER, 1,
+                bytes(pendingKey(reservation.userId())), bytes(reservation.sessionId())));
+        unindex(reservation);
+    }
+
+    /**
+     * Pending sessions reserved before {@code cutoffMillis}, oldest first. Index entries whose session is already
+     * gone are dropped on the way.
+     */
+    public List<PendingReservation> findOlderThan(long cutoffMillis, int limit) {
+        Set<String> members = redisTemplate.execute((RedisCallback<Set<String>>) connection -> {
+            Set<byte[]> raw = connection.zSetCommands().zRangeByScore(bytes(INDEX_KEY),
+                    Range.closed(0.0, (double) cutoffMillis), Limit.limit().count(limit));
+            Set<String> decoded = new LinkedHashSet<>();
+            if (raw != null) {
+                raw.forEach(member -> decoded.add(new String(member, StandardCharsets.UTF_8)));
+            }
+            return decoded;
+        });
+        List<PendingReservation> pending = new ArrayList<>();
+        if (members == null) {
+            return pending;
+        }
+        for (String member : members) {
+            int separator = member.indexOf(':');
+            Long userId = Long.valueOf(member.substring(0, separator));
+            String sessionId = member.substring(separator + 1);
+            Optional<PendingReservation> reservation = find(userId, sessionId);
+            if (reservation.isPresent()) {
+                pending.add(reservation.get());
+            } else {
+                unindex(new PendingReservation(userId, sessionId, 0, null, 0));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Recompute the user's pending total from the sessions still in the hash.
+     * @return Micro-credits by which the stored total was off
+     */
+    public long repair(Long userId) {
+        Long drift = redisTemplate.execute((RedisCallback<Long>) connection -> connection.scriptingCommands().eval(
+                REPAIR_SCRIPT, ReturnType.INTEGER, 1, bytes(pendingKey(userId))));
+        return drift != null ? drift : 0;
+    }
+
+    private void index(PendingReservation reservation) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zAdd(bytes(INDEX_KEY), reservation.createdAtMillis(), bytes(indexMember(reservation)));
+            connection.hashCommands().hSet(bytes(SESSIONS_KEY), bytes(reservation.sessionId()),
+                    bytes(String.valueOf(reservation.userId())));
+            return null;
+        });
+    }
+
+    private void unindex(PendingReservation reservation) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.zSetCommands().zRem(bytes(INDEX_KEY), bytes(indexMember(reservation)));
+            connection.hashCommands().hDel(bytes(SESSIONS_KEY), bytes(reservation.sessionId()));
+            return null;
+        });
+    }
+
+    private static String indexMember(PendingReservation reservation) {
+        return reservation.userId() + ":" + reservation.sessionId();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
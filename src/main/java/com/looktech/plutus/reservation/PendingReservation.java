@@ -0,0 +1,17 @@
+package com.looktech.plutus.reservation;
+
+/**
+ * A session reserved on the Redis fast path whose freeze row may not be persisted yet.
+ */
+public record PendingReservation(Long userId, String sessionId, long amountMicros, String idempotencyId,
+                                 long createdAtMillis) {
+
+    String encode() {
+        return amountMicros + ":" + createdAtMillis + ":" + idempotencyId;
+    }
+
+    static PendingReservation decode(Long userId, String sessionId, String value) {
+        String[] parts = value.split(":", 3);
+        return new PendingReservation(userId, sessionId, Long.parseLong(parts[0]), parts[2], Long.parseLong(parts[1]));
+    }
+}
@@ -0,0 +1,33 @@
+package com.looktech.plutus.service;
+
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.dto.ConsumptionAnalyticsResponse;
+import com.looktech.plutus.dto.HistoricalBalanceResponse;
+
+import java.time.LocalDateTime;
+
+public interface AnalyticsService {
+
+    /**
+     * Get credit usage over a time range from the rollup tables
+     * @param userId User ID, or null for all users
+     * @param from Range start (inclusive)
+     * @param to Range end (exclusive)
+     * @param granularity Bucket granularity; per-user queries support DAY only
+     * @param sourceType Source type filter, or null for all
+     * @param transactionType Transaction type filter, or null for all
+     * @return Usage buckets
+     */
+    ConsumptionAnalyticsResponse getUsage(Long userId, LocalDateTime from, LocalDateTime to,
+                                          ConsumptionAnalyticsResponse.Granularity granularity,
+                                          String sourceType, CreditTransactionLog.TransactionType transactionType);
+
+    /**
+     * Get a user's available balance at a past point in time, from the nearest earlier balance snapshot
+     * and the transaction logs and expiries after it
+     * @param userId User ID
+     * @param at Point in time, not in the future
+     * @return Balance at that time
+     */
+    HistoricalBalanceResponse getBalanceAt(Long userId, LocalDateTime at);
+}
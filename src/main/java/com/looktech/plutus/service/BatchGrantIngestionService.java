@@ -0,0 +1,15 @@
+package com.looktech.plutus.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface BatchGrantIngestionService {
+
+    /**
+     * Grant credits for a stream of items without holding the whole request in memory
+     * @param in NDJSON grant items (a JSON array of items is accepted as well)
+     * @param out One NDJSON result line per item, written as each chunk of items completes
+     */
+    void ingest(InputStream in, OutputStream out) throws IOException;
+}
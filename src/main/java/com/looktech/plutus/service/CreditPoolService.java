@@ -0,0 +1,50 @@
+package com.looktech.plutus.service;
+
+import com.looktech.plutus.domain.CreditPool;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.dto.BatchCreditGrantResponse;
+import com.looktech.plutus.dto.PoolBalanceResponse;
+import com.looktech.plutus.enums.SourceType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface CreditPoolService {
+
+    /**
+     * Create a shared credit pool
+     * @param name Pool name
+     * @param shardCount Number of shards the balance is split over, 1 to 1024
+     * @return Created pool
+     */
+    CreditPool createPool(String name, int shardCount);
+
+    /**
+     * Let a user spend from the pool; adding an existing member is a no-op
+     */
+    void addMember(Long poolId, Long userId);
+
+    void removeMember(Long poolId, Long userId);
+
+    /**
+     * Grant credits to the pool, split evenly over its shards
+     * @param idempotencyId Unique ID for idempotency; each shard's grant uses {@code <idempotencyId>:<shard>}
+     * @return One result per shard
+     */
+    BatchCreditGrantResponse grantCredit(Long poolId, BigDecimal amount, SourceType sourceType, String sourceId,
+                                         LocalDateTime expiresAt, String idempotencyId);
+
+    /**
+     * Deduct credits from the pool on behalf of a member. The deduct runs on one shard, preferring shards this pod
+     * owns; a shard without enough credits first pulls them over from its siblings.
+     * @param userId Member spending the credits
+     * @return Transaction log of the shard deduct
+     */
+    CreditTransactionLog deductCredit(Long poolId, Long userId, BigDecimal amount, SourceType sourceType,
+                                      String sourceId, String idempotencyId);
+
+    /**
+     * Get the pool's available balance, summed over its shards
+     */
+    PoolBalanceResponse getBalance(Long poolId);
+}
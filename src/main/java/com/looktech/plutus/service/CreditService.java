@@ -5,11 +5,13 @@ import com.looktech.plutus.domain.CreateSessionResponse;
 import com.looktech.plutus.dto.BatchCreditGrantRequest;
 import com.looktech.plutus.dto.BatchCreditGrantResponse;
 import com.looktech.plutus.enums.SourceType;
+import com.looktech.plutus.reservation.PendingReservation;
 import org.springframework.data.domain.Page;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface CreditService {
     
@@ -40,6 +42,12 @@ public interface CreditService {
      * @return Session ID
      */
     CreateSessionResponse startSession(Long userId, BigDecimal maxAmount, String idempotencyId);
+
+    /**
+     * Write the freeze and RESERVE log of a session reserved on the Redis fast path, if not written yet
+     * @param reservation Pending reservation
+     */
+    void persistFastReservation(PendingReservation reservation);
     
     /**
      * Settle a credit session with final amount
@@ -73,6 +81,13 @@ public interface CreditService {
      */
     BigDecimal getAvailableBalance(Long userId);
     
+    /**
+     * Get available balances for many users at once
+     * @param userIds User IDs
+     * @return Available balance keyed by user ID, in request order
+     */
+    Map<Long, BigDecimal> getAvailableBalances(List<Long> userIds);
+    
     /**
      * Get transaction history for user
      * @param userId User ID
@@ -0,0 +1,13 @@
+package com.looktech.plutus.service;
+
+import com.looktech.plutus.dto.ReconciliationReport;
+
+public interface ReconciliationService {
+
+    /**
+     * Verify UserCreditSummary against ledgers, and ledger consumption against consumption details, for all users
+     * @param repair Whether to reset drifted summaries to the ledger balance
+     * @return Drift report
+     */
+    ReconciliationReport reconcile(boolean repair);
+}
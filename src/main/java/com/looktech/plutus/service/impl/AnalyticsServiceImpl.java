@@ -0,0 +1,136 @@
+package com.looktech.plutus.service.impl;
+
+import com.looktech.plutus.annotation.ReadReplica;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.domain.CreditUsageDailyRollup;
+import com.looktech.plutus.domain.CreditUsageHourlyRollup;
+import com.looktech.plutus.domain.UserBalanceSnapshot;
+import com.looktech.plutus.dto.ConsumptionAnalyticsResponse;
+import com.looktech.plutus.dto.HistoricalBalanceResponse;
+import com.looktech.plutus.exception.CreditException;
+import com.looktech.plutus.repository.CreditUsageDailyRollupRepository;
+import com.looktech.plutus.repository.CreditUsageHourlyRollupRepository;
+import com.looktech.plutus.repository.UserBalanceSnapshotRepository;
+import com.looktech.plutus.service.AnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class AnalyticsServiceImpl implements AnalyticsService {
+
+    private final CreditUsageDailyRollupRepository dailyRollupRepository;
+    private final CreditUsageHourlyRollupRepository hourlyRollupRepository;
+    private final UserBalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    @ReadReplica
+    public ConsumptionAnalyticsResponse getUsage(Long userId, LocalDateTime from, LocalDateTime to,
+                                                 ConsumptionAnalyticsResponse.Granularity granularity,
+                                                 String sourceType, CreditTransactionLog.TransactionType transactionType) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new CreditException("INVALID_TIME_RANGE", "Range start must be before range end");
+        }
+
+        List<ConsumptionAnalyticsResponse.Bucket> buckets = userId != null
+                ? userBuckets(userId, from, to, granularity, sourceType, transactionType)
+                : globalBuckets(from, to, granularity, sourceType, transactionType);
+
+        return ConsumptionAnalyticsResponse.builder()
+                .userId(userId)
+                .granularity(granularity)
+                .buckets(buckets)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @ReadReplica(userIds = "#userId")
+    public HistoricalBalanceResponse getBalanceAt(Long userId, LocalDateTime at) {
+        if (at == null || at.isAfter(LocalDateTime.now())) {
+            throw new CreditException("INVALID_TIME", "Point in time must not be in the future");
+        }
+
+        // 1. Nearest snapshot at or before the requested time
+        UserBalanceSnapshot snapshot = balanceSnapshotRepository
+                .findFirstByUserIdAndTakenAtLessThanEqualOrderByTakenAtDescLastLogIdDesc(userId, at)
+                .orElse(null);
+
+        // 2. Roll it forward over the logs and expiries since
+        UserBalanceSnapshotRepository.BalanceReplay replay = balanceSnapshotRepository.replay(userId, snapshot, at);
+
+        return HistoricalBalanceResponse.builder()
+                .userId(userId)
+                .at(at)
+                .balance(replay.balance())
+                .snapshotTakenAt(snapshot != null ? snapshot.getTakenAt() : null)
+                .replayedLogs(replay.replayedLogs())
+                .build();
+    }
+
+    private List<ConsumptionAnalyticsResponse.Bucket> userBuckets(Long userId, LocalDateTime from, LocalDateTime to,
+                                                                  ConsumptionAnalyticsResponse.Granularity granularity,
+                                                                  String sourceType, CreditTransactionLog.TransactionType transactionType) {
+        if (granularity != ConsumptionAnalyticsResponse.Granularity.DAY) {
+            throw new CreditException("UNSUPPORTED_GRANULARITY", "Per-user usage is only available by day");
+        }
+        List<ConsumptionAnalyticsResponse.Bucket> buckets = new ArrayList<>();
+        for (CreditUsageDailyRollup rollup : dailyRollupRepository.findByUserIdAndBucketDateBetweenOrderByBucketDateAsc(
+                userId, from.toLocalDate(), to.minusNanos(1).toLocalDate())) {
+            if (matches(rollup.getSourceType(), rollup.getTransactionType(), sourceType, transactionType)) {
+                buckets.add(ConsumptionAnalyticsResponse.Bucket.builder()
+                        .bucketStart(rollup.getBucketDate().atStartOfDay())
+                        .sourceType(rollup.getSourceType())
+                        .transactionType(rollup.getTransactionType())
+                        .totalAmount(rollup.getTotalAmount())
+                        .transactionCount(rollup.getTransactionCount())
+                        .build());
+            }
+        }
+        return buckets;
+    }
+
+    private List<ConsumptionAnalyticsResponse.Bucket> globalBuckets(LocalDateTime from, LocalDateTime to,
+                                                                    ConsumptionAnalyticsResponse.Granularity granularity,
+                                                                    String sourceType, CreditTransactionLog.TransactionType transactionType) {
+        ChronoUnit unit = granularity == ConsumptionAnalyticsResponse.Granularity.DAY ? ChronoUnit.DAYS : ChronoUnit.HOURS;
+
+        // Hourly rows arrive ordered by hour, so merging into day buckets keeps the order
+        Map<BucketKey, ConsumptionAnalyticsResponse.Bucket> buckets = new LinkedHashMap<>();
+        for (CreditUsageHourlyRollup rollup : hourlyRollupRepository.findByBucketHourRange(
+                from.truncatedTo(ChronoUnit.HOURS), to)) {
+            if (!matches(rollup.getSourceType(), rollup.getTransactionType(), sourceType, transactionType)) {
+                continue;
+            }
+            BucketKey key = new BucketKey(rollup.getBucketHour().truncatedTo(unit), rollup.getSourceType(), rollup.getTransactionType());
+            ConsumptionAnalyticsResponse.Bucket bucket = buckets.computeIfAbsent(key, k -> ConsumptionAnalyticsResponse.Bucket.builder()
+                    .bucketStart(k.bucketStart())
+                    .sourceType(k.sourceType())
+                    .transactionType(k.transactionType())
+                    .totalAmount(BigDecimal.ZERO)
+                    .build());
+            bucket.setTotalAmount(bucket.getTotalAmount().add(rollup.getTotalAmount()));
+            bucket.setTransactionCount(bucket.getTransactionCount() + rollup.getTransactionCount());
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    private boolean matches(String rollupSourceType, CreditTransactionLog.TransactionType rollupTransactionType,
+                            String sourceType, CreditTransactionLog.TransactionType transactionType) {
+        return (sourceType == null || sourceType.equals(rollupSourceType))
+                && (transactionType == null || transactionType == rollupTransactionType);
+    }
+
+    private record BucketKey(LocalDateTime bucketStart, String sourceType, CreditTransactionLog.TransactionType transactionType) {
+    }
+}
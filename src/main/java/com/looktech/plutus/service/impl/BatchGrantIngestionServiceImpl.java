@@ -0,0 +1,167 @@
+package com.looktech.plutus.service.impl;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.looktech.plutus.dto.BatchCreditGrantRequest;
+import com.looktech.plutus.dto.BatchCreditGrantResponse;
+import com.looktech.plutus.dto.BatchGrantItemResult;
+import com.looktech.plutus.dto.CreditGrantResponse;
+import com.looktech.plutus.exception.CreditException;
+import com.looktech.plutus.service.BatchGrantIngestionService;
+import com.looktech.plutus.service.CreditService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads grant items with Jackson's streaming parser and hands them to {@link CreditService#batchGrantCredit} one
+ * chunk at a time. The next chunk is only parsed after the previous one has been granted and its results flushed,
+ * so a slow database pushes back on the client through the socket and memory stays at one chunk.
+ */
+@Slf4j
+@Service
+public class BatchGrantIngestionServiceImpl implements BatchGrantIngestionService {
+
+    private final CreditService creditService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${credit.batch-grant.stream-chunk-size:500}")
+    private int chunkSize;
+
+    public BatchGrantIngestionServiceImpl(CreditService creditService, ObjectMapper objectMapper) {
+        this.creditService = creditService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void ingest(InputStream in, OutputStream out) throws IOException {
+        try (MappingIterator<BatchCreditGrantRequest.CreditGrantItem> items = objectMapper
+                     .readerFor(BatchCreditGrantRequest.CreditGrantItem.class)
+                     .readValues(in);
+             SequenceWriter results = objectMapper
+                     .writerFor(BatchGrantItemResult.class)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            List<BatchCreditGrantRequest.CreditGrantItem> chunk = new ArrayList<>(chunkSize);
+            long firstIndex = 0;
+            long index = 0;
+            while (true) {
+                BatchCreditGrantRequest.CreditGrantItem item;
+                try {
+                    if (!items.hasNextValue()) {
+                        break;
+                    }
+                    item = items.nextValue();
+                } catch (JsonParseException e) {
+                    // Broken JSON: nothing after this point can be trusted, so grant what was read and stop
+                    grantChunk(chunk, firstIndex, results);
+                    results.write(failure(index, null, null, "MALFORMED_INPUT", e.getOriginalMessage()));
+                    log.warn("Streamed batch grant stopped at malformed input: index={}, error={}", index, e.getOriginalMessage());
+                    return;
+                } catch (JsonMappingException e) {
+                    // Well-formed but unbindable item (e.g. bad date); the iterator skips to the next value
+                    results.write(failure(index++, null, null, "INVALID_ITEM", e.getOriginalMessage()));
+                    continue;
+                }
+                if (chunk.isEmpty()) {
+                    firstIndex = index;
+                }
+                chunk.add(item);
+                index++;
+                if (chunk.size() == chunkSize) {
+                    grantChunk(chunk, firstIndex, results);
+                    chunk.clear();
+                }
+            }
+            grantChunk(chunk, firstIndex, results);
+            log.info("Streamed batch grant finished: items={}", index);
+        }
+    }
+
+    private void grantChunk(List<BatchCreditGrantRequest.CreditGrantItem> chunk, long firstIndex,
+                            SequenceWriter results) throws IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BatchCreditGrantResponse response;
+        try {
+            response = creditService.batchGrantCredit(chunk);
+        } catch (RuntimeException e) {
+            // The chunk's transaction rolled back as a whole; report every item and carry on with the next chunk
+            log.error("Streamed batch grant chunk failed: firstIndex={}, size={}, error={}", firstIndex, chunk.size(), e.getMessage());
+            String code = e instanceof CreditException creditException ? creditException.getCode() : "UNKNOWN_ERROR";
+            for (int i = 0; i < chunk.size(); i++) {
+                BatchCreditGrantRequest.CreditGrantItem item = chunk.get(i);
+                results.write(failure(firstIndex + i, item.getUserId(), item.getIdempotencyId(), code, e.getMessage()));
+            }
+            results.flush();
+            return;
+        }
+
+        // Results come back grouped by outcome; hand them back to items in input order. For a repeated
+        // userId/idempotencyId pair only the first occurrence can succeed, so successes are taken first.
+        Map<String, Deque<CreditGrantResponse>> successes = new HashMap<>();
+        for (CreditGrantResponse success : response.getSuccessResults()) {
+            successes.computeIfAbsent(itemKey(success.getUserId(), success.getTransactionId()), k -> new ArrayDeque<>())
+                    .add(success);
+        }
+        Map<String, Deque<BatchCreditGrantResponse.FailedGrantResult>> failures = new HashMap<>();
+        for (BatchCreditGrantResponse.FailedGrantResult failure : response.getFailResults()) {
+            failures.computeIfAbsent(itemKey(failure.getUserId(), failure.getIdempotencyId()), k -> new ArrayDeque<>())
+                    .add(failure);
+        }
+        for (int i = 0; i < chunk.size(); i++) {
+            BatchCreditGrantRequest.CreditGrantItem item = chunk.get(i);
+            String key = itemKey(item.getUserId(), item.getIdempotencyId());
+            CreditGrantResponse success = poll(successes, key);
+            if (success != null) {
+                results.write(BatchGrantItemResult.builder()
+                        .index(firstIndex + i)
+                        .userId(item.getUserId())
+                        .idempotencyId(item.getIdempotencyId())
+                        .success(true)
+                        .result(success)
+                        .build());
+                continue;
+            }
+            BatchCreditGrantResponse.FailedGrantResult failure = poll(failures, key);
+            results.write(failure != null
+                    ? failure(firstIndex + i, item.getUserId(), item.getIdempotencyId(), failure.getErrorCode(), failure.getErrorMessage())
+                    : failure(firstIndex + i, item.getUserId(), item.getIdempotencyId(), "UNKNOWN_ERROR", "No result for item"));
+        }
+        results.flush();
+    }
+
+    private static String itemKey(Long userId, String idempotencyId) {
+        return userId + ":" + idempotencyId;
+    }
+
+    private static <T> T poll(Map<String, Deque<T>> byKey, String key) {
+        Deque<T> queue = byKey.get(key);
+        return queue != null ? queue.poll() : null;
+    }
+
+    private static BatchGrantItemResult failure(long index, Long userId, String idempotencyId, String code, String message) {
+        return BatchGrantItemResult.builder()
+                .index(index)
+                .userId(userId)
+                .idempotencyId(idempotencyId)
+                .success(false)
+                .errorCode(code)
+                .errorMessage(message)
+                .build();
+    }
+}
@@ -0,0 +1,181 @@
+package com.looktech.plutus.service.impl;
+
+import com.looktech.plutus.allocation.MicroCredits;
+import com.looktech.plutus.cluster.UserOwnership;
+import com.looktech.plutus.domain.CreditPool;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.dto.BatchCreditGrantRequest;
+import com.looktech.plutus.dto.BatchCreditGrantResponse;
+import com.looktech.plutus.dto.PoolBalanceResponse;
+import com.looktech.plutus.enums.SourceType;
+import com.looktech.plutus.exception.CreditException;
+import com.looktech.plutus.idempotency.IdempotencyStore;
+import com.looktech.plutus.pool.PoolShards;
+import com.looktech.plutus.repository.CreditPoolMemberRepository;
+import com.looktech.plutus.repository.CreditPoolRepository;
+import com.looktech.plutus.service.CreditPoolService;
+import com.looktech.plutus.service.CreditService;
+import com.looktech.plutus.wal.TransactionLogWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CreditPoolServiceImpl implements CreditPoolService {
+
+    private final CreditPoolRepository creditPoolRepository;
+    private final CreditPoolMemberRepository creditPoolMemberRepository;
+    private final CreditService creditService;
+    private final UserOwnership userOwnership;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionLogWriter transactionLogWriter;
+
+    @Override
+    public CreditPool createPool(String name, int shardCount) {
+        if (name == null || name.isBlank()) {
+            throw new CreditException("INVALID_NAME", "Pool name must not be empty");
+        }
+        if (shardCount < 1 || shardCount > PoolShards.MAX_SHARDS) {
+            throw new CreditException("INVALID_SHARD_COUNT",
+                    "Shard count must be between 1 and " + PoolShards.MAX_SHARDS);
+        }
+        CreditPool pool = new CreditPool();
+        pool.setName(name);
+        pool.setShardCount(shardCount);
+        pool = creditPoolRepository.save(pool);
+        log.info("Credit pool created: poolId={}, shards={}", pool.getId(), shardCount);
+        return pool;
+    }
+
+    @Override
+    @Transactional
+    public void addMember(Long poolId, Long userId) {
+        findPool(poolId);
+        creditPoolMemberRepository.insertIfAbsent(poolId, userId);
+    }
+
+    @Override
+    @Transactional
+    public void removeMember(Long poolId, Long userId) {
+        creditPoolMemberRepository.deleteByPoolIdAndUserId(poolId, userId);
+    }
+
+    @Override
+    public BatchCreditGrantResponse grantCredit(Long poolId, BigDecimal amount, SourceType sourceType, String sourceId,
+                                                LocalDateTime expiresAt, String idempotencyId) {
+        // 1. Parameter validation
+        CreditPool pool = findPool(poolId);
+        long amountMicros = MicroCredits.of(amount);
+        if (amountMicros <= 0) {
+            throw new CreditException("INVALID_AMOUNT", "Credit amount must be positive");
+        }
+
+        // 2. Split evenly over the shards, the remainder going to the first ones; a shard's share is granted
+        // under its own idempotency ID so a retry completes only the shards that failed
+        int shardCount = pool.getShardCount();
+        long share = amountMicros / shardCount;
+        long remainder = amountMicros % shardCount;
+        List<BatchCreditGrantRequest.CreditGrantItem> items = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            long shardMicros = share + (shard < remainder ? 1 : 0);
+            if (shardMicros == 0) {
+                continue;
+            }
+            BatchCreditGrantRequest.CreditGrantItem item = new BatchCreditGrantRequest.CreditGrantItem();
+            item.setUserId(PoolShards.accountId(poolId, shard));
+            item.setAmount(MicroCredits.toBigDecimal(shardMicros));
+            item.setSourceType(sourceType);
+            item.setSourceId(sourceId);
+            item.setExpiresAt(expiresAt);
+            item.setIdempotencyId(idempotencyId + ":" + shard);
+            items.add(item);
+        }
+
+        // 3. Grant all shares in one batch
+        return creditService.batchGrantCredit(items);
+    }
+
+    @Override
+    public CreditTransactionLog deductCredit(Long poolId, Long userId, BigDecimal amount, SourceType sourceType,
+                                             String sourceId, String idempotencyId) {
+        // 1. Idempotency check at pool level; a retry may land on a different shard than the original
+        String idempotencyKey = poolId + ":" + idempotencyId;
+        IdempotencyStore.Outcome outcome = idempotencyStore.acquire("pool:deduct", idempotencyKey);
+        if (outcome != IdempotencyStore.Outcome.NEW) {
+            Optional<CreditTransactionLog> original = transactionLogWriter.findByTransactionId(idempotencyId);
+            if (outcome == IdempotencyStore.Outcome.DUPLICATE) {
+                return original.orElseThrow(
+                        () -> new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID"));
+            }
+            idempotencyStore.recordExactCheck(original.isPresent());
+            if (original.isPresent()) {
+                return original.get();
+            }
+        }
+
+        try {
+            // 2. Membership check
+            CreditPool pool = findPool(poolId);
+            if (!creditPoolMemberRepository.existsByPoolIdAndUserId(poolId, userId)) {
+                throw new CreditException("NOT_POOL_MEMBER", "User is not a member of the pool");
+            }
+
+            // 3. Deduct from a random shard this pod owns, so the deduct needs no forwarding
+            long accountId = pickShard(pool);
+            CreditTransactionLog transaction = creditService.deductCredit(accountId, amount, sourceType, sourceId, idempotencyId);
+            log.debug("Pool deduct: poolId={}, userId={}, shard={}, amount={}",
+                    poolId, userId, PoolShards.shardOf(accountId), amount);
+            return transaction;
+        } catch (RuntimeException e) {
+            idempotencyStore.release("pool:deduct", idempotencyKey);
+            throw e;
+        }
+    }
+
+    @Override
+    public PoolBalanceResponse getBalance(Long poolId) {
+        CreditPool pool = findPool(poolId);
+        List<Long> accountIds = PoolShards.accountIds(poolId, pool.getShardCount());
+        Map<Long, BigDecimal> balances = creditService.getAvailableBalances(accountIds);
+
+        BigDecimal total = BigDecimal.ZERO;
+        List<BigDecimal> shards = new ArrayList<>(accountIds.size());
+        for (Long accountId : accountIds) {
+            BigDecimal balance = balances.getOrDefault(accountId, BigDecimal.ZERO);
+            shards.add(balance);
+            total = total.add(balance);
+        }
+        return PoolBalanceResponse.builder()
+                .poolId(poolId)
+                .balance(total)
+                .shards(shards)
+                .build();
+    }
+
+    private CreditPool findPool(Long poolId) {
+        return creditPoolRepository.findById(poolId)
+                .orElseThrow(() -> new CreditException("POOL_NOT_FOUND", "Credit pool not found"));
+    }
+
+    /**
+     * A random shard whose slot this pod owns, or any shard when it owns none; the deduct then answers 421
+     * with the owner to retry at.
+     */
+    private long pickShard(CreditPool pool) {
+        List<Long> accountIds = PoolShards.accountIds(pool.getId(), pool.getShardCount());
+        List<Long> local = accountIds.stream().filter(userOwnership::owns).toList();
+        List<Long> candidates = local.isEmpty() ? accountIds : local;
+        return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+}
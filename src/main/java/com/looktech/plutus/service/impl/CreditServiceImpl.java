@@ -1,8 +1,18 @@
 package com.looktech.plutus.service.impl;
 
+import com.looktech.plutus.allocation.FefoAllocator;
+import com.looktech.plutus.allocation.MicroCredits;
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.annotation.QueryBudget;
+import com.looktech.plutus.annotation.ReadReplica;
+import com.looktech.plutus.annotation.SerializedPerUser;
+import com.looktech.plutus.cache.AvailableBalance;
+import com.looktech.plutus.cache.BalanceCache;
+import com.looktech.plutus.cluster.UserOwnership;
+import com.looktech.plutus.datasource.ReadYourWritesGuard;
 import com.looktech.plutus.domain.CreditLedger;
+import com.looktech.plutus.domain.CreditPool;
 import com.looktech.plutus.domain.CreditTransactionLog;
-import com.looktech.plutus.domain.UserCreditSummary;
 import com.looktech.plutus.domain.CreditConsumptionDetail;
 import com.looktech.plutus.domain.CreditFreeze;
 import com.looktech.plutus.domain.CreateSessionResponse;
@@ -11,23 +21,36 @@ import com.looktech.plutus.dto.BatchCreditGrantResponse;
 import com.looktech.plutus.dto.CreditGrantResponse;
 import com.looktech.plutus.enums.SourceType;
 import com.looktech.plutus.exception.CreditException;
+import com.looktech.plutus.idempotency.IdempotencyStore;
+import com.looktech.plutus.pool.PoolShards;
 import com.looktech.plutus.repository.*;
+import com.looktech.plutus.reservation.FastReservationPersister;
+import com.looktech.plutus.reservation.FastReservationStore;
+import com.looktech.plutus.reservation.PendingReservation;
 import com.looktech.plutus.service.CreditService;
+import com.looktech.plutus.wal.TransactionLogWriter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.redis.core.RedisCallback;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -38,27 +61,45 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class CreditServiceImpl implements CreditService {
 
+    private static final String POOL_REBALANCE_SOURCE = "POOL_REBALANCE";
+
+    /** Lock batches double from {@code ledgerLockBatchSize} up to this many ledgers per query. */
+    private static final int MAX_LEDGER_LOCK_BATCH_SIZE = 256;
+
     private final UserCreditSummaryRepository userCreditSummaryRepository;
     private final CreditLedgerRepository creditLedgerRepository;
     private final CreditTransactionLogRepository transactionLogRepository;
-    private final CreditConsumptionDetailRepository consumptionDetailRepository;
     private final CreditFreezeRepository creditFreezeRepository;
-    private final RedisTemplate<String, String> redisTemplate;
+    private final BalanceCache balanceCache;
+    private final ReadYourWritesGuard readYourWritesGuard;
+    private final UserOwnership userOwnership;
+    private final TransactionLogWriter transactionLogWriter;
+    private final FastReservationStore fastReservationStore;
+    private final FastReservationPersister fastReservationPersister;
+    private final IdempotencyStore idempotencyStore;
+    private final CreditPoolRepository creditPoolRepository;
+
+    @Value("${credit.balance.batch-max-size:5000}")
+    private int balanceBatchMaxSize;
+
+    @Value("${credit.allocation.ledger-lock-batch-size:4}")
+    private int ledgerLockBatchSize;
 
     @Override
     @Transactional
-    @CacheEvict(value = "userBalance", key = "#userId")
+    @QueryBudget(statements = 4, redisCommands = 4)
+    @SerializedPerUser(userIds = "#userId")
     public CreditTransactionLog grantCredit(Long userId, BigDecimal amount, SourceType sourceType, String sourceId, LocalDateTime expiresAt, String idempotencyId) {
         // 1. Idempotency check
-        String lockKey = String.format("credit:grant:%d:%s", userId, idempotencyId);
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 24, TimeUnit.HOURS);
-        if (Boolean.FALSE.equals(acquired)) {
-            return transactionLogRepository.findByTransactionId(idempotencyId)
-                    .orElseThrow(() -> new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID"));
+        String idempotencyKey = userId + ":" + idempotencyId;
+        Optional<CreditTransactionLog> original = findOriginal(
+                idempotencyStore.acquire("grant", idempotencyKey), idempotencyId);
+        if (original.isPresent()) {
+            return original.get();
         }
 
         try {
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (MicroCredits.of(amount) <= 0) {
                 throw new CreditException("INVALID_AMOUNT", "Credit amount must be positive");
             }
 
@@ -66,6 +107,9 @@ public class CreditServiceImpl implements CreditService {
                 throw new CreditException("INVALID_EXPIRATION", "Expiration time must be later than current time");
             }
 
+            readYourWritesGuard.recordWrite(userId);
+            userOwnership.claim(userId);
+
             // Create credit ledger entry
             CreditLedger ledger = new CreditLedger();
             ledger.setUserId(userId);
@@ -76,16 +120,8 @@ public class CreditServiceImpl implements CreditService {
             ledger.setExpiresAt(expiresAt);
             creditLedgerRepository.save(ledger);
 
-            // Update user credit summary
-            UserCreditSummary summary = userCreditSummaryRepository.findByUserId(userId)
-                    .orElseGet(() -> {
-                        UserCreditSummary newSummary = new UserCreditSummary();
-                        newSummary.setUserId(userId);
-                        newSummary.setTotalBalance(BigDecimal.ZERO);
-                        return newSummary;
-                    });
-            summary.setTotalBalance(summary.getTotalBalance().add(amount));
-            userCreditSummaryRepository.save(summary);
+            // Update user credit summary (single upsert; concurrent grants queue on the row lock)
+            userCreditSummaryRepository.addToTotalBalance(userId, amount);
 
             // Record transaction log
             CreditTransactionLog log = new CreditTransactionLog();
@@ -96,108 +132,176 @@ public class CreditServiceImpl implements CreditService {
             log.setSourceType(sourceType.toString());
             log.setSourceId(sourceId);
             log.setCreditId(ledger.getId());
-            return transactionLogRepository.save(log);
+            long version = transactionLogWriter.write(log, List.of());
+
+            log.setBalanceAfter(writeThroughBalance(userId, version));
+            return log;
 
         } catch (Exception e) {
-            redisTemplate.delete(lockKey);
+            idempotencyStore.release("grant", idempotencyKey);
             throw e;
         }
     }
 
 
     @Override
-    @Cacheable(value = "userBalance", key = "T(String).valueOf(#userId)")
+    @Transactional(readOnly = true)
+    @ReadReplica(userIds = "#userId")
+    @QueryBudget(statements = 1, redisCommands = 5)
     public BigDecimal getAvailableBalance(Long userId) {
-        // Get all non-expired credits with ACTIVE status
-        BigDecimal totalBalance = creditLedgerRepository
-                .sumRemainingAmountByUserIdAndStatusAndNotExpired(
-                        userId,
-                        CreditLedger.CreditStatus.ACTIVE,
-                        LocalDateTime.now())
-                .orElse(BigDecimal.ZERO);
-                
-        // Subtract all non-expired frozen credits
-        BigDecimal frozenAmount = creditFreezeRepository
-                .sumAmountByUserIdAndStatusAndNotExpired(
-                        userId,
-                        CreditFreeze.FreezeStatus.ACTIVE,
-                        LocalDateTime.now())
-                .orElse(BigDecimal.ZERO);
-                
-        return totalBalance.subtract(frozenAmount);
+        // The owning pod saw every committed mutation of this user, so its copy needs no Redis round trip
+        BigDecimal balance = userOwnership.ownedBalance(userId)
+                .orElseGet(() -> balanceCache.get(userId, () -> computeAvailableBalance(userId)));
+        // Sessions reserved on the fast path hold credits before their freeze rows exist
+        return fastReservationStore.subtractPending(userId, balance);
+    }
+
+    private AvailableBalance computeAvailableBalance(Long userId) {
+        return computeAvailableBalances(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Non-expired ACTIVE ledgers minus non-expired ACTIVE freezes, for all users in one grouped aggregate,
+     * together with the earliest expiry among them.
+     */
+    private Map<Long, AvailableBalance> computeAvailableBalances(Collection<Long> userIds) {
+        Map<Long, AvailableBalance> balances = new HashMap<>();
+        userIds.forEach(userId -> balances.put(userId, AvailableBalance.EMPTY));
+        for (Object[] row : creditLedgerRepository.sumAvailableAmountGroupByUserId(userIds, LocalDateTime.now())) {
+            balances.put(((Number) row[0]).longValue(), new AvailableBalance((BigDecimal) row[1], toLocalDateTime(row[2])));
+        }
+        return balances;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    /**
+     * Compute the user's balance as this transaction sees it and schedule it to be written to the cache after
+     * commit, versioned by the transaction log row just written.
+     * The caller must hold the user's summary row lock from before the log row was written, so versions are
+     * allocated in commit order and the balance computed here is not overtaken by a concurrent mutation.
+     */
+    private BigDecimal writeThroughBalance(Long userId, Long version) {
+        return writeThroughBalances(Map.of(userId, version)).get(userId).balance();
+    }
+
+    private Map<Long, AvailableBalance> writeThroughBalances(Map<Long, Long> versions) {
+        // Pending inserts/updates must reach the database before the native aggregate reads it
+        creditLedgerRepository.flush();
+        long start = System.currentTimeMillis();
+        Map<Long, AvailableBalance> balances = computeAvailableBalances(versions.keySet());
+        balanceCache.writeThroughAfterCommit(balances, versions, System.currentTimeMillis() - start);
+        userOwnership.recordAfterCommit(balances);
+        return balances;
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @ReadReplica(userIds = "#userIds")
+    @QueryBudget(statements = 1)
+    public Map<Long, BigDecimal> getAvailableBalances(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> distinctUserIds = userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (distinctUserIds.size() > balanceBatchMaxSize) {
+            throw new CreditException("BATCH_TOO_LARGE",
+                    String.format("At most %d user IDs are allowed per request", balanceBatchMaxSize));
+        }
+
+        // 1. Read cached balances with a single MGET
+        Map<Long, BigDecimal> balances = new HashMap<>(balanceCache.multiGet(distinctUserIds));
+
+        // 2. Compute all misses with one grouped aggregate
+        List<Long> misses = distinctUserIds.stream()
+                .filter(userId -> !balances.containsKey(userId))
+                .toList();
+        if (!misses.isEmpty()) {
+            long start = System.currentTimeMillis();
+            Map<Long, AvailableBalance> computed = computeAvailableBalances(misses);
+
+            // 3. Repopulate the cache in one pipelined write
+            balanceCache.multiPut(computed, System.currentTimeMillis() - start);
+            computed.forEach((userId, balance) -> balances.put(userId, balance.balance()));
+        }
+
+        // 4. Hold back sessions reserved on the fast path, one pipelined read for all users
+        Map<Long, BigDecimal> available = fastReservationStore.subtractPending(balances);
+
+        Map<Long, BigDecimal> result = new LinkedHashMap<>();
+        distinctUserIds.forEach(userId -> result.put(userId, available.get(userId)));
+        return result;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @ReadReplica(userIds = "#userId")
     public Page<CreditTransactionLog> getTransactionHistory(Long userId, int page, int size) {
         return transactionLogRepository.findByUserIdOrderByCreatedAtDesc(
                 userId,
                 PageRequest.of(page, size));
     }
 
+    /**
+     * Budget holds for up to one JDBC batch (50) of touched ledgers: with the default lock batch of 4 they are
+     * locked by 4 queries (4 + 8 + 16 + 32).
+     */
     @Override
     @Transactional
-    @CacheEvict(value = "userBalance", key = "T(String).valueOf(#userId)")
+    @QueryBudget(statements = 11, redisCommands = 8)
+    @SerializedPerUser(userIds = "#userId")
     public CreditTransactionLog deductCredit(Long userId, BigDecimal amount, SourceType sourceType, String sourceId, String idempotencyId) {
         // 1. Idempotency check
-        String lockKey = String.format("credit:deduct:%d:%s", userId, idempotencyId);
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 24, TimeUnit.HOURS);
-        if (Boolean.FALSE.equals(acquired)) {
+        String idempotencyKey = userId + ":" + idempotencyId;
+        Optional<CreditTransactionLog> original = findOriginal(
+                idempotencyStore.acquire("deduct", idempotencyKey), idempotencyId);
+        if (original.isPresent()) {
             // If idempotencyId exists, return the existing transaction record
-            return transactionLogRepository.findByTransactionId(idempotencyId)
-                    .orElseThrow(() -> new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID"));
+            return original.get();
         }
 
         try {
             // 2. Parameter validation
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            long amountMicros = MicroCredits.of(amount);
+            if (amountMicros <= 0) {
                 throw new CreditException("INVALID_AMOUNT", "Credit amount must be positive");
             }
 
-            // 3. Check balance
+            // 3. Check balance; a pool shard running low first pulls credits over from its siblings. The summary is
+            // locked before any ledger, the order every path takes, so deducts and rebalances never deadlock
+            userCreditSummaryRepository.lockSummary(userId);
             BigDecimal availableBalance = getAvailableBalance(userId);
-            if (availableBalance.compareTo(amount) < 0) {
+            long availableMicros = MicroCredits.ofStored(availableBalance);
+            if (availableMicros < amountMicros && PoolShards.isShard(userId)) {
+                availableMicros += rebalanceInto(userId, availableMicros, amountMicros - availableMicros);
+                availableBalance = MicroCredits.toBigDecimal(availableMicros);
+            }
+            if (availableMicros < amountMicros) {
                 log.error("Insufficient credit balance: availableBalance={}, amount={}, userId={}", availableBalance, amount, userId);
-                amount=availableBalance;
+                amountMicros = availableMicros;
+                amount = availableBalance;
             }
 
-            // 4. Get available credit batches (sorted by expiration time)
-            List<CreditLedger> availableLedgers = creditLedgerRepository
-                    .findByUserIdAndStatusAndExpiresAtAfterOrderByExpiresAtAsc(
-                            userId,
-                            CreditLedger.CreditStatus.ACTIVE,
-                            LocalDateTime.now());
-
-            // 5. Deduct credits and record details
-            BigDecimal remainingAmount = amount;
-            for (CreditLedger ledger : availableLedgers) {
-                if (remainingAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                    break;
-                }
+            readYourWritesGuard.recordWrite(userId);
+            userOwnership.claim(userId);
 
-                BigDecimal deductAmount = ledger.getRemainingAmount().min(remainingAmount);
-                ledger.setRemainingAmount(ledger.getRemainingAmount().subtract(deductAmount));
-                if (ledger.getRemainingAmount().compareTo(BigDecimal.ZERO) == 0) {
-                    ledger.setStatus(CreditLedger.CreditStatus.CONSUMED);
-                }
-                creditLedgerRepository.save(ledger);
-
-                // Record consumption details
-                CreditConsumptionDetail detail = new CreditConsumptionDetail();
-                detail.setTransactionId(idempotencyId);
-                detail.setLedgerId(ledger.getId());
-                detail.setAmount(deductAmount);
-                consumptionDetailRepository.save(detail);
+            // 4. Deduct credits from available batches (sorted by expiration time) and record details
+            List<CreditConsumptionDetail> details = new ArrayList<>();
+            long consumedMicros = consumeLedgers(userId, amountMicros, idempotencyId, details);
 
-                remainingAmount = remainingAmount.subtract(deductAmount);
-            }
-
-            // 6. Update user total balance
-            UserCreditSummary summary = userCreditSummaryRepository.findByUserId(userId)
+            // 5. Update user total balance by what was actually taken from the ledgers
+            userCreditSummaryRepository.subtractFromTotalBalance(userId, MicroCredits.toBigDecimal(consumedMicros))
                     .orElseThrow(() -> new CreditException("USER_NOT_FOUND", "User credit summary not found"));
-            summary.setTotalBalance(summary.getTotalBalance().subtract(amount));
-            userCreditSummaryRepository.save(summary);
 
-            // 7. Record transaction log
+            // 6. Record transaction log
             CreditTransactionLog log = new CreditTransactionLog();
             log.setUserId(userId);
             log.setTransactionId(idempotencyId);
@@ -205,50 +309,67 @@ public class CreditServiceImpl implements CreditService {
             log.setAmount(amount);
             log.setSourceType(sourceType.toString());
             log.setSourceId(sourceId);
-            return transactionLogRepository.save(log);
+            long version = transactionLogWriter.write(log, details);
+
+            log.setBalanceAfter(writeThroughBalance(userId, version));
+            return log;
 
         } catch (Exception e) {
-            redisTemplate.delete(lockKey);
+            idempotencyStore.release("deduct", idempotencyKey);
             throw e;
         }
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "userBalance", key = "T(String).valueOf(#userId)")
+    @QueryBudget(statements = 5, redisCommands = 8)
+    @SerializedPerUser(userIds = "#userId")
     public CreateSessionResponse startSession(Long userId, BigDecimal maxAmount, String idempotencyId) {
-        // 1. Idempotency check
-        String lockKey = String.format("credit:session:start:%d:%s", userId, idempotencyId);
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 24, TimeUnit.HOURS);
-        if (Boolean.FALSE.equals(acquired)) {
-            return transactionLogRepository.findByTransactionId(idempotencyId)
-                    .map(log -> {
-                        CreateSessionResponse response = new CreateSessionResponse();
-                        response.setSessionId(log.getSourceId());
-                        response.setUserId(log.getUserId());
-                        response.setAmount(log.getAmount());
-                        response.setIdempotencyId(idempotencyId);
-                        return response;
-                    })
-                    .orElseThrow(() -> new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID"));
+        // 1. Idempotency check, shared by the fast and database paths so a retry on either finds a session started on the other
+        String idempotencyKey = userId + ":" + idempotencyId;
+        IdempotencyStore.Outcome idempotency = idempotencyStore.acquire("session:start", idempotencyKey);
+        Optional<CreateSessionResponse> started = findStartedSession(idempotency, userId, maxAmount, idempotencyId);
+        if (started.isPresent()) {
+            return started.get();
         }
 
         try {
             // 2. Parameter validation
-            if (maxAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (MicroCredits.of(maxAmount) <= 0) {
                 throw new CreditException("INVALID_AMOUNT", "Max amount must be positive");
             }
 
-            // 3. Check available balance
+            // 3. Fast path: reserve against the cached balance in one Redis script and persist the freeze afterwards
+            if (fastReservationStore.isEnabled()) {
+                FastReservationStore.Outcome outcome = fastReservationStore.reserve(
+                        userId, MicroCredits.of(maxAmount), idempotencyId, () -> computeAvailableBalance(userId));
+                switch (outcome.status()) {
+                    case INSUFFICIENT -> throw new CreditException("INSUFFICIENT_BALANCE", "Insufficient credit balance");
+                    case RESERVED, REPLAYED -> {
+                        if (outcome.reservation() != null) {
+                            fastReservationPersister.submit(outcome.reservation());
+                        }
+                        CreateSessionResponse response = sessionResponse(outcome.sessionId(), userId, maxAmount, idempotencyId);
+                        response.setBalanceAfter(outcome.remaining());
+                        return response;
+                    }
+                    case UNAVAILABLE -> log.debug("Fast reservation unavailable, using the database path: userId={}", userId);
+                }
+            }
+
+            // 4. Check available balance
             BigDecimal availableBalance = getAvailableBalance(userId);
             if (availableBalance.compareTo(maxAmount) < 0) {
                 throw new CreditException("INSUFFICIENT_BALANCE", "Insufficient credit balance");
             }
 
-            // 4. Generate session ID
+            readYourWritesGuard.recordWrite(userId);
+            userOwnership.claim(userId);
+
+            // 5. Generate session ID
             String sessionId = UUID.randomUUID().toString();
 
-            // 5. Create freeze record
+            // 6. Create freeze record
             CreditFreeze freeze = new CreditFreeze();
             freeze.setUserId(userId);
             freeze.setSessionId(sessionId);
@@ -259,7 +380,8 @@ public class CreditServiceImpl implements CreditService {
             freeze.setCreatedAt(LocalDateTime.now());
             creditFreezeRepository.save(freeze);
 
-            // 6. Record reservation transaction
+            // 7. Record reservation transaction under the summary lock so the cached balance is versioned in commit order
+            userCreditSummaryRepository.lockSummary(userId);
             CreditTransactionLog log = new CreditTransactionLog();
             log.setUserId(userId);
             log.setTransactionId(idempotencyId);
@@ -267,81 +389,68 @@ public class CreditServiceImpl implements CreditService {
             log.setAmount(maxAmount);
             log.setSourceType("SESSION");
             log.setSourceId(sessionId);
-            transactionLogRepository.save(log);
-
-            // 7. Create and return response object
-            CreateSessionResponse response = new CreateSessionResponse();
-            response.setSessionId(sessionId);
-            response.setUserId(userId);
-            response.setAmount(maxAmount);
-            response.setIdempotencyId(idempotencyId);
+            long version = transactionLogWriter.write(log, List.of());
+
+            // 8. Create and return response object
+            CreateSessionResponse response = sessionResponse(sessionId, userId, maxAmount, idempotencyId);
+            response.setBalanceAfter(writeThroughBalance(userId, version));
             return response;
 
         } catch (Exception e) {
-            redisTemplate.delete(lockKey);
+            idempotencyStore.release("session:start", idempotencyKey);
             throw e;
         }
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "userBalance", key = "T(String).valueOf(#freeze.userId)", condition = "#freeze != null")
+    @QueryBudget(statements = 10, redisCommands = 4)
+    @SerializedPerUser(sessionId = "#sessionId")
     public CreditTransactionLog settleSession(String sessionId, BigDecimal finalAmount) {
         // 1. Idempotency check
-        String lockKey = "credit:session:settle:" + sessionId;
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 24, TimeUnit.HOURS);
-        if (Boolean.FALSE.equals(acquired)) {
+        IdempotencyStore.Outcome idempotency = idempotencyStore.acquire("session:settle", sessionId);
+        if (idempotency == IdempotencyStore.Outcome.DUPLICATE) {
             throw new CreditException("DUPLICATE_OPERATION", "Session already settled");
         }
 
         try {
             // 2. Get freeze record
             CreditFreeze freeze = creditFreezeRepository.findBySessionId(sessionId)
+                    .or(() -> persistPendingReservation(sessionId))
                     .orElseThrow(() -> new CreditException("SESSION_NOT_FOUND", "Session not found"));
+            if (idempotency == IdempotencyStore.Outcome.PROBABLE_DUPLICATE) {
+                boolean settled = freeze.getStatus() == CreditFreeze.FreezeStatus.CONSUMED;
+                idempotencyStore.recordExactCheck(settled);
+                if (settled) {
+                    throw new CreditException("DUPLICATE_OPERATION", "Session already settled");
+                }
+            }
 
             // 3. Validate amount
-            if (finalAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            if (MicroCredits.of(finalAmount) <= 0) {
                 throw new CreditException("INVALID_AMOUNT", "Final amount must be positive");
             }
             if (finalAmount.compareTo(freeze.getAmount()) > 0) {
                 log.error("Final amount exceeds frozen amount: finalAmount={}, freezeAmount={}, sessionId={}", finalAmount, freeze.getAmount(), sessionId);
             }
+            readYourWritesGuard.recordWrite(freeze.getUserId());
+            userOwnership.claim(freeze.getUserId());
+
             // 4. Update freeze status
             freeze.setStatus(CreditFreeze.FreezeStatus.CONSUMED);
+            freeze.setClosedAt(LocalDateTime.now());
             creditFreezeRepository.save(freeze);
 
             // 5. Actually deduct credits
-            List<CreditLedger> availableLedgers = creditLedgerRepository
-                    .findByUserIdAndStatusAndExpiresAtAfterOrderByExpiresAtAsc(
-                            freeze.getUserId(),
-                            CreditLedger.CreditStatus.ACTIVE,
-                            LocalDateTime.now());
-
             String transactionId = UUID.randomUUID().toString();
             log.info("Starting credit settlement: sessionId={}, transactionId={}, finalAmount={}", sessionId, transactionId, finalAmount);
             
-            BigDecimal remainingAmount = finalAmount;
-            for (CreditLedger ledger : availableLedgers) {
-                if (remainingAmount.compareTo(BigDecimal.ZERO) <= 0) {
-                    break;
-                }
-
-                BigDecimal deductAmount = ledger.getRemainingAmount().min(remainingAmount);
-                ledger.setRemainingAmount(ledger.getRemainingAmount().subtract(deductAmount));
-                if (ledger.getRemainingAmount().compareTo(BigDecimal.ZERO) == 0) {
-                    ledger.setStatus(CreditLedger.CreditStatus.CONSUMED);
-                }
-                creditLedgerRepository.save(ledger);
-
-                // Record consumption details
-                CreditConsumptionDetail detail = new CreditConsumptionDetail();
-                detail.setTransactionId(transactionId);
-                detail.setLedgerId(ledger.getId());
-                detail.setAmount(deductAmount);
-                consumptionDetailRepository.save(detail);
-
-                remainingAmount = remainingAmount.subtract(deductAmount);
-            }
+            // Summary before ledgers, as in deductCredit
+            userCreditSummaryRepository.lockSummary(freeze.getUserId());
+            List<CreditConsumptionDetail> details = new ArrayList<>();
+            long consumedMicros = consumeLedgers(freeze.getUserId(), MicroCredits.of(finalAmount), transactionId, details);
+            userCreditSummaryRepository.subtractFromTotalBalance(freeze.getUserId(), MicroCredits.toBigDecimal(consumedMicros))
+                    .orElseThrow(() -> new CreditException("USER_NOT_FOUND", "User credit summary not found"));
 
             // 6. Record consumption transaction
             CreditTransactionLog consumeLog = new CreditTransactionLog();
@@ -351,33 +460,345 @@ public class CreditServiceImpl implements CreditService {
             consumeLog.setAmount(finalAmount);
             consumeLog.setSourceType("SESSION");
             consumeLog.setSourceId(sessionId);
-            CreditTransactionLog savedLog = transactionLogRepository.save(consumeLog);
-            
+            long version = transactionLogWriter.write(consumeLog, details);
+            consumeLog.setBalanceAfter(writeThroughBalance(freeze.getUserId(), version));
+
             log.info("Credit settlement completed: sessionId={}, transactionId={}, finalAmount={}", sessionId, transactionId, finalAmount);
-            return savedLog;
+            return consumeLog;
 
         } catch (Exception e) {
             log.error("Error during credit settlement: sessionId={}, error={}", sessionId, e.getMessage(), e);
-            redisTemplate.delete(lockKey);
+            idempotencyStore.release("session:settle", sessionId);
             throw e;
         }
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "userBalance", key = "T(String).valueOf(#freeze.userId)", condition = "#freeze != null")
+    @SerializedPerUser(userIds = "#reservation.userId()")
+    public void persistFastReservation(PendingReservation reservation) {
+        if (creditFreezeRepository.findBySessionId(reservation.sessionId()).isEmpty()) {
+            insertReservation(reservation);
+        }
+        fastReservationStore.releaseAfterCommit(reservation);
+    }
+
+    /**
+     * Move credits from sibling shards of a pool into the shard {@code accountId}: at least {@code neededMicros}, and
+     * up to the pool's average shard balance so the next deducts on this shard do not rebalance again. The caller
+     * holds the shard's own summary lock; siblings' summaries and then their ledgers are locked with SKIP LOCKED and
+     * passed over while another transaction holds them, so a rebalance never waits.
+     * @return Micro-credits moved in
+     */
+    private long rebalanceInto(Long accountId, long availableMicros, long neededMicros) {
+        long poolId = PoolShards.poolIdOf(accountId);
+        int shardCount = creditPoolRepository.findById(poolId).map(CreditPool::getShardCount).orElse(0);
+        List<Long> siblings = new ArrayList<>(PoolShards.accountIds(poolId, shardCount));
+        siblings.remove(accountId);
+        if (siblings.isEmpty()) {
+            return 0;
+        }
+
+        // 1. Whichever siblings are free
+        List<Long> donors = new ArrayList<>(userCreditSummaryRepository.lockUnheldSummaries(siblings));
+        if (donors.isEmpty()) {
+            return 0;
+        }
+
+        // 2. Aim for the pool's average shard balance, taking from the richest siblings first
+        Map<Long, AvailableBalance> balances = computeAvailableBalances(siblings);
+        long poolMicros = availableMicros;
+        for (AvailableBalance balance : balances.values()) {
+            poolMicros += MicroCredits.ofStored(balance.balance());
+        }
+        long wantedMicros = Math.max(neededMicros, poolMicros / shardCount - availableMicros);
+        donors.sort(Comparator.comparing((Long donor) -> balances.get(donor).balance()).reversed());
+
+        LocalDateTime now = LocalDateTime.now();
+        long movedMicros = 0;
+        Map<Long, Long> donorVersions = new HashMap<>();
+        for (Long donor : donors) {
+            long takeMicros = Math.min(wantedMicros - movedMicros, MicroCredits.ofStored(balances.get(donor).balance()));
+            if (takeMicros <= 0) {
+                continue;
+            }
+            movedMicros += transferLedgers(donor, accountId, takeMicros, now, donorVersions);
+            if (movedMicros >= wantedMicros) {
+                break;
+            }
+        }
+        if (!donorVersions.isEmpty()) {
+            readYourWritesGuard.recordWrites(donorVersions.keySet());
+            writeThroughBalances(donorVersions);
+        }
+        log.info("Pool shard rebalanced: accountId={}, needed={}, moved={}, donors={}",
+                accountId, MicroCredits.toBigDecimal(neededMicros), MicroCredits.toBigDecimal(movedMicros), donorVersions.keySet());
+        return movedMicros;
+    }
+
+    /**
+     * Move up to {@code amountMicros} from one shard's unlocked ledgers, in FEFO order, into new ledgers of another
+     * shard with the same expiry and source. Logged as a TRANSFER_OUT/TRANSFER_IN pair under one transaction ID.
+     * Ledgers are locked in growing batches as in {@link #consumeLedgers}, so only what the move needs is locked.
+     * @return Micro-credits moved
+     */
+    private long transferLedgers(Long fromAccountId, Long toAccountId, long amountMicros, LocalDateTime now,
+                                 Map<Long, Long> versions) {
+        String transactionId = UUID.randomUUID().toString();
+        long movedMicros = 0;
+        List<CreditLedger> changed = new ArrayList<>();
+        List<CreditConsumptionDetail> details = new ArrayList<>();
+        LocalDateTime afterExpiresAt = now;
+        long afterId = 0;
+        int batchSize = ledgerLockBatchSize;
+        while (movedMicros < amountMicros) {
+            List<CreditLedger> ledgers = creditLedgerRepository.lockActiveLedgersAfterSkipLocked(
+                    fromAccountId, now, afterExpiresAt, afterId, batchSize);
+            if (ledgers.isEmpty()) {
+                break;
+            }
+            long[] remaining = new long[ledgers.size()];
+            long[] taken = new long[ledgers.size()];
+            for (int i = 0; i < remaining.length; i++) {
+                remaining[i] = MicroCredits.ofStored(ledgers.get(i).getRemainingAmount());
+            }
+            int visited = FefoAllocator.allocate(remaining, amountMicros - movedMicros, taken);
+
+            for (int i = 0; i < visited; i++) {
+                if (taken[i] == 0) {
+                    continue;
+                }
+                movedMicros += taken[i];
+                CreditLedger source = ledgers.get(i);
+                source.setRemainingAmount(MicroCredits.toBigDecimal(remaining[i]));
+                if (remaining[i] == 0) {
+                    source.setStatus(CreditLedger.CreditStatus.CONSUMED);
+                }
+                changed.add(source);
+
+                CreditConsumptionDetail detail = new CreditConsumptionDetail();
+                detail.setTransactionId(transactionId);
+                detail.setLedgerId(source.getId());
+                detail.setAmount(MicroCredits.toBigDecimal(taken[i]));
+                details.add(detail);
+
+                CreditLedger moved = new CreditLedger();
+                moved.setUserId(toAccountId);
+                moved.setRemainingAmount(MicroCredits.toBigDecimal(taken[i]));
+                moved.setStatus(CreditLedger.CreditStatus.ACTIVE);
+                moved.setSourceType(source.getSourceType());
+                moved.setSourceId(source.getSourceId());
+                moved.setExpiresAt(source.getExpiresAt());
+                changed.add(moved);
+            }
+
+            CreditLedger last = ledgers.get(ledgers.size() - 1);
+            afterExpiresAt = last.getExpiresAt();
+            afterId = last.getId();
+            batchSize = Math.min(batchSize * 2, MAX_LEDGER_LOCK_BATCH_SIZE);
+        }
+        if (movedMicros == 0) {
+            return 0;
+        }
+        creditLedgerRepository.saveAll(changed);
+
+        BigDecimal amount = MicroCredits.toBigDecimal(movedMicros);
+        userCreditSummaryRepository.subtractFromTotalBalance(fromAccountId, amount);
+        userCreditSummaryRepository.addToTotalBalance(toAccountId, amount);
+
+        CreditTransactionLog transferOut = new CreditTransactionLog();
+        transferOut.setUserId(fromAccountId);
+        transferOut.setTransactionId(transactionId);
+        transferOut.setType(CreditTransactionLog.TransactionType.TRANSFER_OUT);
+        transferOut.setAmount(amount);
+        transferOut.setSourceType(POOL_REBALANCE_SOURCE);
+        transferOut.setSourceId(String.valueOf(toAccountId));
+        versions.put(fromAccountId, transactionLogWriter.write(transferOut, details));
+
+        CreditTransactionLog transferIn = new CreditTransactionLog();
+        transferIn.setUserId(toAccountId);
+        transferIn.setTransactionId(transactionId);
+        transferIn.setType(CreditTransactionLog.TransactionType.TRANSFER_IN);
+        transferIn.setAmount(amount);
+        transferIn.setSourceType(POOL_REBALANCE_SOURCE);
+        transferIn.setSourceId(String.valueOf(fromAccountId));
+        transactionLogWriter.write(transferIn, List.of());
+        return movedMicros;
+    }
+
+    /**
+     * The transaction a repeated idempotency ID refers to. A probable duplicate without one is a filter false
+     * positive, or a retry after a failed call, and goes ahead.
+     * @throws CreditException if the ID is claimed but its transaction is not visible yet
+     */
+    private Optional<CreditTransactionLog> findOriginal(IdempotencyStore.Outcome outcome, String idempotencyId) {
+        if (outcome == IdempotencyStore.Outcome.NEW) {
+            return Optional.empty();
+        }
+        Optional<CreditTransactionLog> original = transactionLogWriter.findByTransactionId(idempotencyId);
+        if (outcome == IdempotencyStore.Outcome.DUPLICATE) {
+            return Optional.of(original.orElseThrow(
+                    () -> new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID")));
+        }
+        idempotencyStore.recordExactCheck(original.isPresent());
+        return original;
+    }
+
+    /**
+     * The session a repeated start refers to: its RESERVE log, or else the session the fast path reserved for the
+     * same ID and has not persisted yet.
+     * @throws CreditException if the ID is claimed but neither is visible yet
+     */
+    private Optional<CreateSessionResponse> findStartedSession(IdempotencyStore.Outcome outcome, Long userId,
+                                                               BigDecimal maxAmount, String idempotencyId) {
+        if (outcome == IdempotencyStore.Outcome.NEW) {
+            return Optional.empty();
+        }
+        Optional<CreateSessionResponse> started = transactionLogWriter.findByTransactionId(idempotencyId)
+                .map(original -> sessionResponse(original.getSourceId(), original.getUserId(), original.getAmount(), idempotencyId))
+                .or(() -> fastReservationStore.findSessionId(userId, idempotencyId)
+                        .map(sessionId -> sessionResponse(sessionId, userId, maxAmount, idempotencyId)));
+        if (outcome == IdempotencyStore.Outcome.DUPLICATE) {
+            return Optional.of(started.orElseThrow(
+                    () -> new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID")));
+        }
+        idempotencyStore.recordExactCheck(started.isPresent());
+        return started;
+    }
+
+    private static CreateSessionResponse sessionResponse(String sessionId, Long userId, BigDecimal amount, String idempotencyId) {
+        CreateSessionResponse response = new CreateSessionResponse();
+        response.setSessionId(sessionId);
+        response.setUserId(userId);
+        response.setAmount(amount);
+        response.setIdempotencyId(idempotencyId);
+        return response;
+    }
+
+    /**
+     * Settling or cancelling a fast-path session can overtake its background persistence; write it first.
+     */
+    private Optional<CreditFreeze> persistPendingReservation(String sessionId) {
+        return fastReservationStore.findBySessionId(sessionId).map(reservation -> {
+            CreditFreeze freeze = insertReservation(reservation);
+            fastReservationStore.releaseAfterCommit(reservation);
+            return freeze;
+        });
+    }
+
+    private CreditFreeze insertReservation(PendingReservation reservation) {
+        readYourWritesGuard.recordWrite(reservation.userId());
+
+        LocalDateTime reservedAt = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(reservation.createdAtMillis()), ZoneId.systemDefault());
+        BigDecimal amount = MicroCredits.toBigDecimal(reservation.amountMicros());
+        CreditFreeze freeze = new CreditFreeze();
+        freeze.setUserId(reservation.userId());
+        freeze.setSessionId(reservation.sessionId());
+        freeze.setAmount(amount);
+        freeze.setRequestId(reservation.idempotencyId());
+        freeze.setStatus(CreditFreeze.FreezeStatus.ACTIVE);
+        freeze.setExpiresAt(reservedAt.plusHours(24));
+        freeze.setCreatedAt(reservedAt);
+        creditFreezeRepository.save(freeze);
+
+        userCreditSummaryRepository.lockSummary(reservation.userId());
+        CreditTransactionLog log = new CreditTransactionLog();
+        log.setUserId(reservation.userId());
+        log.setTransactionId(reservation.idempotencyId());
+        log.setType(CreditTransactionLog.TransactionType.RESERVE);
+        log.setAmount(amount);
+        log.setSourceType("SESSION");
+        log.setSourceId(reservation.sessionId());
+        writeThroughBalance(reservation.userId(), transactionLogWriter.write(log, List.of()));
+        return freeze;
+    }
+
+    /**
+     * Consume credits from the user's active ledgers in FEFO order and add one consumption detail per ledger touched
+     * to {@code details}.
+     * Ledgers are locked in batches that start at {@code ledgerLockBatchSize} and double, and fetching stops once
+     * the amount is covered, so a deduct served by its first ledger locks and reads only the first batch while one
+     * spanning many ledgers needs few queries.
+     * Any part of {@code amountMicros} not covered by active ledgers is left unallocated.
+     * @return Micro-credits actually taken from the ledgers
+     */
+    private long consumeLedgers(Long userId, long amountMicros, String transactionId, List<CreditConsumptionDetail> details) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime afterExpiresAt = now;
+        long afterId = 0;
+        long consumedMicros = 0;
+        List<CreditLedger> touchedLedgers = new ArrayList<>();
+        int batchSize = ledgerLockBatchSize;
+        long[] taken = new long[batchSize];
+        while (consumedMicros < amountMicros) {
+            List<CreditLedger> batch = creditLedgerRepository.lockActiveLedgersAfter(
+                    userId, now, afterExpiresAt, afterId, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            long[] batchRemaining = new long[batch.size()];
+            if (taken.length < batch.size()) {
+                taken = new long[batch.size()];
+            }
+            for (int i = 0; i < batchRemaining.length; i++) {
+                batchRemaining[i] = MicroCredits.ofStored(batch.get(i).getRemainingAmount());
+            }
+            int visited = FefoAllocator.allocate(batchRemaining, amountMicros - consumedMicros, taken);
+
+            for (int i = 0; i < visited; i++) {
+                if (taken[i] == 0) {
+                    continue;
+                }
+                consumedMicros += taken[i];
+                CreditLedger ledger = batch.get(i);
+                ledger.setRemainingAmount(MicroCredits.toBigDecimal(batchRemaining[i]));
+                if (batchRemaining[i] == 0) {
+                    ledger.setStatus(CreditLedger.CreditStatus.CONSUMED);
+                }
+                touchedLedgers.add(ledger);
+
+                // Record consumption details
+                CreditConsumptionDetail detail = new CreditConsumptionDetail();
+                detail.setTransactionId(transactionId);
+                detail.setLedgerId(ledger.getId());
+                detail.setAmount(MicroCredits.toBigDecimal(taken[i]));
+                details.add(detail);
+            }
+
+            CreditLedger last = batch.get(batch.size() - 1);
+            afterExpiresAt = last.getExpiresAt();
+            afterId = last.getId();
+            batchSize = Math.min(batchSize * 2, MAX_LEDGER_LOCK_BATCH_SIZE);
+        }
+        creditLedgerRepository.saveAll(touchedLedgers);
+        return consumedMicros;
+    }
+
+    @Override
+    @Transactional
+    @QueryBudget(statements = 6, redisCommands = 4)
+    @SerializedPerUser(sessionId = "#sessionId")
     public void cancelSession(String sessionId) {
         // 1. Idempotency check
-        String lockKey = "credit:session:cancel:" + sessionId;
-        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, "1", 24, TimeUnit.HOURS);
-        if (Boolean.FALSE.equals(acquired)) {
+        IdempotencyStore.Outcome idempotency = idempotencyStore.acquire("session:cancel", sessionId);
+        if (idempotency == IdempotencyStore.Outcome.DUPLICATE) {
             return;
         }
 
         try {
             // 2. Get freeze record
             CreditFreeze freeze = creditFreezeRepository.findBySessionId(sessionId)
+                    .or(() -> persistPendingReservation(sessionId))
                     .orElseThrow(() -> new CreditException("SESSION_NOT_FOUND", "Session not found"));
+            if (idempotency == IdempotencyStore.Outcome.PROBABLE_DUPLICATE) {
+                boolean cancelled = freeze.getStatus() == CreditFreeze.FreezeStatus.CANCELLED;
+                idempotencyStore.recordExactCheck(cancelled);
+                if (cancelled) {
+                    return;
+                }
+            }
 
             // 3. Check session status
             if (freeze.getStatus() != CreditFreeze.FreezeStatus.ACTIVE) {
@@ -386,11 +807,16 @@ public class CreditServiceImpl implements CreditService {
                     String.format("Cannot cancel session with status: %s", freeze.getStatus()));
             }
 
+            readYourWritesGuard.recordWrite(freeze.getUserId());
+            userOwnership.claim(freeze.getUserId());
+
             // 4. Update freeze status
             freeze.setStatus(CreditFreeze.FreezeStatus.CANCELLED);
+            freeze.setClosedAt(LocalDateTime.now());
             creditFreezeRepository.save(freeze);
 
-            // 5. Record cancellation transaction
+            // 5. Record cancellation transaction under the summary lock
+            userCreditSummaryRepository.lockSummary(freeze.getUserId());
             String transactionId = UUID.randomUUID().toString();
             log.info("Starting credit session cancellation: sessionId={}, transactionId={}", sessionId, transactionId);
             
@@ -401,19 +827,20 @@ public class CreditServiceImpl implements CreditService {
             cancelLog.setAmount(freeze.getAmount());
             cancelLog.setSourceType("SESSION");
             cancelLog.setSourceId(sessionId);
-            transactionLogRepository.save(cancelLog);
-            
+            writeThroughBalance(freeze.getUserId(), transactionLogWriter.write(cancelLog, List.of()));
+
             log.info("Credit session cancellation completed: sessionId={}, transactionId={}", sessionId, transactionId);
 
         } catch (Exception e) {
             log.error("Error during credit session cancellation: sessionId={}, error={}", sessionId, e.getMessage(), e);
-            redisTemplate.delete(lockKey);
+            idempotencyStore.release("session:cancel", sessionId);
             throw e;
         }
     }
 
     @Override
     @Transactional
+    @BulkWork(priority = BulkWork.Priority.HIGH)
     public BatchCreditGrantResponse batchGrantCredit(List<BatchCreditGrantRequest.CreditGrantItem> items) {
         // 收集所有需要清除缓存的用户ID
         Set<Long> userIds = items.stream()
@@ -426,26 +853,40 @@ public class CreditServiceImpl implements CreditService {
         
         // 使用批量插入优化数据库操作
         List<CreditLedger> ledgers = new ArrayList<>();
-        List<UserCreditSummary> summaries = new ArrayList<>();
         List<CreditTransactionLog> logs = new ArrayList<>();
         
-        // 使用Redis Pipeline批量处理锁
-        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
-            for (BatchCreditGrantRequest.CreditGrantItem item : items) {
-                String lockKey = String.format("credit:grant:%d:%s", item.getUserId(), item.getIdempotencyId());
-                connection.stringCommands().setNX(lockKey.getBytes(), "1".getBytes());
-                connection.keyCommands().expire(lockKey.getBytes(), 24 * 3600); // 24小时过期
+        // 一次Pipeline批量占用幂等ID，直接用每条的结果判断幂等
+        List<String> idempotencyKeys = items.stream()
+                .map(item -> item.getUserId() + ":" + item.getIdempotencyId())
+                .toList();
+        List<IdempotencyStore.Outcome> acquired = idempotencyStore.acquireAll("grant", idempotencyKeys);
+        // 本批次事务未提交时释放本次占用的幂等ID，否则重试会在整个幂等窗口内被判为重复
+        Set<String> claimedKeys = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (acquired.get(i) != IdempotencyStore.Outcome.DUPLICATE) {
+                claimedKeys.add(idempotencyKeys.get(i));
             }
-            return null;
-        });
+        }
+        idempotencyStore.releaseUnlessCommitted("grant", claimedKeys);
+
+        // 按用户累计汇总余额的增量，最后一次性原子更新
+        Map<Long, BigDecimal> summaryDeltas = new HashMap<>();
         
-        for (BatchCreditGrantRequest.CreditGrantItem item : items) {
+        for (int i = 0; i < items.size(); i++) {
+            BatchCreditGrantRequest.CreditGrantItem item = items.get(i);
             try {
                 // 检查幂等性
-                String lockKey = String.format("credit:grant:%d:%s", item.getUserId(), item.getIdempotencyId());
-                if (Boolean.FALSE.equals(redisTemplate.hasKey(lockKey))) {
+                if (acquired.get(i) == IdempotencyStore.Outcome.DUPLICATE) {
                     throw new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID");
                 }
+                if (acquired.get(i) == IdempotencyStore.Outcome.PROBABLE_DUPLICATE) {
+                    // 布隆过滤器可能误判，只有查到原流水才算重复
+                    boolean duplicate = transactionLogWriter.findByTransactionId(item.getIdempotencyId()).isPresent();
+                    idempotencyStore.recordExactCheck(duplicate);
+                    if (duplicate) {
+                        throw new CreditException("DUPLICATE_REQUEST", "Duplicate idempotency ID");
+                    }
+                }
                 
                 // 构建对象但不立即保存
                 CreditLedger ledger = new CreditLedger();
@@ -456,14 +897,7 @@ public class CreditServiceImpl implements CreditService {
                 ledger.setSourceId(item.getSourceId());
                 ledger.setExpiresAt(item.getExpiresAt());
                 
-                UserCreditSummary summary = userCreditSummaryRepository.findByUserId(item.getUserId())
-                    .orElseGet(() -> {
-                        UserCreditSummary newSummary = new UserCreditSummary();
-                        newSummary.setUserId(item.getUserId());
-                        newSummary.setTotalBalance(BigDecimal.ZERO);
-                        return newSummary;
-                    });
-                summary.setTotalBalance(summary.getTotalBalance().add(item.getAmount()));
+                summaryDeltas.merge(item.getUserId(), item.getAmount(), BigDecimal::add);
                 
                 CreditTransactionLog log = new CreditTransactionLog();
                 log.setUserId(item.getUserId());
@@ -474,41 +908,45 @@ public class CreditServiceImpl implements CreditService {
                 log.setSourceId(item.getSourceId());
                 
                 ledgers.add(ledger);
-                summaries.add(summary);
                 logs.add(log);
-                
-                successResults.add(CreditGrantResponse.fromTransactionLog(log));
             } catch (Exception e) {
                 log.error("Failed to grant credit for user {}: {}", item.getUserId(), e.getMessage());
+                // 未发放的条目释放幂等ID，允许重试
+                if (claimedKeys.contains(idempotencyKeys.get(i))
+                        && !(e instanceof CreditException creditException && "DUPLICATE_REQUEST".equals(creditException.getCode()))) {
+                    idempotencyStore.release("grant", idempotencyKeys.get(i));
+                }
                 failResults.add(BatchCreditGrantResponse.FailedGrantResult.builder()
                     .userId(item.getUserId())
+                    .idempotencyId(item.getIdempotencyId())
                     .errorCode(e instanceof CreditException ? ((CreditException) e).getCode() : "UNKNOWN_ERROR")
                     .errorMessage(e.getMessage())
                     .build());
             }
         }
         
+        readYourWritesGuard.recordWrites(userIds);
+
         // 批量保存
         if (!ledgers.isEmpty()) {
             creditLedgerRepository.saveAll(ledgers);
         }
-        if (!summaries.isEmpty()) {
-            userCreditSummaryRepository.saveAll(summaries);
-        }
+        // 不做进程内按用户串行化（一批可能覆盖上千用户，会阻塞这些用户的所有交互式请求）；
+        // 按用户ID顺序锁定汇总行，流水ID在加锁后分配，缓存写回的版本仍按提交顺序递增
+        userCreditSummaryRepository.addToTotalBalances(summaryDeltas);
         if (!logs.isEmpty()) {
             transactionLogRepository.saveAll(logs);
+
+            // 提交后写回所有相关用户的最新余额，版本取该用户本批次最后一条流水ID
+            Map<Long, Long> versions = new HashMap<>();
+            logs.forEach(log -> versions.merge(log.getUserId(), log.getId(), Math::max));
+            Map<Long, AvailableBalance> balances = writeThroughBalances(versions);
+            for (CreditTransactionLog log : logs) {
+                log.setBalanceAfter(balances.get(log.getUserId()).balance());
+                successResults.add(CreditGrantResponse.fromTransactionLog(log));
+            }
         }
-        
-        // 最后一次性清除所有相关用户的缓存
-        if (!userIds.isEmpty()) {
-            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
-                for (Long userId : userIds) {
-                    connection.keyCommands().del(("userBalance::" + userId).getBytes());
-                }
-                return null;
-            });
-        }
-        
+
         return BatchCreditGrantResponse.builder()
             .successCount(successResults.size())
             .failCount(failResults.size())
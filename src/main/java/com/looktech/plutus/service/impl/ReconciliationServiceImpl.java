@@ -0,0 +1,293 @@
+package com.looktech.plutus.service.impl;
+
+import com.looktech.plutus.annotation.BulkWork;
+import com.looktech.plutus.dto.ReconciliationReport;
+import com.looktech.plutus.exception.CreditException;
+import com.looktech.plutus.service.ReconciliationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Slf4j
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    /**
+     * Granted includes credits moved in from another pool shard; their source ledgers count the move as
+     * consumed. Users changed within the grace period skip the consumption check, since with the WAL on their
+     * logs and details may not be drained yet.
+     */
+    private static final String DRIFT_QUERY =
+            "WITH l AS (" +
+            "  SELECT user_id, SUM(remaining_amount) AS remaining FROM credit_ledgers " +
+            "  WHERE user_id >= ? AND user_id < ? GROUP BY user_id), " +
+            "g AS (" +
+            "  SELECT user_id, SUM(amount) AS granted FROM credit_transaction_logs " +
+            "  WHERE user_id >= ? AND user_id < ? AND type IN ('GRANT', 'TRANSFER_IN') GROUP BY user_id), " +
+            "c AS (" +
+            "  SELECT cl.user_id, SUM(d.amount) AS consumed FROM credit_consumption_detail d " +
+            "  JOIN credit_ledgers cl ON cl.id = d.ledger_id " +
+            "  WHERE cl.user_id >= ? AND cl.user_id < ? GROUP BY cl.user_id) " +
+            "SELECT s.user_id, s.total_balance, COALESCE(l.remaining, 0) AS remaining, " +
+            "       COALESCE(g.granted, 0) AS granted, COALESCE(c.consumed, 0) AS consumed, " +
+            "       s.updated_at < ? AS settled " +
+            "FROM user_credit_summaries s " +
+            "LEFT JOIN l ON l.user_id = s.user_id " +
+            "LEFT JOIN g ON g.user_id = s.user_id " +
+            "LEFT JOIN c ON c.user_id = s.user_id " +
+            "WHERE s.user_id >= ? AND s.user_id < ? " +
+            "  AND (s.total_balance <> COALESCE(l.remaining, 0) " +
+            "       OR (s.updated_at < ? AND COALESCE(g.granted, 0) - COALESCE(l.remaining, 0) <> COALESCE(c.consumed, 0)))";
+
+    // Recomputes the ledger balance on the primary; the compare on the scanned value leaves
+    // summaries that moved since the scan to the next run
+    private static final String REPAIR_SUMMARY =
+            "UPDATE user_credit_summaries s SET " +
+            "  total_balance = (SELECT COALESCE(SUM(l.remaining_amount), 0) FROM credit_ledgers l WHERE l.user_id = s.user_id), " +
+            "  version = s.version + 1, updated_at = now() " +
+            "WHERE s.user_id = ? AND s.total_balance = ?";
+
+    /** Session-level advisory lock held by the pod running a scan. */
+    private static final long ADVISORY_LOCK_KEY = 0x5245434f4e43L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private ForkJoinPool pool;
+
+    @Value("${credit.reconciliation.range-size:10000}")
+    private long rangeSize;
+
+    @Value("${credit.reconciliation.parallelism:4}")
+    private int parallelism;
+
+    @Value("${credit.reconciliation.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${credit.reconciliation.max-reported-drifts:1000}")
+    private int maxReportedDrifts;
+
+    @Value("${credit.reconciliation.consumption-grace-seconds:600}")
+    private long consumptionGraceSeconds;
+
+    @Value("${credit.reconciliation.repair-on-schedule:false}")
+    private boolean repairOnSchedule;
+
+    public ReconciliationServiceImpl(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(cron = "${credit.reconciliation.cron:-}")
+    @BulkWork
+    public void scheduledReconcile() {
+        ReconciliationReport report;
+        try {
+            report = reconcile(repairOnSchedule);
+        } catch (CreditException e) {
+            log.info("Scheduled reconciliation skipped: {}", e.getMessage());
+            return;
+        }
+        log.info("Scheduled reconciliation finished: summaryDrift={}, consumptionDrift={}, repaired={}, durationMillis={}",
+                report.getSummaryDriftCount(), report.getConsumptionDriftCount(), report.getRepairedCount(), report.getDurationMillis());
+    }
+
+    /**
+     * One scan at a time: the flag guards this pod, and the advisory lock, held on its own connection for the
+     * whole scan, guards the others. Released by the database if the pod dies mid-scan.
+     */
+    @Override
+    @BulkWork
+    public ReconciliationReport reconcile(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            throw new CreditException("RECONCILIATION_RUNNING", "A reconciliation is already running on this instance");
+        }
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<ReconciliationReport>) connection -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_lock(" + ADVISORY_LOCK_KEY + ")")) {
+                    if (!rs.next() || !rs.getBoolean(1)) {
+                        throw new CreditException("RECONCILIATION_RUNNING", "A reconciliation is already running on another instance");
+                    }
+                }
+                try {
+                    return scan(repair);
+                } finally {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")");
+                    }
+                }
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconciliationReport scan(boolean repair) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.currentTimeMillis();
+
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                "SELECT MIN(user_id) AS min_id, MAX(user_id) AS max_id FROM user_credit_summaries");
+        Number minId = (Number) bounds.get("min_id");
+        Number maxId = (Number) bounds.get("max_id");
+
+        ScanState state = new ScanState(repair);
+        if (minId != null && maxId != null) {
+            pool.invoke(new RangeTask(minId.longValue(), maxId.longValue() + 1, state));
+        }
+
+        List<ReconciliationReport.Drift> drifts = new ArrayList<>(state.drifts);
+        log.info("Reconciliation finished: ranges={}, summaryDrift={}, consumptionDrift={}, repaired={}",
+                state.ranges.get(), state.summaryDrift.get(), state.consumptionDrift.get(), state.repaired.get());
+        return ReconciliationReport.builder()
+                .startedAt(startedAt)
+                .durationMillis(System.currentTimeMillis() - start)
+                .fromUserId(minId != null ? minId.longValue() : null)
+                .toUserId(maxId != null ? maxId.longValue() : null)
+                .rangesScanned(state.ranges.get())
+                .summaryDriftCount(state.summaryDrift.get())
+                .consumptionDriftCount(state.consumptionDrift.get())
+                .repairedCount(state.repaired.get())
+                .drifts(drifts)
+                .build();
+    }
+
+    /**
+     * Scan [fromUserId, toUserId) in one streaming, read-only query; served by a replica when one is configured.
+     */
+    private void scanRange(long fromUserId, long toUserId, ScanState state) {
+        List<ReconciliationReport.Drift> rangeDrifts = new ArrayList<>();
+        Set<Long> unsettledUsers = new HashSet<>();
+        Timestamp settledBefore = Timestamp.valueOf(LocalDateTime.now().minusSeconds(consumptionGraceSeconds));
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(DRIFT_QUERY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 1; i <= 6; i += 2) {
+                statement.setLong(i, fromUserId);
+                statement.setLong(i + 1, toUserId);
+            }
+            statement.setTimestamp(7, settledBefore);
+            statement.setLong(8, fromUserId);
+            statement.setLong(9, toUserId);
+            statement.setTimestamp(10, settledBefore);
+            return statement;
+        }, rs -> {
+            if (!rs.getBoolean("settled")) {
+                unsettledUsers.add(rs.getLong("user_id"));
+            }
+            rangeDrifts.add(ReconciliationReport.Drift.builder()
+                    .userId(rs.getLong("user_id"))
+                    .summaryBalance(rs.getBigDecimal("total_balance"))
+                    .ledgerBalance(rs.getBigDecimal("remaining"))
+                    .grantedAmount(rs.getBigDecimal("granted"))
+                    .consumedAmount(rs.getBigDecimal("consumed"))
+                    .build());
+        }));
+
+        for (ReconciliationReport.Drift drift : rangeDrifts) {
+            if (drift.getSummaryBalance().compareTo(drift.getLedgerBalance()) != 0) {
+                state.summaryDrift.incrementAndGet();
+                if (state.repair) {
+                    drift.setRepaired(repairSummary(drift));
+                    if (drift.isRepaired()) {
+                        state.repaired.incrementAndGet();
+                    }
+                }
+            }
+            BigDecimal ledgerConsumed = drift.getGrantedAmount().subtract(drift.getLedgerBalance());
+            if (ledgerConsumed.compareTo(drift.getConsumedAmount()) != 0 && !unsettledUsers.contains(drift.getUserId())) {
+                state.consumptionDrift.incrementAndGet();
+            }
+            if (state.reported.incrementAndGet() <= maxReportedDrifts) {
+                state.drifts.add(drift);
+            }
+        }
+        state.ranges.incrementAndGet();
+    }
+
+    private boolean repairSummary(ReconciliationReport.Drift drift) {
+        Integer updated = writeTransaction.execute(status -> jdbcTemplate.update(REPAIR_SUMMARY,
+                drift.getUserId(), drift.getSummaryBalance()));
+        if (updated != null && updated > 0) {
+            log.warn("Repaired credit summary drift: userId={}, summaryBalance={}, ledgerBalance={}",
+                    drift.getUserId(), drift.getSummaryBalance(), drift.getLedgerBalance());
+            return true;
+        }
+        return false;
+    }
+
+    private class RangeTask extends RecursiveAction {
+        private final long fromUserId;
+        private final long toUserId;
+        private final ScanState state;
+
+        RangeTask(long fromUserId, long toUserId, ScanState state) {
+            this.fromUserId = fromUserId;
+            this.toUserId = toUserId;
+            this.state = state;
+        }
+
+        @Override
+        protected void compute() {
+            if (toUserId - fromUserId <= rangeSize) {
+                scanRange(fromUserId, toUserId, state);
+                return;
+            }
+            long mid = fromUserId + (toUserId - fromUserId) / 2;
+            invokeAll(new RangeTask(fromUserId, mid, state), new RangeTask(mid, toUserId, state));
+        }
+    }
+
+    private static class ScanState {
+        private final boolean repair;
+        private final AtomicLong ranges = new AtomicLong();
+        private final AtomicLong summaryDrift = new AtomicLong();
+        private final AtomicLong consumptionDrift = new AtomicLong();
+        private final AtomicLong repaired = new AtomicLong();
+        private final AtomicLong reported = new AtomicLong();
+        private final Queue<ReconciliationReport.Drift> drifts = new ConcurrentLinkedQueue<>();
+
+        ScanState(boolean repair) {
+            this.repair = repair;
+        }
+    }
+}
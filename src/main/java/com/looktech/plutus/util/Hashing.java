@@ -0,0 +1,19 @@
+package com.looktech.plutus.util;
+
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Finalizer of MurmurHash3's 64-bit variant: spreads every input bit over the whole result.
+     */
+    public static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,331 @@
+package com.looktech.plutus.wal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local, memory-mapped write-ahead log of {@link WalRecord}s.
+ *
+ * <p>Segments are fixed-size files named after their first position. Each record is {@code [length][crc32c][json]};
+ * a zero length marks the end of the written part of a segment. Appenders wait until a group fsync covers their
+ * record: the first waiter forces the mapping for everything written so far while later ones queue behind it, so
+ * concurrent commits share one fsync. Records stay queued in memory until the drainer has copied them to Postgres
+ * and advanced the checkpoint file; on startup every record after the checkpoint is read back and queued again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "credit.wal.enabled", havingValue = "true")
+@EnableConfigurationProperties(WalProperties.class)
+public class TransactionLogWal {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    record Entry(long endPosition, WalRecord record) {
+    }
+
+    private record Segment(long basePosition, MappedByteBuffer buffer) {
+    }
+
+    private final WalProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    private final Object appendLock = new Object();
+    private final Object flushLock = new Object();
+    // Guarded by appendLock
+    private Segment current;
+    private long writtenPosition;
+    private final Deque<Entry> pending = new ArrayDeque<>();
+    // Guarded by flushLock
+    private long durablePosition;
+    private boolean flushing;
+
+    private final Map<String, CreditTransactionLog> pendingByTransactionId = new ConcurrentHashMap<>();
+
+    public TransactionLogWal(WalProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(properties.getDirectory());
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        Files.createDirectories(directory);
+        long checkpoint = readCheckpoint();
+        List<Path> segments = listSegments();
+        int replayed = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            long base = basePosition(segments.get(i));
+            boolean last = i == segments.size() - 1;
+            if (!last && basePosition(segments.get(i + 1)) <= checkpoint) {
+                Files.delete(segments.get(i));
+                continue;
+            }
+            MappedByteBuffer buffer = map(segments.get(i));
+            int offset = 0;
+            while (true) {
+                byte[] payload = readRecord(buffer, offset);
+                if (payload == null) {
+                    break;
+                }
+                offset += HEADER_BYTES + payload.length;
+                if (base + offset > checkpoint) {
+                    enqueue(new Entry(base + offset, objectMapper.readValue(payload, WalRecord.class)));
+                    replayed++;
+                }
+            }
+            if (last) {
+                // Anything past the last intact record is a torn write from a crash; clear it before appending
+                for (int p = offset; p < buffer.capacity(); p++) {
+                    buffer.put(p, (byte) 0);
+                }
+                buffer.force();
+                current = new Segment(base, buffer);
+                writtenPosition = base + offset;
+            }
+        }
+        if (current == null) {
+            current = new Segment(Math.max(checkpoint, 0), map(segmentPath(Math.max(checkpoint, 0))));
+            writtenPosition = current.basePosition();
+        }
+        durablePosition = writtenPosition;
+        log.info("Transaction log WAL opened: directory={}, checkpoint={}, position={}, replayed={}",
+                directory.toAbsolutePath(), checkpoint, writtenPosition, replayed);
+    }
+
+    /**
+     * Append the record and return once it is on disk.
+     */
+    public void appendDurably(WalRecord record) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (HEADER_BYTES + payload.length + 4 > properties.getSegmentSizeBytes()) {
+            throw new IllegalStateException("WAL record larger than a segment: " + payload.length + " bytes");
+        }
+        long endPosition;
+        synchronized (appendLock) {
+            int offset = (int) (writtenPosition - current.basePosition());
+            // Keep room for the zero length that terminates the segment
+            if (offset + HEADER_BYTES + payload.length + 4 > current.buffer().capacity()) {
+                rotate();
+                offset = 0;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            MappedByteBuffer buffer = current.buffer();
+            buffer.put(offset + HEADER_BYTES, payload);
+            buffer.putInt(offset + 4, (int) crc.getValue());
+            // Length last, so a reader never sees a length without its payload
+            buffer.putInt(offset, payload.length);
+            writtenPosition += HEADER_BYTES + payload.length;
+            endPosition = writtenPosition;
+            enqueue(new Entry(endPosition, record));
+        }
+        awaitDurable(endPosition);
+    }
+
+    public Optional<CreditTransactionLog> findPending(String transactionId) {
+        return Optional.ofNullable(pendingByTransactionId.get(transactionId));
+    }
+
+    /**
+     * Oldest not yet drained records, in append order.
+     */
+    List<Entry> peek(int max) {
+        synchronized (appendLock) {
+            List<Entry> entries = new ArrayList<>(Math.min(max, pending.size()));
+            for (Entry entry : pending) {
+                if (entries.size() == max) {
+                    break;
+                }
+                entries.add(entry);
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Forget records returned by {@link #peek} and persist the checkpoint after the last of them. Segments
+     * entirely before the checkpoint are deleted.
+     */
+    void markDrained(List<Entry> drained) {
+        if (drained.isEmpty()) {
+            return;
+        }
+        synchronized (appendLock) {
+            for (Entry entry : drained) {
+                Entry head = pending.pollFirst();
+                if (head != entry) {
+                    throw new IllegalStateException("WAL entries drained out of order");
+                }
+                pendingByTransactionId.remove(entry.record().log().getTransactionId(), entry.record().log());
+            }
+        }
+        long checkpoint = drained.get(drained.size() - 1).endPosition();
+        try {
+            writeCheckpoint(checkpoint);
+            long currentBase;
+            synchronized (appendLock) {
+                currentBase = current.basePosition();
+            }
+            for (Path segment : listSegments()) {
+                long base = basePosition(segment);
+                if (base < currentBase && base + properties.getSegmentSizeBytes() <= checkpoint) {
+                    Files.delete(segment);
+                }
+            }
+        } catch (IOException e) {
+            // Draining is idempotent, so a stale checkpoint only costs a re-check after restart
+            log.warn("WAL checkpoint update failed: checkpoint={}, error={}", checkpoint, e.getMessage());
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        pending.addLast(entry);
+        pendingByTransactionId.put(entry.record().log().getTransactionId(), entry.record().log());
+    }
+
+    private void awaitDurable(long position) {
+        while (true) {
+            synchronized (flushLock) {
+                while (flushing && durablePosition < position) {
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for WAL fsync", e);
+                    }
+                }
+                if (durablePosition >= position) {
+                    return;
+                }
+                flushing = true;
+            }
+            long target;
+            try {
+                MappedByteBuffer buffer;
+                synchronized (appendLock) {
+                    buffer = current.buffer();
+                    target = writtenPosition;
+                }
+                buffer.force();
+            } catch (RuntimeException e) {
+                synchronized (flushLock) {
+                    flushing = false;
+                    flushLock.notifyAll();
+                }
+                throw e;
+            }
+            synchronized (flushLock) {
+                durablePosition = Math.max(durablePosition, target);
+                flushing = false;
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    // Called with appendLock held
+    private void rotate() {
+        Segment previous = current;
+        // Rare (once per segment), so the old segment is forced inline rather than by the group flush
+        previous.buffer().force();
+        long base = previous.basePosition() + previous.buffer().capacity();
+        try {
+            current = new Segment(base, map(segmentPath(base)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writtenPosition = base;
+        log.debug("WAL rotated to segment at position {}", base);
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = Math.max(channel.size(), properties.getSegmentSizeBytes());
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static byte[] readRecord(MappedByteBuffer buffer, int offset) {
+        if (offset + HEADER_BYTES > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(offset + HEADER_BYTES, payload);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(path)).getLong();
+    }
+
+    private void writeCheckpoint(long position) throws IOException {
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long basePosition) {
+        return directory.resolve(String.format("%020d%s", basePosition, SEGMENT_SUFFIX));
+    }
+
+    private static long basePosition(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,76 @@
+package com.looktech.plutus.wal;
+
+import com.looktech.plutus.domain.CreditConsumptionDetail;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.repository.CreditConsumptionDetailRepository;
+import com.looktech.plutus.repository.CreditTransactionLogRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persists a mutation's transaction log and consumption details. By default they are inserted in the mutation's
+ * transaction; with {@code credit.wal.enabled} they are appended to the local WAL just before the transaction
+ * commits and reach the tables through {@link WalDrainer}.
+ */
+@Component
+public class TransactionLogWriter {
+
+    private final TransactionLogWal wal;
+    private final CreditTransactionLogRepository transactionLogRepository;
+    private final CreditConsumptionDetailRepository consumptionDetailRepository;
+
+    public TransactionLogWriter(ObjectProvider<TransactionLogWal> wal,
+                                CreditTransactionLogRepository transactionLogRepository,
+                                CreditConsumptionDetailRepository consumptionDetailRepository) {
+        this.wal = wal.getIfAvailable();
+        this.transactionLogRepository = transactionLogRepository;
+        this.consumptionDetailRepository = consumptionDetailRepository;
+    }
+
+    /**
+     * Must be called inside the mutation's transaction.
+     * @return Balance cache version of the mutation: the log id, or with the WAL a value from the same sequence
+     *         (the row gets its own id when drained)
+     */
+    public long write(CreditTransactionLog log, List<CreditConsumptionDetail> details) {
+        if (wal == null) {
+            consumptionDetailRepository.insertAll(details);
+            transactionLogRepository.save(log);
+            return log.getId();
+        }
+
+        long[] versionAndXid = transactionLogRepository.allocateVersion();
+        LocalDateTime now = LocalDateTime.now();
+        log.setCreatedAt(now);
+        details.forEach(detail -> detail.setCreatedAt(now));
+        WalRecord record = new WalRecord(versionAndXid[0], versionAndXid[1], log, details);
+        // The WAL write is the durability point, so it must be on disk before the ledger changes commit; if the
+        // transaction then rolls back anyway, the drainer sees it aborted and drops the record
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                wal.appendDurably(record);
+            }
+        });
+        return versionAndXid[0];
+    }
+
+    /**
+     * Idempotency replays must also find logs still waiting in the WAL.
+     */
+    public Optional<CreditTransactionLog> findByTransactionId(String transactionId) {
+        if (wal != null) {
+            Optional<CreditTransactionLog> pending = wal.findPending(transactionId);
+            if (pending.isPresent()) {
+                return pending;
+            }
+        }
+        return transactionLogRepository.findByTransactionId(transactionId);
+    }
+}
@@ -0,0 +1,204 @@
+package com.looktech.plutus.wal;
+
+import com.looktech.plutus.domain.CreditConsumptionDetail;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies WAL records into credit_transaction_logs and credit_consumption_detail.
+ *
+ * <p>A record is only copied once Postgres reports its transaction as committed; records of aborted transactions
+ * are dropped, and draining stops at the first record whose transaction is still in progress. Each batch is
+ * COPYed into temporary staging tables and inserted from there, skipping logs already present with the same
+ * transaction_id, type and user. Together with the checkpoint only moving after the insert commits, replaying
+ * a batch after a crash inserts every transaction exactly once.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "credit.wal.enabled", havingValue = "true")
+public class WalDrainer {
+
+    private static final String STATUS_SQL = "SELECT x, txid_status(x) FROM unnest(?) AS x";
+
+    private static final String CREATE_LOG_STAGING =
+            "CREATE TEMP TABLE wal_log_staging (" +
+            "  version bigint, user_id bigint, transaction_id varchar(255), type varchar(32), amount numeric, " +
+            "  source_type varchar(255), source_id varchar(255), credit_id bigint, description varchar(255), " +
+            "  created_at timestamp) ON COMMIT DROP";
+
+    private static final String CREATE_DETAIL_STAGING =
+            "CREATE TEMP TABLE wal_detail_staging (" +
+            "  version bigint, transaction_id varchar(255), ledger_id bigint, amount numeric, created_at timestamp" +
+            ") ON COMMIT DROP";
+
+    private static final String DROP_DRAINED_LOGS =
+            "DELETE FROM wal_log_staging s USING credit_transaction_logs t " +
+            "WHERE t.transaction_id = s.transaction_id AND t.type = s.type AND t.user_id = s.user_id";
+
+    private static final String DROP_ORPHAN_DETAILS =
+            "DELETE FROM wal_detail_staging d WHERE NOT EXISTS (SELECT 1 FROM wal_log_staging s WHERE s.version = d.version)";
+
+    private static final String INSERT_LOGS =
+            "INSERT INTO credit_transaction_logs " +
+            "  (user_id, transaction_id, type, amount, source_type, source_id, credit_id, description, created_at) " +
+            "SELECT user_id, transaction_id, type, amount, source_type, source_id, credit_id, description, created_at " +
+            "FROM wal_log_staging ORDER BY version";
+
+    private static final String INSERT_DETAILS =
+            "INSERT INTO credit_consumption_detail (transaction_id, ledger_id, amount, created_at) " +
+            "SELECT transaction_id, ledger_id, amount, created_at FROM wal_detail_staging ORDER BY version";
+
+    private final TransactionLogWal wal;
+    private final WalProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public WalDrainer(TransactionLogWal wal, WalProperties properties, DataSource dataSource,
+                      PlatformTransactionManager transactionManager) {
+        this.wal = wal;
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${credit.wal.drain-interval-millis:200}")
+    public void drain() {
+        try {
+            while (drainBatch()) {
+                // keep going while full batches are available
+            }
+        } catch (RuntimeException e) {
+            log.error("WAL drain failed, will retry: error={}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void drainOnShutdown() {
+        drain();
+    }
+
+    /**
+     * @return true if a full batch was drained and more may be waiting
+     */
+    private boolean drainBatch() {
+        List<TransactionLogWal.Entry> batch = wal.peek(properties.getDrainBatchSize());
+        if (batch.isEmpty()) {
+            return false;
+        }
+        List<TransactionLogWal.Entry> resolved = transactionTemplate.execute(status -> {
+            Map<Long, String> statuses = transactionStatuses(batch);
+            List<TransactionLogWal.Entry> prefix = new ArrayList<>();
+            List<WalRecord> committed = new ArrayList<>();
+            for (TransactionLogWal.Entry entry : batch) {
+                WalRecord record = entry.record();
+                String xactStatus = statuses.get(record.xid());
+                if ("in progress".equals(xactStatus)) {
+                    break;
+                }
+                prefix.add(entry);
+                if ("committed".equals(xactStatus)) {
+                    committed.add(record);
+                } else if ("aborted".equals(xactStatus)) {
+                    log.debug("Dropping WAL record of rolled back transaction: transactionId={}", record.log().getTransactionId());
+                } else {
+                    // txid_status is NULL once the transaction is older than the commit log Postgres keeps
+                    log.error("Dropping WAL record with unknown outcome: transactionId={}, xid={}",
+                            record.log().getTransactionId(), record.xid());
+                }
+            }
+            if (!committed.isEmpty()) {
+                copy(committed);
+            }
+            return prefix;
+        });
+        wal.markDrained(resolved);
+        return resolved.size() == batch.size() && batch.size() == properties.getDrainBatchSize();
+    }
+
+    private Map<Long, String> transactionStatuses(List<TransactionLogWal.Entry> batch) {
+        Long[] xids = batch.stream().map(entry -> entry.record().xid()).distinct().toArray(Long[]::new);
+        Map<Long, String> statuses = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STATUS_SQL);
+            Array array = con.createArrayOf("bigint", xids);
+            ps.setArray(1, array);
+            return ps;
+        }, rs -> {
+            statuses.put(rs.getLong(1), rs.getString(2));
+        });
+        return statuses;
+    }
+
+    private void copy(List<WalRecord> records) {
+        StringBuilder logs = new StringBuilder();
+        StringBuilder details = new StringBuilder();
+        for (WalRecord record : records) {
+            CreditTransactionLog txLog = record.log();
+            csvLine(logs, record.version(), txLog.getUserId(), txLog.getTransactionId(), txLog.getType(), txLog.getAmount(),
+                    txLog.getSourceType(), txLog.getSourceId(), txLog.getCreditId(), txLog.getDescription(), txLog.getCreatedAt());
+            for (CreditConsumptionDetail detail : record.details()) {
+                csvLine(details, record.version(), detail.getTransactionId(), detail.getLedgerId(), detail.getAmount(),
+                        detail.getCreatedAt());
+            }
+        }
+
+        jdbcTemplate.execute(CREATE_LOG_STAGING);
+        jdbcTemplate.execute(CREATE_DETAIL_STAGING);
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try {
+                PGConnection pg = con.unwrap(PGConnection.class);
+                pg.getCopyAPI().copyIn("COPY wal_log_staging FROM STDIN WITH (FORMAT csv)", new StringReader(logs.toString()));
+                pg.getCopyAPI().copyIn("COPY wal_detail_staging FROM STDIN WITH (FORMAT csv)", new StringReader(details.toString()));
+            } catch (IOException e) {
+                throw new IllegalStateException("COPY into WAL staging tables failed", e);
+            }
+            return null;
+        });
+        int alreadyDrained = jdbcTemplate.update(DROP_DRAINED_LOGS);
+        jdbcTemplate.update(DROP_ORPHAN_DETAILS);
+        int logsInserted = jdbcTemplate.update(INSERT_LOGS);
+        int detailsInserted = jdbcTemplate.update(INSERT_DETAILS);
+        log.debug("WAL batch drained: records={}, alreadyDrained={}, logsInserted={}, detailsInserted={}",
+                records.size(), alreadyDrained, logsInserted, detailsInserted);
+    }
+
+    /**
+     * CSV for COPY: an unquoted empty field is NULL, text is always quoted so empty strings survive.
+     */
+    private static void csvLine(StringBuilder out, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            Object value = values[i];
+            if (value instanceof String || value instanceof Enum<?>) {
+                out.append('"').append(value.toString().replace("\"", "\"\"")).append('"');
+            } else if (value instanceof BigDecimal decimal) {
+                out.append(decimal.toPlainString());
+            } else if (value != null) {
+                out.append(value);
+            }
+        }
+        out.append('\n');
+    }
+}
@@ -0,0 +1,17 @@
+package com.looktech.plutus.wal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("credit.wal")
+public class WalProperties {
+    private boolean enabled = false;
+    /**
+     * Local directory holding the segments and the drain checkpoint; must survive pod restarts (persistent volume)
+     */
+    private String directory = "data/wal";
+    private long segmentSizeBytes = 64L * 1024 * 1024;
+    private long drainIntervalMillis = 200;
+    private int drainBatchSize = 1000;
+}
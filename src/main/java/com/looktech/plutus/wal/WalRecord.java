@@ -0,0 +1,14 @@
+package com.looktech.plutus.wal;
+
+import com.looktech.plutus.domain.CreditConsumptionDetail;
+import com.looktech.plutus.domain.CreditTransactionLog;
+
+import java.util.List;
+
+/**
+ * One mutation's transaction log and consumption details, as appended to the write-ahead log.
+ * @param version Value taken from the transaction log id sequence; used as the balance cache version
+ * @param xid Postgres transaction that applied the mutation; the record is only drained once it has committed
+ */
+public record WalRecord(long version, long xid, CreditTransactionLog log, List<CreditConsumptionDetail> details) {
+}
@@ -0,0 +1,64 @@
+-- 额度金额列离线迁移：把旧库中未声明精度的 numeric 列改为 numeric(18,6)
+--
+-- 在停服维护窗口内手动执行（psql -v ON_ERROR_STOP=1 -f micro-credit-columns.sql），不要在服务运行时执行：
+-- 每个 ALTER 都会在 ACCESS EXCLUSIVE 锁下重写整张表。
+-- 整个脚本在一个事务内：任一列有超过12位整数的金额时中止，不做任何修改。
+-- 超过6位小数的金额截断为6位，原值记录在 credit_amount_truncations；最后按账本重算用户汇总余额。
+-- 执行后服务以 credit.schema.micro-credit-columns=VALIDATE（默认）启动即可通过检查。
+
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS credit_amount_truncations (
+    id              bigserial PRIMARY KEY,
+    table_name      text          NOT NULL,
+    column_name     text          NOT NULL,
+    row_id          bigint        NOT NULL,
+    original_amount numeric       NOT NULL,
+    stored_amount   numeric(18,6) NOT NULL,
+    migrated_at     timestamp     NOT NULL DEFAULT now()
+);
+
+DO $$
+DECLARE
+    c        record;
+    overflow bigint;
+BEGIN
+    FOR c IN SELECT * FROM (VALUES
+            ('credit_ledgers', 'remaining_amount'),
+            ('user_credit_summaries', 'total_balance'),
+            ('credit_transaction_logs', 'amount'),
+            ('credit_consumption_detail', 'amount'),
+            ('credit_freeze', 'amount')) AS t(tbl, col)
+    LOOP
+        IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                       WHERE table_schema = current_schema() AND table_name = c.tbl AND column_name = c.col
+                         AND (numeric_precision IS DISTINCT FROM 18 OR numeric_scale IS DISTINCT FROM 6)) THEN
+            CONTINUE;
+        END IF;
+
+        EXECUTE format('SELECT count(*) FROM %I WHERE abs(%I) >= 1e12', c.tbl, c.col) INTO overflow;
+        IF overflow > 0 THEN
+            RAISE EXCEPTION '%.% has % amounts with more than 12 integer digits; fix them before migrating',
+                c.tbl, c.col, overflow;
+        END IF;
+
+        EXECUTE format('INSERT INTO credit_amount_truncations (table_name, column_name, row_id, original_amount, stored_amount) '
+                       'SELECT %L, %L, id, %I, trunc(%I, 6) FROM %I WHERE %I <> trunc(%I, 6)',
+                       c.tbl, c.col, c.col, c.col, c.tbl, c.col, c.col);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN %I TYPE numeric(18,6) USING trunc(%I, 6)', c.tbl, c.col, c.col);
+        RAISE NOTICE 'Migrated %.% to numeric(18,6)', c.tbl, c.col;
+    END LOOP;
+END $$;
+
+-- 截断后汇总余额与账本之和可能相差几个 micro-credit，按账本重算有差异的用户
+UPDATE user_credit_summaries s SET
+    total_balance = l.remaining,
+    version = s.version + 1,
+    updated_at = now()
+FROM (SELECT user_id, SUM(remaining_amount) AS remaining FROM credit_ledgers GROUP BY user_id) l
+WHERE l.user_id = s.user_id AND s.total_balance <> l.remaining;
+
+SELECT table_name, column_name, count(*) AS truncated_rows, SUM(original_amount - stored_amount) AS truncated_total
+FROM credit_amount_truncations GROUP BY table_name, column_name;
+
+COMMIT;
@@ -0,0 +1,82 @@
+package com.looktech.plutus.allocation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The deduct allocation loop over BigDecimal, as it was before micro-credits, against {@link FefoAllocator}
+ * including the conversions at the JPA boundary. The deduct draws half the total so about half the ledgers are
+ * touched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FefoAllocatorBenchmark {
+
+    private static final int LOCK_BATCH_SIZE = 4;
+
+    /** Multiples of the lock batch size. */
+    @Param({"4", "64", "1000"})
+    private int ledgers;
+
+    private BigDecimal[] stored;
+    private BigDecimal amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        stored = new BigDecimal[ledgers];
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < ledgers; i++) {
+            stored[i] = BigDecimal.valueOf(1 + random.nextInt(100_000_000), MicroCredits.SCALE);
+            total = total.add(stored[i]);
+        }
+        amount = total.divide(BigDecimal.valueOf(2), MicroCredits.SCALE, RoundingMode.DOWN);
+    }
+
+    @Benchmark
+    public void bigDecimal(Blackhole blackhole) {
+        BigDecimal remainingAmount = amount;
+        for (BigDecimal remaining : stored) {
+            if (remainingAmount.compareTo(BigDecimal.ZERO) <= 0) {
+                break;
+            }
+            BigDecimal take = remaining.min(remainingAmount);
+            blackhole.consume(remaining.subtract(take));
+            blackhole.consume(take);
+            remainingAmount = remainingAmount.subtract(take);
+        }
+    }
+
+    @Benchmark
+    public void microCredits(Blackhole blackhole) {
+        // As consumeLedgers: convert one lock batch at a time and stop once the amount is covered
+        long amountMicros = MicroCredits.of(amount);
+        long[] remaining = new long[LOCK_BATCH_SIZE];
+        long[] taken = new long[LOCK_BATCH_SIZE];
+        for (int from = 0; from < stored.length && amountMicros > 0; from += LOCK_BATCH_SIZE) {
+            for (int i = 0; i < LOCK_BATCH_SIZE; i++) {
+                remaining[i] = MicroCredits.ofStored(stored[from + i]);
+            }
+            int visited = FefoAllocator.allocate(remaining, amountMicros, taken);
+            for (int i = 0; i < visited; i++) {
+                amountMicros -= taken[i];
+                blackhole.consume(MicroCredits.toBigDecimal(remaining[i]));
+                blackhole.consume(MicroCredits.toBigDecimal(taken[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.looktech.plutus.allocation;
+
+import com.looktech.plutus.exception.CreditException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MicroCreditsTest {
+
+    @Test
+    void requestAmountsConvertExactly() {
+        assertEquals(1_500_000L, MicroCredits.of(new BigDecimal("1.5")));
+        assertEquals(1L, MicroCredits.of(new BigDecimal("0.000001")));
+        assertEquals(new BigDecimal("1.500000"), MicroCredits.toBigDecimal(1_500_000L));
+    }
+
+    @Test
+    void requestAmountsWithMoreDecimalsAreRejected() {
+        CreditException e = assertThrows(CreditException.class, () -> MicroCredits.of(new BigDecimal("0.0000001")));
+        assertEquals("INVALID_AMOUNT", e.getCode());
+    }
+
+    @Test
+    void storedAmountsWithMoreDecimalsAreRoundedDown() {
+        assertEquals(1_234_567L, MicroCredits.ofStored(new BigDecimal("1.2345678")));
+        assertEquals(0L, MicroCredits.ofStored(new BigDecimal("0.0000009")));
+        assertEquals(2_000_000L, MicroCredits.ofStored(new BigDecimal("2")));
+    }
+
+    @Test
+    void amountsAtScaleUseTheUnscaledValue() {
+        assertEquals(1_234_567L, MicroCredits.ofStored(new BigDecimal("1.234567")));
+        assertEquals(-1_000_000L, MicroCredits.of(new BigDecimal("-1.000000")));
+        assertEquals(999_999_999_999_999_999L, MicroCredits.ofStored(new BigDecimal("999999999999.999999")));
+        CreditException e = assertThrows(CreditException.class, () -> MicroCredits.of(new BigDecimal("10000000000000.000000")));
+        assertEquals("INVALID_AMOUNT", e.getCode());
+    }
+}
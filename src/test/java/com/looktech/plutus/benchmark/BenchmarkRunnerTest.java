@@ -0,0 +1,25 @@
+package com.looktech.plutus.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks under src/test from Maven; skipped unless a benchmark is selected:
+ * {@code mvn test -Dtest=BenchmarkRunnerTest -Dbenchmark=FefoAllocatorBenchmark}
+ */
+class BenchmarkRunnerTest {
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = ".+")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(System.getProperty("benchmark"))
+                .forks(Integer.getInteger("benchmark.forks", 1))
+                .warmupIterations(Integer.getInteger("benchmark.warmups", 3))
+                .measurementIterations(Integer.getInteger("benchmark.iterations", 5))
+                .build()).run();
+    }
+}
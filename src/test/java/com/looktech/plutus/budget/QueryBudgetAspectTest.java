@@ -0,0 +1,96 @@
+package com.looktech.plutus.budget;
+
+import com.looktech.plutus.annotation.QueryBudget;
+import com.looktech.plutus.aspect.QueryBudgetAspect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryBudgetAspectTest {
+
+    private Operations operations;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+
+        QueryBudgetAspect aspect = new QueryBudgetAspect();
+        ReflectionTestUtils.setField(aspect, "failOnExceed", true);
+        AspectJProxyFactory factory = new AspectJProxyFactory(new Operations(new StatementCountingDataSource(target)));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        operations = factory.getProxy();
+    }
+
+    @Test
+    void passesWithinBudget() {
+        assertThatCode(() -> operations.twoStatementsOneCommand(2, 1)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void failsWhenStatementsExceedBudget() {
+        assertThatThrownBy(() -> operations.twoStatementsOneCommand(3, 0))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("statements=3/2");
+    }
+
+    @Test
+    void failsWhenRedisCommandsExceedBudget() {
+        assertThatThrownBy(() -> operations.twoStatementsOneCommand(0, 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("redisCommands=2/1");
+    }
+
+    @Test
+    void countsNestedCallsAgainstTheOutermostBudget() {
+        assertThatThrownBy(() -> operations.nested(operations))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("statements=4/3");
+    }
+
+    @Test
+    void ignoresStatementsOutsideBudgetedCalls() throws SQLException {
+        operations.unbudgeted(10);
+        assertThatCode(() -> operations.twoStatementsOneCommand(2, 1)).doesNotThrowAnyException();
+    }
+
+    static class Operations {
+        private final DataSource dataSource;
+
+        Operations(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        @QueryBudget(statements = 2, redisCommands = 1)
+        public void twoStatementsOneCommand(int statements, int redisCommands) throws SQLException {
+            unbudgeted(statements);
+            for (int i = 0; i < redisCommands; i++) {
+                new RedisCommandCounter().commandStarted(null);
+            }
+        }
+
+        @QueryBudget(statements = 3)
+        public void nested(Operations self) throws SQLException {
+            unbudgeted(2);
+            self.twoStatementsOneCommand(2, 0);
+        }
+
+        public void unbudgeted(int statements) throws SQLException {
+            Connection connection = dataSource.getConnection();
+            for (int i = 0; i < statements; i++) {
+                connection.prepareStatement("SELECT 1");
+            }
+        }
+    }
+}
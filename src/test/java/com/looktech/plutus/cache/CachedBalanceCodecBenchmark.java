@@ -0,0 +1,60 @@
+package com.looktech.plutus.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of a typical cached balance with {@link CachedBalanceCodec} against the
+ * {@link GenericJackson2JsonRedisSerializer} the cache used before. Value sizes are asserted in
+ * {@link CachedBalanceCodecTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CachedBalanceCodecBenchmark {
+
+    static final CachedBalance TYPICAL = new CachedBalance(
+            new BigDecimal("1234.567890"), 1_790_000_000_000L + 3_600_000L, 3);
+
+    private final CachedBalanceCodec codec = new CachedBalanceCodec();
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer();
+
+    private byte[] encodedBinary;
+    private byte[] encodedJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        encodedBinary = codec.serialize(TYPICAL);
+        encodedJson = json.serialize(TYPICAL);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return codec.serialize(TYPICAL);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.serialize(TYPICAL);
+    }
+
+    @Benchmark
+    public CachedBalance decodeBinary() {
+        return codec.deserialize(encodedBinary);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return json.deserialize(encodedJson);
+    }
+}
@@ -0,0 +1,55 @@
+package com.looktech.plutus.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedBalanceCodecTest {
+
+    private final CachedBalanceCodec codec = new CachedBalanceCodec();
+
+    @Test
+    void roundTripsBalancesOfAnySize() {
+        for (String balance : new String[]{"0", "1234.567890", "-0.000001", "1E+3", "123456789012345678901234567890.123456"}) {
+            CachedBalance value = new CachedBalance(new BigDecimal(balance), 1_790_003_600_000L, 17);
+            CachedBalance decoded = codec.deserialize(codec.serialize(value));
+            assertThat(decoded).isEqualTo(value);
+            assertThat(decoded.balance().scale()).isEqualTo(value.balance().scale());
+        }
+    }
+
+    @Test
+    void decodesJsonAndTruncatedValuesAsMiss() {
+        byte[] json = new GenericJackson2JsonRedisSerializer().serialize(CachedBalanceCodecBenchmark.TYPICAL);
+        assertThat(codec.deserialize(json)).isNull();
+        assertThat(codec.deserialize("1".getBytes(StandardCharsets.UTF_8))).isNull();
+
+        byte[] encoded = codec.serialize(CachedBalanceCodecBenchmark.TYPICAL);
+        byte[] truncated = new byte[encoded.length - 1];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        assertThat(codec.deserialize(truncated)).isNull();
+    }
+
+    @Test
+    void decodesCorruptUnscaledValuesAsMiss() {
+        // format, scale 6, byte-array tag, then a zero, a negative and an oversized length
+        assertThat(codec.deserialize(new byte[]{CachedBalanceCodec.FORMAT_V1, 12, 1, 0, 0, 0})).isNull();
+        assertThat(codec.deserialize(new byte[]{CachedBalanceCodec.FORMAT_V1, 12, 1,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 1, 0, 0})).isNull();
+        assertThat(codec.deserialize(new byte[]{CachedBalanceCodec.FORMAT_V1, 12, 1, 9, 1, 0, 0})).isNull();
+        // unknown tag
+        assertThat(codec.deserialize(new byte[]{CachedBalanceCodec.FORMAT_V1, 12, 7, 2, 0, 0})).isNull();
+    }
+
+    @Test
+    void typicalValueIsAboutATenthOfJson() {
+        int binary = codec.serialize(CachedBalanceCodecBenchmark.TYPICAL).length;
+        int json = new GenericJackson2JsonRedisSerializer().serialize(CachedBalanceCodecBenchmark.TYPICAL).length;
+        assertThat(binary).isLessThanOrEqualTo(16);
+        assertThat(binary * 8).isLessThan(json);
+    }
+}
@@ -0,0 +1,80 @@
+package com.looktech.plutus.service;
+
+import com.looktech.plutus.ContainerTestSupport;
+import com.looktech.plutus.domain.CreateSessionResponse;
+import com.looktech.plutus.domain.CreditTransactionLog;
+import com.looktech.plutus.enums.SourceType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs each budgeted {@link CreditService} operation against Postgres and Redis with
+ * {@code credit.query-budget.fail-on-exceed}, so a change that adds statements or Redis commands beyond an
+ * operation's {@code @QueryBudget} fails the build. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+        "credit.query-budget.enabled=true",
+        "credit.query-budget.fail-on-exceed=true",
+        "credit.rollup.enabled=false",
+        "credit.balance-snapshot.enabled=false",
+        "spring.jpa.show-sql=false"
+})
+class CreditServiceQueryBudgetTest extends ContainerTestSupport {
+
+    private static final AtomicLong USER_IDS = new AtomicLong(1000);
+
+    @Autowired
+    private CreditService creditService;
+
+    @Test
+    void grant() {
+        long userId = USER_IDS.incrementAndGet();
+        grant(userId, "10");
+        grant(userId, "10");
+        assertThat(creditService.getAvailableBalance(userId)).isEqualByComparingTo("20");
+    }
+
+    @Test
+    void deductFromUserWithFiftyLedgers() {
+        long userId = USER_IDS.incrementAndGet();
+        for (int i = 0; i < 50; i++) {
+            grant(userId, "1");
+        }
+        // Touches every ledger
+        CreditTransactionLog log = creditService.deductCredit(userId, new BigDecimal("50"), SourceType.CHAT, "budget",
+                UUID.randomUUID().toString());
+        assertThat(log.getAmount()).isEqualByComparingTo("50");
+        assertThat(creditService.getAvailableBalance(userId)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void startAndSettleSession() {
+        long userId = USER_IDS.incrementAndGet();
+        grant(userId, "10");
+        CreateSessionResponse session = creditService.startSession(userId, new BigDecimal("5"), UUID.randomUUID().toString());
+        creditService.settleSession(session.getSessionId(), new BigDecimal("3"));
+        assertThat(creditService.getAvailableBalance(userId)).isEqualByComparingTo("7");
+    }
+
+    @Test
+    void startAndCancelSession() {
+        long userId = USER_IDS.incrementAndGet();
+        grant(userId, "10");
+        CreateSessionResponse session = creditService.startSession(userId, new BigDecimal("5"), UUID.randomUUID().toString());
+        creditService.cancelSession(session.getSessionId());
+        assertThat(creditService.getAvailableBalance(userId)).isEqualByComparingTo("10");
+    }
+
+    private void grant(long userId, String amount) {
+        creditService.grantCredit(userId, new BigDecimal(amount), SourceType.SYSTEM, "budget",
+                LocalDateTime.now().plusDays(30), UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,200 @@
+package com.looktech.plutus.stress;
+
+import com.looktech.plutus.ContainerTestSupport;
+import com.looktech.plutus.enums.SourceType;
+import com.looktech.plutus.exception.CreditException;
+import com.looktech.plutus.service.CreditService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers a few users with parallel deducts (and occasional refill grants) through {@link CreditService},
+ * then checks the ledger invariants; compare the report before and after any change to locking.
+ * Skipped unless selected: {@code mvn test -Dtest=ConcurrencyStressTest -Dstress=true}, with optional
+ * {@code -Dstress.users}, {@code -Dstress.threads} and {@code -Dstress.duration-seconds}.
+ */
+@Slf4j
+@SpringBootTest(properties = "spring.jpa.show-sql=false")
+@EnabledIfSystemProperty(named = "stress", matches = "true")
+class ConcurrencyStressTest extends ContainerTestSupport {
+
+    /**
+     * Keep small so operations contend on the same rows
+     */
+    private static final int USERS = Integer.getInteger("stress.users", 4);
+    private static final int THREADS = Integer.getInteger("stress.threads", 32);
+    private static final int DURATION_SECONDS = Integer.getInteger("stress.duration-seconds", 30);
+    private static final long FIRST_USER = 900_000_000L;
+    /**
+     * Grants seeded per user before the run, so deducts have several ledgers to walk
+     */
+    private static final int SEED_LEDGERS_PER_USER = 20;
+    private static final BigDecimal SEED_AMOUNT = new BigDecimal("50");
+    private static final BigDecimal DEDUCT_AMOUNT = new BigDecimal("0.25");
+    /**
+     * One in this many operations is a refill grant instead of a deduct
+     */
+    private static final int GRANT_EVERY = 20;
+
+    private static final String NEGATIVE_LEDGERS =
+            "SELECT COUNT(*) FROM credit_ledgers WHERE user_id >= ? AND user_id < ? AND remaining_amount < 0";
+
+    // Summary must equal the ledger sum, and grants minus what remains must equal what was consumed
+    private static final String DRIFTED_USERS =
+            "SELECT s.user_id, s.total_balance, " +
+            "  (SELECT COALESCE(SUM(l.remaining_amount), 0) FROM credit_ledgers l WHERE l.user_id = s.user_id) AS remaining, " +
+            "  (SELECT COALESCE(SUM(t.amount), 0) FROM credit_transaction_logs t WHERE t.user_id = s.user_id AND t.type = 'GRANT') AS granted, " +
+            "  (SELECT COALESCE(SUM(d.amount), 0) FROM credit_consumption_detail d JOIN credit_ledgers l ON l.id = d.ledger_id " +
+            "   WHERE l.user_id = s.user_id) AS consumed " +
+            "FROM user_credit_summaries s WHERE s.user_id >= ? AND s.user_id < ?";
+
+    @Autowired
+    private CreditService creditService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final LongAdder deducts = new LongAdder();
+    private final LongAdder grants = new LongAdder();
+    private final LongAdder concurrencyFailures = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    @Test
+    void parallelDeductsKeepLedgerInvariants() throws InterruptedException {
+        long endUser = FIRST_USER + USERS;
+        log.info("Stress run starting: users=[{}, {}), threads={}, duration={}s", FIRST_USER, endUser, THREADS, DURATION_SECONDS);
+
+        // 1. Seed several ledgers per user so deducts walk and lock more than one row
+        for (long userId = FIRST_USER; userId < endUser; userId++) {
+            for (int i = 0; i < SEED_LEDGERS_PER_USER; i++) {
+                grant(userId, LocalDateTime.now().plusDays(1 + i));
+            }
+        }
+
+        // 2. Hammer until the deadline
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        List<long[]> latencies = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long[] threadLatencies = new long[1 << 16];
+            latencies.add(threadLatencies);
+            executor.execute(() -> {
+                try {
+                    hammer(deadline, threadLatencies);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        done.await();
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        // 3. Report, then check invariants
+        report(elapsedNanos, latencies);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        assertThat(jdbcTemplate.queryForObject(NEGATIVE_LEDGERS, Long.class, FIRST_USER, endUser))
+                .as("negative ledgers").isZero();
+        assertThat(driftedUsers(jdbcTemplate, endUser)).as("users whose summary or consumption drifted").isEmpty();
+    }
+
+    private void hammer(long deadline, long[] latencies) {
+        // Slot 0 counts samples; the rest is a ring of recent latencies in microseconds
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            long userId = FIRST_USER + random.nextInt(USERS);
+            boolean refill = random.nextInt(GRANT_EVERY) == 0;
+            long opStart = System.nanoTime();
+            try {
+                if (refill) {
+                    grant(userId, LocalDateTime.now().plusDays(1 + random.nextInt(30)));
+                    grants.increment();
+                } else {
+                    creditService.deductCredit(userId, DEDUCT_AMOUNT, SourceType.SYSTEM, "stress", UUID.randomUUID().toString());
+                    deducts.increment();
+                }
+            } catch (ConcurrencyFailureException e) {
+                concurrencyFailures.increment();
+                failures.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+            } catch (CreditException e) {
+                failures.computeIfAbsent(e.getCode(), k -> new LongAdder()).increment();
+            } catch (RuntimeException e) {
+                failures.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+            }
+            long sample = ++latencies[0];
+            latencies[1 + (int) (sample % (latencies.length - 1))] = (System.nanoTime() - opStart) / 1_000;
+        }
+    }
+
+    private void grant(long userId, LocalDateTime expiresAt) {
+        creditService.grantCredit(userId, SEED_AMOUNT, SourceType.SYSTEM, "stress", expiresAt, UUID.randomUUID().toString());
+    }
+
+    private void report(long elapsedNanos, List<long[]> latencies) {
+        long succeeded = deducts.sum() + grants.sum();
+        long failed = failures.values().stream().mapToLong(LongAdder::sum).sum();
+        long attempted = succeeded + failed;
+        double seconds = elapsedNanos / 1e9;
+
+        long[] samples = latencies.stream()
+                .flatMapToLong(l -> Arrays.stream(l, 1, 1 + (int) Math.min(l[0], l.length - 1)))
+                .sorted()
+                .toArray();
+
+        log.info("Stress run finished in {}s: attempted={}, deducts={}, grants={}, throughput={} ops/s",
+                String.format("%.1f", seconds), attempted, deducts.sum(), grants.sum(),
+                String.format("%.1f", succeeded / seconds));
+        log.info("Latency (us): p50={}, p99={}, max={}", percentile(samples, 0.50), percentile(samples, 0.99),
+                samples.length == 0 ? 0 : samples[samples.length - 1]);
+        log.info("Contention: concurrencyFailures={} ({}% of attempts), failuresByCause={}",
+                concurrencyFailures.sum(),
+                String.format("%.2f", attempted == 0 ? 0.0 : 100.0 * concurrencyFailures.sum() / attempted), failures);
+    }
+
+    private List<String> driftedUsers(JdbcTemplate jdbcTemplate, long endUser) {
+        return jdbcTemplate.query(DRIFTED_USERS, (rs, i) -> {
+            boolean summaryDrift = rs.getBigDecimal("total_balance").compareTo(rs.getBigDecimal("remaining")) != 0;
+            boolean consumptionDrift = rs.getBigDecimal("granted").subtract(rs.getBigDecimal("remaining"))
+                    .compareTo(rs.getBigDecimal("consumed")) != 0;
+            if (!summaryDrift && !consumptionDrift) {
+                return null;
+            }
+            return String.format("user=%d summary=%s ledgers=%s granted=%s consumed=%s", rs.getLong("user_id"),
+                    rs.getBigDecimal("total_balance"), rs.getBigDecimal("remaining"),
+                    rs.getBigDecimal("granted"), rs.getBigDecimal("consumed"));
+        }, FIRST_USER, endUser).stream().filter(Objects::nonNull).toList();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+}